@@ -197,6 +197,17 @@ CREATE TABLE [exercise_records]
 );
 GO
 
+-- exercise_records 查詢用的涵蓋索引 (與 ExerciseRecord 實體上的 @Index 名稱一致)
+-- 使用者 + 日期區間：後台搜尋、總覽、每日彙總補算
+CREATE INDEX [ix_exercise_records_user_date] ON [exercise_records] ([user_id], [exercise_date])
+    INCLUDE ([exercise_type], [exercise_duration], [calories_burned]);
+GO
+
+-- 運動類型 + 日期區間：後台依類型搜尋
+CREATE INDEX [ix_exercise_records_type_date] ON [exercise_records] ([exercise_type], [exercise_date])
+    INCLUDE ([user_id], [exercise_duration], [calories_burned]);
+GO
+
 -- 創建 nutrition_records 表
 CREATE TABLE [nutrition_records]
 (
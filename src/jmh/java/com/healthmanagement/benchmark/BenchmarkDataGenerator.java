@@ -0,0 +1,165 @@
+package com.healthmanagement.benchmark;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.dao.course.CourseDAO;
+import com.healthmanagement.dao.course.EnrollmentDAO;
+import com.healthmanagement.dao.member.UserDAO;
+import com.healthmanagement.model.course.Course;
+import com.healthmanagement.model.course.Enrollment;
+import com.healthmanagement.model.member.User;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * 基準測試資料產生器
+ * 依 (課程數 × 使用者數 × 每門課報名數) 產生資料，固定亂數種子，每次執行的資料分佈相同。
+ * 課程排在「後天之後」的星期，確保報名與取消都不會碰到 24 小時時限。
+ */
+public class BenchmarkDataGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkDataGenerator.class);
+
+    private static final String REGISTERED_STATUS = "已報名";
+    private static final String WAITING_STATUS = "候補中";
+
+    // 每批寫入後 flush + clear，避免持久化內容無限制成長
+    private static final int FLUSH_SIZE = 500;
+
+    private final UserDAO userDAO;
+    private final CourseDAO courseDAO;
+    private final EnrollmentDAO enrollmentDAO;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Random random = new Random(42);
+
+    public BenchmarkDataGenerator(UserDAO userDAO, CourseDAO courseDAO, EnrollmentDAO enrollmentDAO,
+                                  EntityManager entityManager, TransactionTemplate transactionTemplate) {
+        this.userDAO = userDAO;
+        this.courseDAO = courseDAO;
+        this.enrollmentDAO = enrollmentDAO;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    // 產生的資料集：會員 ID、所有課程 ID、提供體驗選項的課程 (含下一個可預約日期)
+    public record Dataset(List<Integer> memberIds, List<Integer> courseIds, List<Course> trialCourses,
+                          List<LocalDate> trialBookingDates) {
+    }
+
+    public Dataset generate(int courseCount, int userCount, int enrollmentsPerCourse) {
+        long startNanos = System.nanoTime();
+        List<Integer> coachIds = transactionTemplate.execute(status -> insertUsers(Math.max(1, courseCount / 10), "coach"));
+        List<Integer> memberIds = transactionTemplate.execute(status -> insertUsers(userCount, "user"));
+        List<Integer> courseIds = transactionTemplate.execute(status -> insertCourses(courseCount, coachIds));
+        int enrollmentCount = transactionTemplate.execute(status ->
+                insertEnrollments(courseIds, memberIds, Math.min(enrollmentsPerCourse, memberIds.size())));
+
+        List<Course> trialCourses = new ArrayList<>();
+        List<LocalDate> trialBookingDates = new ArrayList<>();
+        for (Course course : courseDAO.findAllById(courseIds)) {
+            if (Boolean.TRUE.equals(course.getOffersTrialOption())) {
+                trialCourses.add(course);
+                trialBookingDates.add(LocalDate.now().plusDays(2)
+                        .with(TemporalAdjusters.nextOrSame(DayOfWeek.of(course.getDayOfWeek() + 1))));
+            }
+        }
+        logger.warn("基準測試資料產生完成：{} 位教練，{} 位會員，{} 門課程 ({} 門提供體驗)，{} 筆報名，耗時 {} ms。",
+                coachIds.size(), memberIds.size(), courseIds.size(), trialCourses.size(), enrollmentCount,
+                (System.nanoTime() - startNanos) / 1_000_000);
+        return new Dataset(memberIds, courseIds, trialCourses, trialBookingDates);
+    }
+
+    private List<Integer> insertUsers(int count, String role) {
+        List<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            User user = User.builder()
+                    .name(role + "-" + i)
+                    .email(role + "-" + i + "@benchmark.local")
+                    .passwordHash("benchmark")
+                    .role(role)
+                    .userPoints(0)
+                    .build();
+            ids.add(userDAO.save(user).getId());
+            flushPeriodically(i);
+        }
+        return ids;
+    }
+
+    private List<Integer> insertCourses(int count, List<Integer> coachIds) {
+        List<DayOfWeek> bookableDays = bookableDays();
+        List<Integer> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DayOfWeek day = bookableDays.get(random.nextInt(bookableDays.size()));
+            boolean offersTrial = random.nextInt(3) == 0;
+            Course course = Course.builder()
+                    .name("Course " + i + " 課程")
+                    .description("Benchmark course " + i)
+                    .coach(userDAO.getReferenceById(coachIds.get(i % coachIds.size())))
+                    // 資料庫 0-6 對應 Java DayOfWeek 1-7
+                    .dayOfWeek(day.getValue() - 1)
+                    .startTime(LocalTime.of(6 + random.nextInt(15), random.nextBoolean() ? 0 : 30))
+                    .duration(60)
+                    .maxCapacity(10 + random.nextInt(41))
+                    .offersTrialOption(offersTrial)
+                    // 體驗容量設得很大，預約後立即取消的基準測試不會因額滿而失敗
+                    .maxTrialCapacity(offersTrial ? 1_000_000 : null)
+                    .build();
+            ids.add(courseDAO.save(course).getId());
+            flushPeriodically(i);
+        }
+        return ids;
+    }
+
+    // 每門課報名 perCourse 位不同會員；超過容量的部分為候補
+    private int insertEnrollments(List<Integer> courseIds, List<Integer> memberIds, int perCourse) {
+        int inserted = 0;
+        for (Integer courseId : courseIds) {
+            Course course = courseDAO.getReferenceById(courseId);
+            int capacity = course.getMaxCapacity();
+            int offset = random.nextInt(memberIds.size());
+            for (int j = 0; j < perCourse; j++) {
+                Integer memberId = memberIds.get((offset + j) % memberIds.size());
+                Enrollment enrollment = Enrollment.builder()
+                        .user(userDAO.getReferenceById(memberId))
+                        .course(course)
+                        .enrollmentTime(LocalDateTime.now().minusDays(random.nextInt(30)))
+                        .status(j < capacity ? REGISTERED_STATUS : WAITING_STATUS)
+                        .build();
+                enrollmentDAO.save(enrollment);
+                flushPeriodically(inserted++);
+            }
+        }
+        return inserted;
+    }
+
+    // 今天與明天以外的星期，報名時不會落在 24 小時限制內
+    private static List<DayOfWeek> bookableDays() {
+        DayOfWeek today = LocalDate.now().getDayOfWeek();
+        List<DayOfWeek> days = new ArrayList<>();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day != today && day != today.plus(1)) {
+                days.add(day);
+            }
+        }
+        return days;
+    }
+
+    private void flushPeriodically(int index) {
+        if ((index + 1) % FLUSH_SIZE == 0) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+}
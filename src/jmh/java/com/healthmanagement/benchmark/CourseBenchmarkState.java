@@ -0,0 +1,110 @@
+package com.healthmanagement.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.HealthManagementApplication;
+import com.healthmanagement.dao.course.CourseDAO;
+import com.healthmanagement.dao.course.EnrollmentDAO;
+import com.healthmanagement.dao.member.UserDAO;
+import com.healthmanagement.model.course.Course;
+import com.healthmanagement.service.course.CourseCatalogCache;
+import com.healthmanagement.service.course.CourseOccurrenceIndex;
+import com.healthmanagement.service.course.CourseSeatLedger;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * 基準測試共用狀態
+ * 以內嵌 H2 (MSSQLServer 相容模式) 啟動完整的 Spring 應用程式，並依 @Param 規模產生資料。
+ * 每個 fork 只啟動一次 (Level.Trial)。
+ */
+@State(Scope.Benchmark)
+public class CourseBenchmarkState {
+
+    @Param({"200"})
+    public int courses;
+
+    @Param({"2000"})
+    public int users;
+
+    @Param({"20"})
+    public int enrollmentsPerCourse;
+
+    public ConfigurableApplicationContext context;
+
+    public List<Integer> memberIds;
+    public List<Integer> courseIds;
+    public List<Course> trialCourses;
+    public BenchmarkDataGenerator.Dataset dataset;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(HealthManagementApplication.class)
+                .logStartupInfo(false)
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:benchmark;MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.properties.hibernate.jdbc.batch_size=500",
+                        "--server.port=0",
+                        "--springdoc.api-docs.enabled=false",
+                        "--springdoc.swagger-ui.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.org.springdoc=WARN",
+                        "--logging.level.org.springframework.web=WARN",
+                        "--logging.level.org.springframework.security=WARN",
+                        "--logging.level.com.healthmanagement=WARN",
+                        "--logging.level.com.healthmanagement.benchmark=INFO");
+
+        BenchmarkDataGenerator generator = new BenchmarkDataGenerator(
+                context.getBean(UserDAO.class),
+                context.getBean(CourseDAO.class),
+                context.getBean(EnrollmentDAO.class),
+                context.getBean(EntityManager.class),
+                new TransactionTemplate(context.getBean(PlatformTransactionManager.class)));
+        dataset = generator.generate(courses, users, enrollmentsPerCourse);
+        memberIds = dataset.memberIds();
+        courseIds = dataset.courseIds();
+        trialCourses = dataset.trialCourses();
+
+        // 記憶體索引在 ApplicationReadyEvent 時載入 (當時尚無資料)，產生資料後重新載入
+        context.getBean(CourseSeatLedger.class).reload();
+        context.getBean(CourseOccurrenceIndex.class).loadOnStartup();
+        context.getBean(CourseCatalogCache.class).invalidate();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public Integer randomMemberId() {
+        return memberIds.get(ThreadLocalRandom.current().nextInt(memberIds.size()));
+    }
+
+    public Integer randomCourseId() {
+        return courseIds.get(ThreadLocalRandom.current().nextInt(courseIds.size()));
+    }
+}
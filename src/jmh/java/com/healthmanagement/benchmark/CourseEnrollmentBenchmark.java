@@ -0,0 +1,105 @@
+package com.healthmanagement.benchmark;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.Page;
+
+import com.healthmanagement.dto.course.CourseInfoDTO;
+import com.healthmanagement.dto.course.EnrollmentDTO;
+import com.healthmanagement.dto.course.TrialBookingDTO;
+import com.healthmanagement.dto.course.TrialBookingRequestDTO;
+import com.healthmanagement.model.course.Course;
+import com.healthmanagement.service.course.CourseServiceImpl;
+import com.healthmanagement.service.course.EnrollmentService;
+import com.healthmanagement.service.course.TrialBookingService;
+
+/**
+ * 課程與報名熱點路徑基準測試
+ * 同時輸出吞吐量 (Throughput) 與延遲分佈 (SampleTime，含 p50/p90/p99/p99.9)；
+ * 以 -prof gc 執行時另輸出每次操作的配置量 (gc.alloc.rate.norm)。
+ * 會修改資料的操作 (報名、體驗預約) 都在同一次呼叫中取消，資料量在整個測試期間保持穩定。
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class CourseEnrollmentBenchmark {
+
+    private static final AtomicLong TRIAL_SEQUENCE = new AtomicLong();
+
+    private EnrollmentService enrollmentService;
+    private CourseServiceImpl courseService;
+    private TrialBookingService trialBookingService;
+
+    @Setup
+    public void lookupServices(CourseBenchmarkState state) {
+        enrollmentService = state.bean(EnrollmentService.class);
+        courseService = state.bean(CourseServiceImpl.class);
+        trialBookingService = state.bean(TrialBookingService.class);
+    }
+
+    // 報名後立即取消；多執行緒抽到同一 (會員, 課程) 時的重複報名拒絕也計入
+    @Benchmark
+    public void enrollUserToCourse(CourseBenchmarkState state, Blackhole blackhole) {
+        try {
+            EnrollmentDTO enrollment = enrollmentService.enrollUserToCourse(state.randomMemberId(), state.randomCourseId());
+            blackhole.consume(enrollment);
+            enrollmentService.cancelEnrollment(enrollment.getId());
+        } catch (IllegalStateException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public Page<CourseInfoDTO> getAllCoursesWithUserStatus(CourseBenchmarkState state) {
+        int pages = Math.max(1, state.courseIds.size() / 20);
+        return enrollmentService.getAllCoursesWithUserStatus(state.randomMemberId(),
+                ThreadLocalRandom.current().nextInt(pages), 20, null, null, null);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> getNextOccurrenceBookedTrialCounts(CourseBenchmarkState state) {
+        return courseService.getNextOccurrenceBookedTrialCounts(state.trialCourses);
+    }
+
+    // 匿名體驗預約後立即取消，每次使用不同的聯絡信箱
+    @Benchmark
+    public void bookTrialCourse(CourseBenchmarkState state, Blackhole blackhole) {
+        if (state.trialCourses.isEmpty()) {
+            return;
+        }
+        int index = ThreadLocalRandom.current().nextInt(state.trialCourses.size());
+        Course course = state.trialCourses.get(index);
+        LocalDate bookingDate = state.dataset.trialBookingDates().get(index);
+        long sequence = TRIAL_SEQUENCE.incrementAndGet();
+        String email = "trial-" + sequence + "@benchmark.local";
+        TrialBookingRequestDTO request = new TrialBookingRequestDTO();
+        request.setCourseId(course.getId());
+        request.setBookingName("trial-" + sequence);
+        request.setBookingEmail(email);
+        request.setBookingPhone("0912345678");
+        request.setBookingDate(bookingDate);
+        TrialBookingDTO booking = trialBookingService.bookTrialCourse(null, email, request);
+        blackhole.consume(booking);
+        trialBookingService.cancelTrialBooking(booking.getId());
+    }
+}
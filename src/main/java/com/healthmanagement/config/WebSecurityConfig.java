@@ -1,5 +1,6 @@
 package com.healthmanagement.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
@@ -75,6 +76,9 @@ public class WebSecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 .authorizeHttpRequests(authorize -> authorize
+                        // 非同步回應 (如 AI 對話的 CompletableFuture) 的第二次 dispatch：原請求已通過授權，
+                        // JWT 過濾器不會在此 dispatch 重新設定身分，不可再次要求登入
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers("/v3/api-docs/**",
                                 "/v3/api-docs",
                                 "/v3/api-docs.yaml",
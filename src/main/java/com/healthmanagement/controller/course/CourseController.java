@@ -7,6 +7,7 @@ import com.healthmanagement.service.course.EnrollmentService;
 import com.healthmanagement.service.member.UserService;
 
 import com.healthmanagement.dto.course.CourseInfoDTO;
+import com.healthmanagement.dto.course.CourseCursorPageDTO;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -106,6 +107,41 @@ public class CourseController {
 	}
 
 
+	// 以游標 (keyset) 分頁查詢課程列表，包含使用者的報名/預約狀態和人數
+	// 滿額狀態在資料庫端篩選，每頁固定回傳 size 筆，下一頁以回傳的 nextCursor 查詢
+	@Operation(summary = "以游標分頁查詢課程列表 (支援體驗課、星期幾、滿額狀態篩選)")
+	@GetMapping("/scroll")
+	public ResponseEntity<CourseCursorPageDTO> getCoursesWithStatusByCursor(@AuthenticationPrincipal UserDetails userDetails,
+			@Parameter(description = "上一頁回傳的 nextCursor，第一頁不傳") @RequestParam(required = false) String cursor,
+			@Parameter(description = "每頁數量") @RequestParam(required = false, defaultValue = "10") Integer size,
+			@Parameter(description = "是否為體驗課 (true/false), null 表示不過濾") @RequestParam(required = false) Boolean offersTrialOption,
+			@Parameter(description = "星期幾 (0-6), null 表示不過濾") @RequestParam(required = false) Integer dayOfWeek,
+			@Parameter(description = "滿額狀態 ('full'/'notFull'), null 表示不過濾") @RequestParam(required = false) String fullnessStatus
+	) {
+		logger.info("收到以游標獲取課程列表請求 - 游標: {}, 每頁: {}, 體驗課過濾: {}, 星期幾過濾: {}, 滿額狀態過濾: {}",
+				cursor, size, offersTrialOption, dayOfWeek, fullnessStatus);
+
+		Integer userId = null;
+		if (userDetails != null) {
+			Optional<com.healthmanagement.model.member.User> userOptional = userService.findByEmail(userDetails.getUsername());
+			if (userOptional.isPresent()) {
+				userId = userOptional.get().getId();
+			} else {
+				logger.warn("已認證使用者 (Principal: {}) 找不到對應 User 實體，無法查詢個人狀態。", userDetails.getUsername());
+			}
+		}
+
+		try {
+			CourseCursorPageDTO coursePage = enrollmentService.getCoursesWithUserStatusByCursor(userId, cursor, size,
+					offersTrialOption, dayOfWeek, fullnessStatus);
+			logger.info("返回 {} 個課程，是否有下一頁: {}。", coursePage.getContent().size(), coursePage.isHasNext());
+			return ResponseEntity.ok(coursePage);
+		} catch (IllegalArgumentException e) {
+			logger.warn("游標查詢課程列表參數錯誤：{}", e.getMessage());
+			return ResponseEntity.badRequest().build();
+		}
+	}
+
 	// == 處理依課程ID查詢，並包含當前使用者狀態 ==
 	@Operation(summary = "依照課程ID查詢 (包含當前使用者狀態)") // 更新 Swagger 摘要
 	@GetMapping("/{id}") // 路徑保持不變
@@ -51,6 +51,20 @@ public class BodyMetricController {
         return ResponseEntity.ok(bodyMetricService.findByUserId(userId));
     }
     
+    @Operation(summary = "查詢用戶的身體數據趨勢", description = "回傳欄式陣列的時間序列，依 day / week / month 計算平均、最小與最大值，日期範圍可省略")
+    @GetMapping("/user/{userId}/series")
+    public ResponseEntity<?> getBodyMetricSeries(
+            @Parameter(description = "用戶 ID") @PathVariable Integer userId,
+            @Parameter(description = "開始日期 (YYYY-MM-DD)") @RequestParam(value = "startDate", required = false) String startDate,
+            @Parameter(description = "結束日期 (YYYY-MM-DD)") @RequestParam(value = "endDate", required = false) String endDate,
+            @Parameter(description = "時間解析度 (day / week / month)") @RequestParam(value = "resolution", defaultValue = "day") String resolution) {
+        try {
+            return ResponseEntity.ok(bodyMetricService.getSeries(userId, startDate, endDate, resolution));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @Operation(summary = "檢查用戶是否存在身體數據", description = "根據用戶 ID 檢查是否存在身體數據記錄")
     @GetMapping("/user/{userId}/exists")
     public ResponseEntity<Boolean> checkBodyMetricsExistsByUserId(@Parameter(description = "用戶 ID") @PathVariable Integer userId) {
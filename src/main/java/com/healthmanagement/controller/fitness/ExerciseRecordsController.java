@@ -1,14 +1,21 @@
 package com.healthmanagement.controller.fitness;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.healthmanagement.dto.fitness.ExerciseRecordDTO;
 import com.healthmanagement.dto.fitness.OverviewDataDTO;
 import com.healthmanagement.service.fitness.ExerciseService;
@@ -27,12 +34,47 @@ public class ExerciseRecordsController {
 	@Autowired
 	private ExerciseService exerciseService;
 
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${app.fitness.bulk-ingest-max-records:10000}")
+	private int bulkIngestMaxRecords;
+
 	@Operation(summary = "新增運動紀錄", description = "創建一條新的運動紀錄")
 	@PostMapping
 	public ResponseEntity<ExerciseRecordDTO> saveExerciseRecord(@RequestBody ExerciseRecordDTO exerciseRecordDTO) {
 		return ResponseEntity.ok(exerciseService.saveExerciseRecord(exerciseRecordDTO));
 	}
 
+	@Operation(summary = "批次匯入運動紀錄", description = "穿戴裝置同步用，一次匯入多筆運動紀錄 (JSON 陣列)；未通過驗證的紀錄會列在 rejected 中")
+	@PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+	public ResponseEntity<?> saveExerciseRecords(@RequestBody List<ExerciseRecordDTO> exerciseRecordDTOs) {
+		try {
+			return ResponseEntity.ok(exerciseService.saveExerciseRecords(exerciseRecordDTOs));
+		} catch (IllegalArgumentException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+
+	@Operation(summary = "批次匯入運動紀錄 (NDJSON)", description = "每行一筆運動紀錄 JSON，其餘同 JSON 陣列版本")
+	@PostMapping(value = "/bulk", consumes = "application/x-ndjson")
+	public ResponseEntity<?> saveExerciseRecordsNdjson(InputStream body) {
+		List<ExerciseRecordDTO> exerciseRecordDTOs = new ArrayList<>();
+		// 逐行讀取，超過筆數上限即停止，不把過大的請求內容整個載入記憶體
+		try (MappingIterator<ExerciseRecordDTO> iterator = objectMapper.readerFor(ExerciseRecordDTO.class)
+				.readValues(body)) {
+			while (iterator.hasNextValue()) {
+				if (exerciseRecordDTOs.size() >= bulkIngestMaxRecords) {
+					return ResponseEntity.badRequest().body("單次匯入最多 " + bulkIngestMaxRecords + " 筆運動紀錄。");
+				}
+				exerciseRecordDTOs.add(iterator.nextValue());
+			}
+		} catch (IOException e) {
+			return ResponseEntity.badRequest().body("NDJSON 格式錯誤: " + e.getMessage());
+		}
+		return saveExerciseRecords(exerciseRecordDTOs);
+	}
+
 	@Operation(summary = "刪除運動紀錄", description = "根據紀錄 ID 刪除一條運動紀錄")
 	@DeleteMapping("/{recordId}")
 	public ResponseEntity<Void> deleteExerciseRecord(
@@ -4,6 +4,7 @@ import com.healthmanagement.util.ApiResponse;
 import com.healthmanagement.dto.shop.OrderDTO;
 import com.healthmanagement.dto.shop.OrderRequest;
 import com.healthmanagement.dto.shop.OrderStatisticsDTO;
+import com.healthmanagement.dto.shop.RevenuePointDTO;
 import com.healthmanagement.service.shop.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -11,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -130,4 +132,18 @@ public class OrderController {
         OrderStatisticsDTO statistics = orderService.getOrderStatistics();
         return ResponseEntity.ok(ApiResponse.success(statistics));
     }
+
+    // 已完成訂單的每日或每月營收
+    @GetMapping("/statistics/revenue")
+    public ResponseEntity<?> getRevenueSeries(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            List<RevenuePointDTO> series = orderService.getRevenueSeries(granularity, startDate, endDate);
+            return ResponseEntity.ok(ApiResponse.success(series));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
 }
\ No newline at end of file
@@ -12,6 +12,9 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +27,8 @@ import java.util.List;
 @Tag(name = "商品管理", description = "商品管理相關API")
 public class ProductController {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
     @Autowired
     private ProductService productService;
 
@@ -38,10 +43,26 @@ public class ProductController {
     public ResponseEntity<?> getAllProducts(
             @RequestParam(required = false) Integer page,
             @RequestParam(required = false) Integer size) {
+        // 既有客戶端可能已帶 page、size，此端點維持回傳完整列表；分頁請使用 /api/products/paged
         List<ProductDTO> products = productService.getAllProducts();
         return ResponseEntity.ok(ApiResponse.success(products));
     }
 
+    @GetMapping("/paged")
+    @Operation(
+        summary = "分頁獲取商品",
+        description = "依商品ID排序分頁獲取商品，page 從 0 開始"
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "成功獲取商品分頁")
+    })
+    public ResponseEntity<?> getProductsPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<ProductDTO> products = productService.getAllProducts(PageRequest.of(page, size));
+        return ResponseEntity.ok(ApiResponse.success(products));
+    }
+
     @GetMapping("/{id}")
     @Operation(
         summary = "獲取商品詳情",
@@ -103,14 +124,17 @@ public class ProductController {
     @GetMapping("/search")
     @Operation(
         summary = "搜索商品",
-        description = "根據關鍵字搜索商品（搜索範圍包括商品名稱和描述）"
+        description = "根據關鍵字搜索商品（搜索範圍包括商品名稱、描述和分類），可指定 page、size 分頁"
     )
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "成功獲取搜索結果")
     })
-    public ResponseEntity<?> searchProducts(@RequestParam String keyword) {
-        List<ProductDTO> products = productService.searchProducts(keyword);
-        return ResponseEntity.ok(ApiResponse.success(products));
+    public ResponseEntity<?> searchProducts(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        Pageable pageable = toPageable(page, size);
+        return ok(productService.searchProducts(keyword, pageable), pageable);
     }
 
     @GetMapping("/price-range")
@@ -124,26 +148,50 @@ public class ProductController {
     })
     public ResponseEntity<?> getProductsByPriceRange(
             @RequestParam BigDecimal minPrice,
-            @RequestParam BigDecimal maxPrice) {
-        List<ProductDTO> products = productService.getProductsByPriceRange(minPrice, maxPrice);
-        return ResponseEntity.ok(ApiResponse.success(products));
+            @RequestParam BigDecimal maxPrice,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        Pageable pageable = toPageable(page, size);
+        return ok(productService.getProductsByPriceRange(minPrice, maxPrice, pageable), pageable);
     }
 
     @GetMapping("/category/{category}")
-    public ResponseEntity<?> getProductsByCategory(@PathVariable String category) {
-        List<ProductDTO> products = productService.getProductsByCategory(category);
-        return ResponseEntity.ok(ApiResponse.success(products));
+    public ResponseEntity<?> getProductsByCategory(
+            @PathVariable String category,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        Pageable pageable = toPageable(page, size);
+        return ok(productService.getProductsByCategory(category, pageable), pageable);
     }
 
     @GetMapping("/in-stock")
-    public ResponseEntity<?> getInStockProducts() {
-        List<ProductDTO> products = productService.getInStockProducts();
-        return ResponseEntity.ok(ApiResponse.success(products));
+    public ResponseEntity<?> getInStockProducts(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        Pageable pageable = toPageable(page, size);
+        return ok(productService.getInStockProducts(pageable), pageable);
     }
 
     @GetMapping("/latest")
-    public ResponseEntity<?> getLatestProducts() {
-        List<ProductDTO> products = productService.getLatestProducts();
+    public ResponseEntity<?> getLatestProducts(
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
+        Pageable pageable = toPageable(page, size);
+        return ok(productService.getLatestProducts(pageable), pageable);
+    }
+
+    // 未指定 page 與 size 時不分頁 (維持原本回傳完整列表)
+    private static Pageable toPageable(Integer page, Integer size) {
+        if (page == null && size == null) {
+            return Pageable.unpaged();
+        }
+        return PageRequest.of(page == null ? 0 : page, size == null ? DEFAULT_PAGE_SIZE : size);
+    }
+
+    private static ResponseEntity<?> ok(Page<ProductDTO> products, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return ResponseEntity.ok(ApiResponse.success(products.getContent()));
+        }
         return ResponseEntity.ok(ApiResponse.success(products));
     }
 }
\ No newline at end of file
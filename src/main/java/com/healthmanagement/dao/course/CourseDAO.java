@@ -1,6 +1,8 @@
 package com.healthmanagement.dao.course;
 
 import com.healthmanagement.model.course.Course;
+import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
@@ -36,4 +38,46 @@ public interface CourseDAO extends JpaRepository<Course, Integer> {
     @Override
     @EntityGraph(attributePaths = {"images", "coach"})
     Optional<Course> findById(Integer id);
-}
\ No newline at end of file
+
+    // 只取 (課程 ID, 最大容量)，供座位帳本初始化
+    @Query("SELECT c.id, c.maxCapacity FROM Course c")
+    List<Object[]> findAllCapacities();
+
+    // 只取 (課程 ID, 星期幾, 開始時間)，供上課時間索引初始化
+    @Query("SELECT c.id, c.dayOfWeek, c.startTime FROM Course c")
+    List<Object[]> findAllSchedules();
+
+    @Query("SELECT DISTINCT c FROM Course c LEFT JOIN FETCH c.images LEFT JOIN FETCH c.coach WHERE c.id IN :ids")
+    List<Course> findAllWithImagesAndCoachByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * 課程列表 keyset 分頁：依 (星期幾, 開始時間, ID) 排序，取游標之後的課程，
+     * 同時以子查詢計算已報名/候補人數，並在 SQL 端套用滿額篩選。
+     * fullnessMode：0 不過濾、1 只取已滿、2 只取未滿 (maxCapacity <= 0 視為不限人數，永遠未滿)。
+     * 回傳 (課程 ID, 已報名人數, 候補人數)，筆數由 Pageable 限制。
+     */
+    @Query("SELECT c.id, "
+            + "(SELECT COUNT(r) FROM Enrollment r WHERE r.course = c AND r.status = :registeredStatus), "
+            + "(SELECT COUNT(w) FROM Enrollment w WHERE w.course = c AND w.status = :waitingStatus) "
+            + "FROM Course c "
+            + "WHERE (:offersTrialOption IS NULL OR c.offersTrialOption = :offersTrialOption) "
+            + "AND (:dayOfWeek IS NULL OR c.dayOfWeek = :dayOfWeek) "
+            + "AND (:fullnessMode = 0 "
+            + "  OR (:fullnessMode = 1 AND c.maxCapacity > 0 AND "
+            + "      (SELECT COUNT(f) FROM Enrollment f WHERE f.course = c AND f.status = :registeredStatus) >= c.maxCapacity) "
+            + "  OR (:fullnessMode = 2 AND (c.maxCapacity <= 0 OR "
+            + "      (SELECT COUNT(n) FROM Enrollment n WHERE n.course = c AND n.status = :registeredStatus) < c.maxCapacity))) "
+            + "AND (c.dayOfWeek > :afterDayOfWeek "
+            + "  OR (c.dayOfWeek = :afterDayOfWeek AND (c.startTime > :afterStartTime "
+            + "      OR (c.startTime = :afterStartTime AND c.id > :afterId)))) "
+            + "ORDER BY c.dayOfWeek, c.startTime, c.id")
+    List<Object[]> findCourseSeatCountsAfterCursor(@Param("offersTrialOption") Boolean offersTrialOption,
+                                                   @Param("dayOfWeek") Integer dayOfWeek,
+                                                   @Param("fullnessMode") int fullnessMode,
+                                                   @Param("registeredStatus") String registeredStatus,
+                                                   @Param("waitingStatus") String waitingStatus,
+                                                   @Param("afterDayOfWeek") Integer afterDayOfWeek,
+                                                   @Param("afterStartTime") LocalTime afterStartTime,
+                                                   @Param("afterId") Integer afterId,
+                                                   Pageable pageable);
+}
@@ -4,12 +4,16 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.healthmanagement.model.course.Course;
 import com.healthmanagement.model.course.Enrollment;
 import com.healthmanagement.model.member.User;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -58,4 +62,36 @@ public interface EnrollmentDAO extends JpaRepository<Enrollment, Integer> {
     Page<Enrollment> findByStatus(String status, Pageable pageable);
 
     List<Enrollment> findByUser_NameContainingIgnoreCase(String userName);
-}
\ No newline at end of file
+
+    // 載入指定狀態的 (課程 ID, 使用者 ID, 狀態)，供座位帳本啟動時初始化
+    @Query("SELECT e.course.id, e.user.id, e.status FROM Enrollment e WHERE e.status IN :statuses")
+    List<Object[]> findCourseUserStatusByStatusIn(@Param("statuses") Collection<String> statuses);
+
+    // 載入特定課程指定狀態的 (使用者 ID, 狀態)，供座位帳本補載單一課程
+    @Query("SELECT e.user.id, e.status FROM Enrollment e WHERE e.course.id = :courseId AND e.status IN :statuses")
+    List<Object[]> findUserStatusByCourseIdAndStatusIn(@Param("courseId") Integer courseId, @Param("statuses") Collection<String> statuses);
+
+    // 依報名時間取特定課程前 N 筆指定狀態的 (報名 ID, 使用者 ID)，N 由 Pageable 限定 (候補遞補用)
+    @Query("SELECT e.id, e.user.id FROM Enrollment e WHERE e.course.id = :courseId AND e.status = :status ORDER BY e.enrollmentTime ASC, e.id ASC")
+    List<Object[]> findIdAndUserIdByCourseIdAndStatusOrderByEnrollmentTime(@Param("courseId") Integer courseId, @Param("status") String status, Pageable pageable);
+
+    // 批次更新狀態：只更新目前仍為 expectedStatus 的記錄，回傳實際更新筆數
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Enrollment e SET e.status = :newStatus WHERE e.id IN :ids AND e.status = :expectedStatus")
+    int updateStatusByIdInAndStatus(@Param("ids") Collection<Integer> ids, @Param("expectedStatus") String expectedStatus, @Param("newStatus") String newStatus);
+
+    // 取得具有指定狀態報名記錄的課程排程 (課程 ID, 星期幾, 開始時間)，供夜間未到場批次每門課程只計算一次
+    @Query("SELECT DISTINCT c.id, c.dayOfWeek, c.startTime FROM Enrollment e JOIN e.course c WHERE e.status = :status")
+    List<Object[]> findDistinctCourseSchedulesByStatus(@Param("status") String status);
+
+    // Keyset 分批：取特定課程在 before 之前報名、狀態為 status 且 ID 大於 afterId 的 (報名 ID, 使用者 ID)
+    @Query("SELECT e.id, e.user.id FROM Enrollment e WHERE e.course.id = :courseId AND e.status = :status " +
+           "AND e.enrollmentTime < :before AND e.id > :afterId ORDER BY e.id ASC")
+    List<Object[]> findIdAndUserIdChunkForSweep(@Param("courseId") Integer courseId, @Param("status") String status,
+                                                @Param("before") LocalDateTime before, @Param("afterId") Integer afterId,
+                                                Pageable pageable);
+
+    // 只取報名記錄所屬的課程 ID (不載入實體)，供取得課程鎖使用
+    @Query("SELECT e.course.id FROM Enrollment e WHERE e.id = :id")
+    Optional<Integer> findCourseIdById(@Param("id") Integer id);
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.healthmanagement.dto.course.TrialOccupancyKey;
 import com.healthmanagement.model.course.TrialBooking;
 import com.healthmanagement.model.course.Course;
 import com.healthmanagement.model.member.User;
@@ -14,8 +15,12 @@ import com.healthmanagement.model.member.User;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface TrialBookingDAO extends JpaRepository<TrialBooking, Integer> {
@@ -93,4 +98,37 @@ public interface TrialBookingDAO extends JpaRepository<TrialBooking, Integer> {
                   Collection<String> bookingStatuses
             );
 
-}
\ No newline at end of file
+      // 批次計算多個 (課程, 日期) 的活躍體驗預約人數，依課程、日期、開始時間分組，一次查詢完成
+      @Query("SELECT c.id, tb.bookingDate, c.startTime, COUNT(tb.id) FROM TrialBooking tb JOIN tb.course c " +
+             "WHERE c.id IN :courseIds AND tb.bookingDate IN :bookingDates AND tb.bookingStatus NOT IN :excludedStatuses " +
+             "GROUP BY c.id, tb.bookingDate, c.startTime")
+      List<Object[]> countActiveTrialBookingsGroupedByCourseAndDate(
+            @Param("courseIds") Collection<Integer> courseIds,
+            @Param("bookingDates") Collection<LocalDate> bookingDates,
+            @Param("excludedStatuses") Collection<String> excludedStatuses
+      );
+
+      // 批次體驗佔用人數：傳入多個 (課程 ID, 日期, 開始時間) 鍵，回傳每個鍵的活躍預約人數 (沒有預約的鍵為 0)
+      default Map<TrialOccupancyKey, Integer> countTrialBookingsByKeys(Collection<TrialOccupancyKey> keys,
+                                                                      Collection<String> excludedStatuses) {
+            Map<TrialOccupancyKey, Integer> counts = new HashMap<>();
+            if (keys == null || keys.isEmpty()) {
+                  return counts;
+            }
+            Set<Integer> courseIds = new HashSet<>();
+            Set<LocalDate> bookingDates = new HashSet<>();
+            for (TrialOccupancyKey key : keys) {
+                  counts.put(key, 0);
+                  courseIds.add(key.getCourseId());
+                  bookingDates.add(key.getBookingDate());
+            }
+            // 課程與日期為笛卡兒積篩選，只保留實際請求的鍵
+            for (Object[] row : countActiveTrialBookingsGroupedByCourseAndDate(courseIds, bookingDates, excludedStatuses)) {
+                  TrialOccupancyKey key = new TrialOccupancyKey((Integer) row[0], (LocalDate) row[1], (LocalTime) row[2]);
+                  if (counts.containsKey(key)) {
+                        counts.put(key, ((Number) row[3]).intValue());
+                  }
+            }
+            return counts;
+      }
+}
@@ -1,5 +1,6 @@
 package com.healthmanagement.dao.fitness;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +21,14 @@ public interface BodyMetricDAO extends JpaRepository<BodyMetric, Integer> {
 	
 	Optional<BodyMetric> findTopByUserIdOrderByDateRecordedDesc(Integer userId);
 
+	// 最新一筆 (同日多筆時取 ID 最大者)，供卡路里計算取得目前體重
+	Optional<BodyMetric> findTopByUserIdOrderByDateRecordedDescIdDesc(Integer userId);
+
+	// 多位使用者各自最新記錄日的身體數據 (同日多筆時會一併回傳，由呼叫端取 ID 最大者)
+	@Query("SELECT bm FROM BodyMetric bm WHERE bm.userId IN :userIds AND bm.dateRecorded = "
+			+ "(SELECT MAX(latest.dateRecorded) FROM BodyMetric latest WHERE latest.userId = bm.userId)")
+	List<BodyMetric> findLatestByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
 	@Query("SELECT bm FROM BodyMetric bm JOIN bm.user u " + "WHERE (:userId IS NULL OR bm.userId = :userId) "
 			+ "AND (:userName IS NULL OR LOWER(u.name) LIKE LOWER(CONCAT('%', :userName, '%'))) "
 			+ "AND (:startDate IS NULL OR bm.dateRecorded >= :startDate) "
@@ -35,6 +44,11 @@ public interface BodyMetricDAO extends JpaRepository<BodyMetric, Integer> {
 	Page<BodyMetric> findByMultipleCriteriaPage(@Param("userId") Integer userId, @Param("userName") String userName,
 			@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate, Pageable pageable);
 	
+	// 時間序列用：只取需要的欄位 (記錄日, 體重, 體脂, BMI, 肌肉量)，依日期排序
+	@Query("SELECT bm.dateRecorded, bm.weight, bm.bodyFat, bm.bmi, bm.muscleMass FROM BodyMetric bm "
+			+ "WHERE bm.userId = :userId ORDER BY bm.dateRecorded, bm.id")
+	List<Object[]> findSeriesColumnsByUserId(@Param("userId") Integer userId);
+
 	long countByUser_Id(Integer userId);
 	
 	boolean existsByUserId(Integer userId);
@@ -0,0 +1,8 @@
+package com.healthmanagement.dao.fitness;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.healthmanagement.model.fitness.DashboardStatSnapshot;
+
+public interface DashboardStatSnapshotDAO extends JpaRepository<DashboardStatSnapshot, Integer> {
+}
@@ -0,0 +1,12 @@
+package com.healthmanagement.dao.fitness;
+
+import java.util.List;
+
+import com.healthmanagement.model.fitness.ExerciseRecord;
+
+// 運動紀錄批次寫入 (JDBC batch，不經過 JPA IDENTITY 逐筆 insert)
+public interface ExerciseRecordBatchDAO {
+
+	// 依 batchSize 分批送出 insert，回傳寫入筆數
+	int batchInsert(List<ExerciseRecord> records, int batchSize);
+}
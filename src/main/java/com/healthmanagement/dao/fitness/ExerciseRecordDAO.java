@@ -1,10 +1,9 @@
 package com.healthmanagement.dao.fitness;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -19,25 +18,6 @@ public interface ExerciseRecordDAO
 	@Query("SELECT er, u.name FROM ExerciseRecord er JOIN er.user u WHERE er.userId = :userId")
 	List<Object[]> findExerciseRecordsWithUserNameByUserId(@Param("userId") Integer userId);
 
-	// 您之前定義的其他查詢方法，如果仍然需要，可以添加回來
-	List<ExerciseRecord> findByUserNameContaining(String userName);
-
-	List<ExerciseRecord> findByUserIdAndUserNameContaining(Integer userId, String userName);
-
-	Page<ExerciseRecord> findByExerciseType(String exerciseType, Pageable pageable);
-
-	Page<ExerciseRecord> findByExerciseDateBetween(LocalDate startDate, LocalDate endDate, Pageable pageable);
-
-	Page<ExerciseRecord> findByExerciseTypeAndExerciseDateBetween(String exerciseType, LocalDate startDate,
-			LocalDate endDate, Pageable pageable);
-
-	// 你可能還需要根據 userId 和 userName 進行分頁查詢的方法
-	Page<ExerciseRecord> findByUserId(Integer userId, Pageable pageable);
-
-	Page<ExerciseRecord> findByUserNameContaining(String userName, Pageable pageable);
-
-	Page<ExerciseRecord> findByUserIdAndUserNameContaining(Integer userId, String userName, Pageable pageable);
-
 	long countByUser_Id(Integer userId);
 
 	@Query("SELECT er FROM ExerciseRecord er " + "WHERE er.userId = :userId "
@@ -45,4 +25,20 @@ public interface ExerciseRecordDAO
 	List<ExerciseRecord> findByUserIdAndExerciseDateBetween(@Param("userId") Integer userId,
 			@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
 
-}
\ No newline at end of file
+	// 尚未建立每日彙總的使用者，依 (使用者, 日期) 彙總運動紀錄：userId, exerciseDate, 總分鐘, 總卡路里, 次數
+	@Query("SELECT er.userId, er.exerciseDate, SUM(er.exerciseDuration), SUM(er.caloriesBurned), COUNT(er) "
+			+ "FROM ExerciseRecord er WHERE NOT EXISTS "
+			+ "(SELECT 1 FROM WorkoutDailyRollup r WHERE r.userId = er.userId) "
+			+ "GROUP BY er.userId, er.exerciseDate ORDER BY er.userId, er.exerciseDate")
+	List<Object[]> aggregateDailyTotalsForUsersWithoutRollups();
+
+	// 儀表板統計：運動總次數、總分鐘、總卡路里
+	@Query("SELECT COUNT(er), COALESCE(SUM(er.exerciseDuration), 0), COALESCE(SUM(er.caloriesBurned), 0) "
+			+ "FROM ExerciseRecord er")
+	List<Object[]> sumDashboardWorkoutStats();
+
+	// 多位使用者各自的運動紀錄筆數：userId, 筆數
+	@Query("SELECT er.userId, COUNT(er) FROM ExerciseRecord er WHERE er.userId IN :userIds GROUP BY er.userId")
+	List<Object[]> countByUserIdIn(@Param("userIds") Collection<Integer> userIds);
+
+}
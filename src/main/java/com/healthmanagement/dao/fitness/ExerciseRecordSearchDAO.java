@@ -0,0 +1,15 @@
+package com.healthmanagement.dao.fitness;
+
+import java.util.List;
+
+import com.healthmanagement.dto.fitness.ExerciseSearchCriteria;
+import com.healthmanagement.model.fitness.ExerciseRecord;
+
+// 後台運動紀錄查詢：依條件組出單一 JPQL，只包含有值的條件
+public interface ExerciseRecordSearchDAO {
+
+	// 依日期、紀錄 ID 由新到舊排序，一併載入使用者；limit <= 0 表示不限筆數
+	List<ExerciseRecord> search(ExerciseSearchCriteria criteria, long offset, int limit);
+
+	long count(ExerciseSearchCriteria criteria);
+}
@@ -0,0 +1,14 @@
+package com.healthmanagement.dao.fitness;
+
+import java.util.Collection;
+import java.util.Map;
+
+// 健身目標進度批次更新 (JDBC batch，只送出進度有變動的目標)
+public interface FitnessGoalBatchDAO {
+
+	// 目標 ID → 新進度，依 batchSize 分批送出 update，回傳更新筆數
+	int batchUpdateProgress(Map<Integer, Double> progressByGoalId, int batchSize);
+
+	// 將目標狀態改為已完成，依 batchSize 分批送出 update，回傳更新筆數
+	int batchMarkCompleted(Collection<Integer> goalIds, int batchSize);
+}
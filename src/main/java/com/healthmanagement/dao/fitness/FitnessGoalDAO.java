@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface FitnessGoalDAO extends JpaRepository<FitnessGoal, Integer> {
@@ -75,5 +76,19 @@ public interface FitnessGoalDAO extends JpaRepository<FitnessGoal, Integer> {
     // 根據目標 ID 和狀態查詢
     Page<FitnessGoal> findByUserIdAndGoalTypeAndStatus(Integer userId, String goalType, String status, Pageable pageable);
 
+    // 進行中的目標 (未完成且未過期)，一併載入使用者
+    @Query("SELECT fg FROM FitnessGoal fg JOIN FETCH fg.user " +
+            "WHERE (fg.status IS NULL OR UPPER(fg.status) NOT IN :completedStatuses) " +
+            "AND (fg.endDate IS NULL OR fg.endDate >= :today)")
+    List<FitnessGoal> findActiveWithUser(@Param("completedStatuses") Collection<String> completedStatuses,
+                                         @Param("today") LocalDate today);
 
-}
\ No newline at end of file
+    @Query("SELECT fg FROM FitnessGoal fg JOIN FETCH fg.user WHERE fg.goalId IN :goalIds")
+    List<FitnessGoal> findAllWithUserByGoalIdIn(@Param("goalIds") Collection<Integer> goalIds);
+
+    boolean existsByUserId(Integer userId);
+
+    // 已過結束日期的目標 (不論狀態)，依目標 ID 排序
+    @Query("SELECT fg FROM FitnessGoal fg WHERE fg.user.id = :userId AND fg.endDate < :today ORDER BY fg.goalId")
+    List<FitnessGoal> findOverdueByUserId(@Param("userId") Integer userId, @Param("today") LocalDate today);
+}
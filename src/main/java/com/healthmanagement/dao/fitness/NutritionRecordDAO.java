@@ -42,5 +42,17 @@ public interface NutritionRecordDAO extends JpaRepository<NutritionRecord, Integ
     Page<NutritionRecord> findByUserIdAndUser_NameContainingAndRecordDateBetweenAndMealtime(Integer userId, String name, LocalDateTime startDate, LocalDateTime endDate, String mealtime, Pageable pageable);
 
     long countByUser_Id(Integer userId);
- 
+
+    // 營養摘要：依 (日期, 餐別) 分組彙總，日期範圍兩端皆可省略
+    // 回傳 recordDay, mealtime, 卡路里, 蛋白質, 碳水, 脂肪
+    @Query("SELECT CAST(nr.recordDate AS LocalDate), nr.mealtime, SUM(nr.calories), SUM(nr.protein), "
+            + "SUM(nr.carbs), SUM(nr.fats) FROM NutritionRecord nr "
+            + "WHERE nr.user.id = :userId "
+            + "AND (:startDate IS NULL OR nr.recordDate >= :startDate) "
+            + "AND (:endDate IS NULL OR nr.recordDate <= :endDate) "
+            + "GROUP BY CAST(nr.recordDate AS LocalDate), nr.mealtime "
+            + "ORDER BY CAST(nr.recordDate AS LocalDate)")
+    List<Object[]> sumByDayAndMealtime(@Param("userId") Integer userId,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
 }
\ No newline at end of file
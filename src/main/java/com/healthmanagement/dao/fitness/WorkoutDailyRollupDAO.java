@@ -0,0 +1,52 @@
+package com.healthmanagement.dao.fitness;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.healthmanagement.model.fitness.WorkoutDailyRollup;
+
+// 每日彙總的增量更新都以 bulk 語句直接在資料庫上加減，避免持久化內容中的實體與資料庫不同步
+public interface WorkoutDailyRollupDAO extends JpaRepository<WorkoutDailyRollup, Integer> {
+
+	List<WorkoutDailyRollup> findByUserIdAndRollupDateBetween(Integer userId, LocalDate startDate, LocalDate endDate);
+
+	// fromDate (含) 之後的運動次數
+	@Query("SELECT COALESCE(SUM(r.workoutCount), 0) FROM WorkoutDailyRollup r "
+			+ "WHERE r.userId = :userId AND r.rollupDate >= :fromDate")
+	long sumWorkoutCountFrom(@Param("userId") Integer userId, @Param("fromDate") LocalDate fromDate);
+
+	@Query("SELECT r.streakStartDate FROM WorkoutDailyRollup r WHERE r.userId = :userId AND r.rollupDate = :rollupDate")
+	Optional<LocalDate> findStreakStartDate(@Param("userId") Integer userId, @Param("rollupDate") LocalDate rollupDate);
+
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE WorkoutDailyRollup r SET r.totalMinutes = r.totalMinutes + :minutes, "
+			+ "r.totalCalories = r.totalCalories + :calories, r.workoutCount = r.workoutCount + :count "
+			+ "WHERE r.userId = :userId AND r.rollupDate = :rollupDate")
+	int addToDay(@Param("userId") Integer userId, @Param("rollupDate") LocalDate rollupDate,
+			@Param("minutes") int minutes, @Param("calories") double calories, @Param("count") int count);
+
+	@Modifying(flushAutomatically = true)
+	@Query("DELETE FROM WorkoutDailyRollup r "
+			+ "WHERE r.userId = :userId AND r.rollupDate = :rollupDate AND r.workoutCount <= 0")
+	int deleteIfEmpty(@Param("userId") Integer userId, @Param("rollupDate") LocalDate rollupDate);
+
+	// 新增的一天與後一段連續區間相連：原本從 oldStart 開始的區間改為從 newStart 開始
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE WorkoutDailyRollup r SET r.streakStartDate = :newStart "
+			+ "WHERE r.userId = :userId AND r.streakStartDate = :oldStart")
+	int joinStreak(@Param("userId") Integer userId, @Param("oldStart") LocalDate oldStart,
+			@Param("newStart") LocalDate newStart);
+
+	// 移除的一天把所在區間切開：其後仍屬同一區間 (起始日不晚於 removedDate) 的日子改從 removedDate + 1 開始
+	@Modifying(flushAutomatically = true)
+	@Query("UPDATE WorkoutDailyRollup r SET r.streakStartDate = :newStart "
+			+ "WHERE r.userId = :userId AND r.rollupDate > :removedDate AND r.streakStartDate <= :removedDate")
+	int splitStreak(@Param("userId") Integer userId, @Param("removedDate") LocalDate removedDate,
+			@Param("newStart") LocalDate newStart);
+}
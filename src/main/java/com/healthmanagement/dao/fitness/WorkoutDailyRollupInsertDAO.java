@@ -0,0 +1,11 @@
+package com.healthmanagement.dao.fitness;
+
+import java.time.LocalDate;
+
+// 每日彙總的新增 (JDBC)：唯一鍵衝突時回傳 false 而不使所在交易進入 rollback-only
+public interface WorkoutDailyRollupInsertDAO {
+
+	// 新增一天的彙總；同一使用者同一天的列已由其他交易建立時回傳 false
+	boolean insertDay(Integer userId, LocalDate rollupDate, int minutes, double calories, int count,
+			LocalDate streakStartDate);
+}
@@ -0,0 +1,40 @@
+package com.healthmanagement.dao.fitness.impl;
+
+import java.sql.Date;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.healthmanagement.dao.fitness.ExerciseRecordBatchDAO;
+import com.healthmanagement.model.fitness.ExerciseRecord;
+
+@Repository
+public class ExerciseRecordBatchDAOImpl implements ExerciseRecordBatchDAO {
+
+	private static final String INSERT_SQL = "INSERT INTO exercise_records "
+			+ "(user_id, exercise_type, exercise_duration, calories_burned, exercise_date) VALUES (?, ?, ?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public int batchInsert(List<ExerciseRecord> records, int batchSize) {
+		if (records.isEmpty()) {
+			return 0;
+		}
+		int[][] results = jdbcTemplate.batchUpdate(INSERT_SQL, records, batchSize, (ps, record) -> {
+			ps.setInt(1, record.getUserId());
+			ps.setString(2, record.getExerciseType());
+			ps.setInt(3, record.getExerciseDuration());
+			ps.setDouble(4, record.getCaloriesBurned());
+			ps.setDate(5, Date.valueOf(record.getExerciseDate()));
+		});
+		int inserted = 0;
+		for (int[] batch : results) {
+			inserted += batch.length;
+		}
+		return inserted;
+	}
+}
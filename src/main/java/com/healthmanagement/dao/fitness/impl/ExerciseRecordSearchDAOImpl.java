@@ -0,0 +1,87 @@
+package com.healthmanagement.dao.fitness.impl;
+
+import java.util.List;
+
+import org.springframework.stereotype.Repository;
+
+import com.healthmanagement.dao.fitness.ExerciseRecordSearchDAO;
+import com.healthmanagement.dto.fitness.ExerciseSearchCriteria;
+import com.healthmanagement.model.fitness.ExerciseRecord;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+@Repository
+public class ExerciseRecordSearchDAOImpl implements ExerciseRecordSearchDAO {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<ExerciseRecord> search(ExerciseSearchCriteria criteria, long offset, int limit) {
+		String jpql = "SELECT er FROM ExerciseRecord er JOIN FETCH er.user" + where(criteria)
+				+ " ORDER BY er.exerciseDate DESC, er.recordId DESC";
+		TypedQuery<ExerciseRecord> query = entityManager.createQuery(jpql, ExerciseRecord.class);
+		bind(query, criteria);
+		if (limit > 0) {
+			query.setFirstResult(Math.toIntExact(offset));
+			query.setMaxResults(limit);
+		}
+		return query.getResultList();
+	}
+
+	@Override
+	public long count(ExerciseSearchCriteria criteria) {
+		// 計數不需要使用者資料，不做 join
+		TypedQuery<Long> query = entityManager.createQuery(
+				"SELECT COUNT(er) FROM ExerciseRecord er" + where(criteria), Long.class);
+		bind(query, criteria);
+		return query.getSingleResult();
+	}
+
+	// 只放入有值的條件，讓資料庫可直接使用 (user_id, exercise_date) 或 (exercise_type, exercise_date) 索引
+	private static String where(ExerciseSearchCriteria criteria) {
+		StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+		if (criteria.userId() != null) {
+			where.append(" AND er.userId = :userId");
+		}
+		if (criteria.userName() != null) {
+			// 先在使用者表比對姓名，再以 user_id 條件查運動紀錄
+			where.append(" AND er.userId IN (SELECT u.id FROM User u WHERE u.name LIKE :userName ESCAPE '!')");
+		}
+		if (criteria.exerciseType() != null) {
+			where.append(" AND er.exerciseType = :exerciseType");
+		}
+		if (criteria.startDate() != null) {
+			where.append(" AND er.exerciseDate >= :startDate");
+		}
+		if (criteria.endDate() != null) {
+			where.append(" AND er.exerciseDate <= :endDate");
+		}
+		return where.toString();
+	}
+
+	private static void bind(TypedQuery<?> query, ExerciseSearchCriteria criteria) {
+		if (criteria.userId() != null) {
+			query.setParameter("userId", criteria.userId());
+		}
+		if (criteria.userName() != null) {
+			query.setParameter("userName", "%" + escapeLike(criteria.userName()) + "%");
+		}
+		if (criteria.exerciseType() != null) {
+			query.setParameter("exerciseType", criteria.exerciseType());
+		}
+		if (criteria.startDate() != null) {
+			query.setParameter("startDate", criteria.startDate());
+		}
+		if (criteria.endDate() != null) {
+			query.setParameter("endDate", criteria.endDate());
+		}
+	}
+
+	// 關鍵字中的 LIKE 萬用字元視為一般字元
+	private static String escapeLike(String keyword) {
+		return keyword.replace("!", "!!").replace("%", "!%").replace("_", "!_").replace("[", "![");
+	}
+}
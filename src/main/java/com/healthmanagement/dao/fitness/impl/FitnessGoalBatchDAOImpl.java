@@ -0,0 +1,54 @@
+package com.healthmanagement.dao.fitness.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.healthmanagement.dao.fitness.FitnessGoalBatchDAO;
+
+@Repository
+public class FitnessGoalBatchDAOImpl implements FitnessGoalBatchDAO {
+
+	private static final String UPDATE_PROGRESS_SQL = "UPDATE fitness_goals SET current_progress = ? WHERE goal_id = ?";
+
+	private static final String MARK_COMPLETED_SQL = "UPDATE fitness_goals SET status = '已完成' WHERE goal_id = ?";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public int batchUpdateProgress(Map<Integer, Double> progressByGoalId, int batchSize) {
+		if (progressByGoalId.isEmpty()) {
+			return 0;
+		}
+		List<Map.Entry<Integer, Double>> entries = new ArrayList<>(progressByGoalId.entrySet());
+		int[][] results = jdbcTemplate.batchUpdate(UPDATE_PROGRESS_SQL, entries, batchSize, (ps, entry) -> {
+			ps.setDouble(1, entry.getValue());
+			ps.setInt(2, entry.getKey());
+		});
+		return countUpdated(results);
+	}
+
+	@Override
+	public int batchMarkCompleted(Collection<Integer> goalIds, int batchSize) {
+		if (goalIds.isEmpty()) {
+			return 0;
+		}
+		int[][] results = jdbcTemplate.batchUpdate(MARK_COMPLETED_SQL, new ArrayList<>(goalIds), batchSize,
+				(ps, goalId) -> ps.setInt(1, goalId));
+		return countUpdated(results);
+	}
+
+	private static int countUpdated(int[][] results) {
+		int updated = 0;
+		for (int[] batch : results) {
+			updated += batch.length;
+		}
+		return updated;
+	}
+}
@@ -0,0 +1,35 @@
+package com.healthmanagement.dao.fitness.impl;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.healthmanagement.dao.fitness.WorkoutDailyRollupInsertDAO;
+
+@Repository
+public class WorkoutDailyRollupInsertDAOImpl implements WorkoutDailyRollupInsertDAO {
+
+	private static final String INSERT_SQL = "INSERT INTO workout_daily_rollups "
+			+ "(user_id, rollup_date, total_minutes, total_calories, workout_count, streak_start_date) "
+			+ "VALUES (?, ?, ?, ?, ?, ?)";
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public boolean insertDay(Integer userId, LocalDate rollupDate, int minutes, double calories, int count,
+			LocalDate streakStartDate) {
+		try {
+			jdbcTemplate.update(INSERT_SQL, userId, Date.valueOf(rollupDate), minutes, calories, count,
+					Date.valueOf(streakStartDate));
+			return true;
+		} catch (DuplicateKeyException e) {
+			// 同一天的第一筆被其他交易搶先建立
+			return false;
+		}
+	}
+}
@@ -2,8 +2,11 @@ package com.healthmanagement.dao.member;
 
 import com.healthmanagement.model.member.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,4 +20,14 @@ public interface UserDAO extends JpaRepository<User, Integer> {
 	List<User> findByName(String name);
 	
 	List<User> findByRole(String role);
+
+	// 儀表板統計：一般會員數、本週/本月/本年度登入人數 (以範圍條件比較 last_login，可使用索引)
+	@Query("SELECT SUM(CASE WHEN u.role = 'user' THEN 1 ELSE 0 END), "
+			+ "SUM(CASE WHEN u.lastLogin >= :weekStart THEN 1 ELSE 0 END), "
+			+ "SUM(CASE WHEN u.lastLogin >= :monthStart AND u.lastLogin < :monthEnd THEN 1 ELSE 0 END), "
+			+ "SUM(CASE WHEN u.lastLogin >= :yearStart AND u.lastLogin < :yearEnd THEN 1 ELSE 0 END) "
+			+ "FROM User u")
+	List<Object[]> countDashboardUserStats(@Param("weekStart") LocalDateTime weekStart,
+			@Param("monthStart") LocalDateTime monthStart, @Param("monthEnd") LocalDateTime monthEnd,
+			@Param("yearStart") LocalDateTime yearStart, @Param("yearEnd") LocalDateTime yearEnd);
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.healthmanagement.dao.shop;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface InventoryDAO {
+
+    // 以條件式 UPDATE 扣庫存 (庫存足夠才扣)，依 Map 的迭代順序批次送出；回傳庫存不足而未扣的商品 ID
+    List<Integer> reserveStock(Map<Integer, Integer> quantityByProductId);
+
+    // 歸還庫存 (取消訂單)
+    void releaseStock(Map<Integer, Integer> quantityByProductId);
+
+    // 目前的庫存與更新時間 (商品 ID → 庫存)；不存在的商品不會出現在結果中
+    Map<Integer, StockLevel> findStockLevels(Collection<Integer> productIds);
+
+    record StockLevel(int quantity, Timestamp updatedAt) {
+    }
+}
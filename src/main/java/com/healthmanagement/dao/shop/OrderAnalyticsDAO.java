@@ -0,0 +1,36 @@
+package com.healthmanagement.dao.shop;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface OrderAnalyticsDAO {
+
+    // 各狀態的訂單數、金額、商品件數
+    record StatusTotals(String status, long orderCount, BigDecimal totalAmount, long unitsSold) {
+    }
+
+    // 某一天某狀態的彙總
+    record DailyTotals(LocalDate date, long orderCount, BigDecimal totalAmount, long unitsSold) {
+    }
+
+    // 計算增減量用的訂單現況
+    record OrderSnapshot(String status, BigDecimal totalAmount, Timestamp createdAt, long units) {
+    }
+
+    // 依 order / order_item 重建每日彙總，回傳寫入筆數
+    int rebuildDailySummary();
+
+    // 在 (date, status) 的彙總上加減
+    void applyDelta(LocalDate date, String status, long orders, BigDecimal amount, long units);
+
+    Optional<OrderSnapshot> findSnapshot(Integer orderId);
+
+    // 依每日彙總加總各狀態
+    List<StatusTotals> sumByStatus();
+
+    // 某狀態在 [startDate, endDate] 的每日彙總 (null 表示不限)，依日期排序
+    List<DailyTotals> findDailyTotals(String status, LocalDate startDate, LocalDate endDate);
+}
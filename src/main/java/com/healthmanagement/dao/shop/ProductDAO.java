@@ -2,27 +2,8 @@ package com.healthmanagement.dao.shop;
 
 import com.healthmanagement.model.shop.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
-import java.util.List;
-
 @Repository
 public interface ProductDAO extends JpaRepository<Product, Integer> {
-    List<Product> findByNameContainingIgnoreCase(String keyword);
-    
-    List<Product> findByCategoryContainingIgnoreCase(String category);
-    
-    List<Product> findByPriceBetween(BigDecimal minPrice, BigDecimal maxPrice);
-    
-    @Query("SELECT p FROM Product p WHERE p.price <= :maxPrice")
-    List<Product> findByPriceLessThanEqual(@Param("maxPrice") BigDecimal maxPrice);
-    
-    @Query("SELECT p FROM Product p WHERE p.stockQuantity > 0")
-    List<Product> findInStockProducts();
-    
-    @Query("SELECT p FROM Product p ORDER BY p.createdAt DESC")
-    List<Product> findLatestProducts();
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.healthmanagement.dao.shop.impl;
+
+import com.healthmanagement.dao.shop.InventoryDAO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class InventoryDAOImpl implements InventoryDAO {
+
+    private static final String RESERVE_SQL = "UPDATE product SET stock_quantity = stock_quantity - ?, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = ? AND stock_quantity >= ?";
+
+    private static final String RELEASE_SQL = "UPDATE product SET stock_quantity = stock_quantity + ?, " +
+            "updated_at = CURRENT_TIMESTAMP WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Override
+    public List<Integer> reserveStock(Map<Integer, Integer> quantityByProductId) {
+        List<Integer> productIds = new ArrayList<>(quantityByProductId.keySet());
+        List<Object[]> batchArgs = new ArrayList<>(productIds.size());
+        for (Integer productId : productIds) {
+            int quantity = quantityByProductId.get(productId);
+            batchArgs.add(new Object[] {quantity, productId, quantity});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(RESERVE_SQL, batchArgs);
+
+        List<Integer> insufficient = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                insufficient.add(productIds.get(i));
+            }
+        }
+        return insufficient;
+    }
+
+    @Override
+    public void releaseStock(Map<Integer, Integer> quantityByProductId) {
+        List<Object[]> batchArgs = new ArrayList<>(quantityByProductId.size());
+        quantityByProductId.forEach((productId, quantity) -> batchArgs.add(new Object[] {quantity, productId}));
+        jdbcTemplate.batchUpdate(RELEASE_SQL, batchArgs);
+    }
+
+    @Override
+    public Map<Integer, StockLevel> findStockLevels(Collection<Integer> productIds) {
+        Map<Integer, StockLevel> levels = new HashMap<>();
+        if (productIds.isEmpty()) {
+            return levels;
+        }
+        String sql = "SELECT id, stock_quantity, updated_at FROM product WHERE id IN (:productIds)";
+        namedParameterJdbcTemplate.query(sql, Map.of("productIds", productIds), rs -> {
+            levels.put(rs.getInt("id"), new StockLevel(rs.getInt("stock_quantity"), rs.getTimestamp("updated_at")));
+        });
+        return levels;
+    }
+}
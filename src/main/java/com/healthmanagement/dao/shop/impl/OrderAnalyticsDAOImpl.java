@@ -0,0 +1,98 @@
+package com.healthmanagement.dao.shop.impl;
+
+import com.healthmanagement.dao.shop.OrderAnalyticsDAO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class OrderAnalyticsDAOImpl implements OrderAnalyticsDAO {
+
+    // 每筆訂單的商品件數
+    private static final String ORDER_UNITS = "(SELECT order_id, SUM(quantity) AS units FROM order_item GROUP BY order_id)";
+
+    private static final String REBUILD_SQL = "INSERT INTO order_daily_summary " +
+            "(summary_date, status, order_count, total_amount, units_sold) " +
+            "SELECT CAST(o.created_at AS DATE), COALESCE(o.status, ''), COUNT(*), " +
+            "COALESCE(SUM(o.total_amount), 0), COALESCE(SUM(i.units), 0) " +
+            "FROM [order] o LEFT JOIN " + ORDER_UNITS + " i ON i.order_id = o.id " +
+            "WHERE o.created_at IS NOT NULL " +
+            "GROUP BY CAST(o.created_at AS DATE), COALESCE(o.status, '')";
+
+    private static final String ADD_SQL = "UPDATE order_daily_summary SET order_count = order_count + ?, " +
+            "total_amount = total_amount + ?, units_sold = units_sold + ? WHERE summary_date = ? AND status = ?";
+
+    private static final String INSERT_SQL = "INSERT INTO order_daily_summary " +
+            "(summary_date, status, order_count, total_amount, units_sold) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int rebuildDailySummary() {
+        jdbcTemplate.update("DELETE FROM order_daily_summary");
+        return jdbcTemplate.update(REBUILD_SQL);
+    }
+
+    @Override
+    public void applyDelta(LocalDate date, String status, long orders, BigDecimal amount, long units) {
+        String key = status == null ? "" : status;
+        Date day = Date.valueOf(date);
+        if (jdbcTemplate.update(ADD_SQL, orders, amount, units, day, key) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, day, key, orders, amount, units);
+        } catch (DuplicateKeyException e) {
+            // 同一天同狀態的第一筆被其他交易搶先建立
+            jdbcTemplate.update(ADD_SQL, orders, amount, units, day, key);
+        }
+    }
+
+    @Override
+    public Optional<OrderSnapshot> findSnapshot(Integer orderId) {
+        String sql = "SELECT o.status, o.total_amount, o.created_at, " +
+                "(SELECT COALESCE(SUM(oi.quantity), 0) FROM order_item oi WHERE oi.order_id = o.id) AS units " +
+                "FROM [order] o WHERE o.id = ?";
+        List<OrderSnapshot> snapshots = jdbcTemplate.query(sql, (rs, rowNum) -> new OrderSnapshot(
+                rs.getString("status"), rs.getBigDecimal("total_amount"), rs.getTimestamp("created_at"),
+                rs.getLong("units")), orderId);
+        return snapshots.stream().findFirst();
+    }
+
+    @Override
+    public List<StatusTotals> sumByStatus() {
+        String sql = "SELECT status, SUM(order_count) AS order_count, SUM(total_amount) AS total_amount, " +
+                "SUM(units_sold) AS units_sold FROM order_daily_summary GROUP BY status";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new StatusTotals(rs.getString("status"),
+                rs.getLong("order_count"), rs.getBigDecimal("total_amount"), rs.getLong("units_sold")));
+    }
+
+    @Override
+    public List<DailyTotals> findDailyTotals(String status, LocalDate startDate, LocalDate endDate) {
+        StringBuilder sql = new StringBuilder("SELECT summary_date, order_count, total_amount, units_sold " +
+                "FROM order_daily_summary WHERE status = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(status);
+        if (startDate != null) {
+            sql.append(" AND summary_date >= ?");
+            args.add(Date.valueOf(startDate));
+        }
+        if (endDate != null) {
+            sql.append(" AND summary_date <= ?");
+            args.add(Date.valueOf(endDate));
+        }
+        sql.append(" ORDER BY summary_date");
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new DailyTotals(
+                rs.getDate("summary_date").toLocalDate(), rs.getLong("order_count"),
+                rs.getBigDecimal("total_amount"), rs.getLong("units_sold")), args.toArray());
+    }
+}
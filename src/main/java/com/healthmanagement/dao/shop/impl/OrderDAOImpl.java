@@ -1,25 +1,31 @@
 package com.healthmanagement.dao.shop.impl;
 
 import com.healthmanagement.dao.shop.CustomOrderDAO;
+import com.healthmanagement.dao.shop.OrderAnalyticsDAO;
 import com.healthmanagement.model.member.User;
 import com.healthmanagement.model.shop.Order;
 import com.healthmanagement.model.shop.OrderItem;
 import com.healthmanagement.model.shop.Product;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
@@ -31,53 +37,124 @@ public class OrderDAOImpl implements CustomOrderDAO {
     @Autowired
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
+    @Autowired
+    private OrderAnalyticsDAO orderAnalyticsDAO;
+
+    // SQL Server 單一語句最多 2100 個參數
+    private static final int ORDER_ID_CHUNK_SIZE = 1000;
+
+    private static final String ORDER_ITEMS_SQL = "SELECT oi.id AS item_id, oi.order_id, oi.product_id, " +
+            "oi.quantity, oi.subtotal, p.name, p.description, p.price, p.stock_quantity, p.category, " +
+            "p.image_url, p.created_at, p.updated_at " +
+            "FROM order_item oi LEFT JOIN product p ON oi.product_id = p.id " +
+            "WHERE oi.order_id IN (:orderIds) ORDER BY oi.order_id, oi.id";
+
     private final OrderRowMapper orderRowMapper = new OrderRowMapper();
 
+    // 訂單與每日彙總 (order_daily_summary) 在同一交易中寫入
     @Override
+    @Transactional
     public Order save(Order order) {
         if (order.getId() == null) {
-            String sql = "INSERT INTO [order] (user_id, total_amount, status, created_at) " +
-                        "VALUES (:userId, :totalAmount, :status, CURRENT_TIMESTAMP)";
-            
-            MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("userId", order.getUser().getId())
-                .addValue("totalAmount", order.getTotalAmount())
-                .addValue("status", order.getStatus());
-
-            KeyHolder keyHolder = new GeneratedKeyHolder();
-            namedParameterJdbcTemplate.update(sql, params, keyHolder);
-            order.setId(keyHolder.getKey().intValue());
-
-            // 保存訂單項目
-            if (order.getOrderItems() != null && !order.getOrderItems().isEmpty()) {
-                for (OrderItem item : order.getOrderItems()) {
-                    String itemSql = "INSERT INTO order_item (order_id, product_id, quantity, subtotal) " +
-                                   "VALUES (:orderId, :productId, :quantity, :subtotal)";
-                    
-                    MapSqlParameterSource itemParams = new MapSqlParameterSource()
-                        .addValue("orderId", order.getId())
-                        .addValue("productId", item.getProduct().getId())
-                        .addValue("quantity", item.getQuantity())
-                        .addValue("subtotal", item.getSubtotal());
-                    
-                    namedParameterJdbcTemplate.update(itemSql, itemParams);
-                }
-            }
-        } else {
-            String sql = "UPDATE [order] SET user_id = :userId, total_amount = :totalAmount, " +
-                        "status = :status WHERE id = :id";
-            
-            MapSqlParameterSource params = new MapSqlParameterSource()
-                .addValue("id", order.getId())
-                .addValue("userId", order.getUser().getId())
-                .addValue("totalAmount", order.getTotalAmount())
-                .addValue("status", order.getStatus());
+            return insert(order);
+        }
 
-            namedParameterJdbcTemplate.update(sql, params);
+        Optional<OrderAnalyticsDAO.OrderSnapshot> before = orderAnalyticsDAO.findSnapshot(order.getId());
+
+        String sql = "UPDATE [order] SET user_id = :userId, total_amount = :totalAmount, " +
+                    "status = :status WHERE id = :id";
+        
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("id", order.getId())
+            .addValue("userId", order.getUser().getId())
+            .addValue("totalAmount", order.getTotalAmount())
+            .addValue("status", order.getStatus());
+
+        namedParameterJdbcTemplate.update(sql, params);
+
+        // 狀態或金額有變動時，從原狀態的彙總移到新狀態
+        Optional<OrderAnalyticsDAO.OrderSnapshot> after = orderAnalyticsDAO.findSnapshot(order.getId());
+        if (before.isPresent() && after.isPresent() && !before.get().equals(after.get())) {
+            addToSummary(before.get(), -1);
+            addToSummary(after.get(), 1);
         }
         return findById(order.getId()).orElse(null);
     }
 
+    /**
+     * 新增訂單：訂單一句 insert，訂單項目以一次 JDBC batch 寫入，再以一次查詢取回項目 ID
+     * (SQL Server 驅動程式無法可靠地回傳 batch insert 的自動編號)。
+     * 回傳的訂單直接由記憶體中的物件組成，不再整筆重新讀取。
+     */
+    private Order insert(Order order) {
+        Timestamp createdAt = order.getCreatedAt() != null ? order.getCreatedAt()
+                : new Timestamp(System.currentTimeMillis());
+        String sql = "INSERT INTO [order] (user_id, total_amount, status, created_at) " +
+                    "VALUES (:userId, :totalAmount, :status, :createdAt)";
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+            .addValue("userId", order.getUser().getId())
+            .addValue("totalAmount", order.getTotalAmount())
+            .addValue("status", order.getStatus())
+            .addValue("createdAt", createdAt);
+
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        namedParameterJdbcTemplate.update(sql, params, keyHolder);
+        order.setId(keyHolder.getKey().intValue());
+        order.setCreatedAt(createdAt);
+
+        // 保存訂單項目
+        List<OrderItem> items = order.getOrderItems() != null ? order.getOrderItems() : new ArrayList<>();
+        order.setOrderItems(items);
+        long units = 0;
+        if (!items.isEmpty()) {
+            String itemSql = "INSERT INTO order_item (order_id, product_id, quantity, subtotal) " +
+                           "VALUES (:orderId, :productId, :quantity, :subtotal)";
+            SqlParameterSource[] batchArgs = new SqlParameterSource[items.size()];
+            for (int i = 0; i < items.size(); i++) {
+                OrderItem item = items.get(i);
+                batchArgs[i] = new MapSqlParameterSource()
+                    .addValue("orderId", order.getId())
+                    .addValue("productId", item.getProduct().getId())
+                    .addValue("quantity", item.getQuantity())
+                    .addValue("subtotal", item.getSubtotal());
+                units += item.getQuantity();
+            }
+            namedParameterJdbcTemplate.batchUpdate(itemSql, batchArgs);
+
+            // 同一交易中依序寫入，自動編號的順序與項目順序相同
+            List<Integer> itemIds = jdbcTemplate.queryForList(
+                    "SELECT id FROM order_item WHERE order_id = ? ORDER BY id", Integer.class, order.getId());
+            for (int i = 0; i < items.size() && i < itemIds.size(); i++) {
+                items.get(i).setId(itemIds.get(i));
+            }
+        }
+
+        fillUserContact(order.getUser());
+        addToSummary(new OrderAnalyticsDAO.OrderSnapshot(order.getStatus(), order.getTotalAmount(), createdAt, units), 1);
+        return order;
+    }
+
+    // 呼叫端通常只設定了使用者 ID，補上訂單顯示用的姓名與郵箱
+    private void fillUserContact(User user) {
+        if (user.getName() != null || user.getEmail() != null) {
+            return;
+        }
+        jdbcTemplate.query("SELECT name, email FROM [users] WHERE user_id = ?", rs -> {
+            user.setName(rs.getString("name"));
+            user.setEmail(rs.getString("email"));
+        }, user.getId());
+    }
+
+    private void addToSummary(OrderAnalyticsDAO.OrderSnapshot snapshot, int sign) {
+        if (snapshot.createdAt() == null) {
+            return;
+        }
+        BigDecimal amount = snapshot.totalAmount() == null ? BigDecimal.ZERO : snapshot.totalAmount();
+        orderAnalyticsDAO.applyDelta(snapshot.createdAt().toLocalDateTime().toLocalDate(), snapshot.status(),
+                sign, sign < 0 ? amount.negate() : amount, sign * snapshot.units());
+    }
+
     @Override
     public Optional<Order> findById(Integer id) {
         String sql = "SELECT o.*, u.name as user_name, u.email as user_email " +
@@ -89,11 +166,7 @@ public class OrderDAOImpl implements CustomOrderDAO {
             order = jdbcTemplate.queryForObject(sql, orderRowMapper, id);
             if (order != null) {
                 // 加載訂單項目
-                String itemsSql = "SELECT oi.*, p.* FROM order_item oi " +
-                                "LEFT JOIN product p ON oi.product_id = p.id " +
-                                "WHERE oi.order_id = ?";
-                List<OrderItem> items = jdbcTemplate.query(itemsSql, new OrderItemRowMapper(), id);
-                order.setOrderItems(items);
+                loadOrderItems(List.of(order));
             }
             return Optional.ofNullable(order);
         } catch (Exception e) {
@@ -111,14 +184,8 @@ public class OrderDAOImpl implements CustomOrderDAO {
                    "WHERE o.user_id = ? ORDER BY o.created_at DESC";
         List<Order> orders = jdbcTemplate.query(sql, orderRowMapper, userId);
         
-        // 為每個訂單加載訂單項目
-        for (Order order : orders) {
-            String itemsSql = "SELECT oi.*, p.* FROM order_item oi " +
-                            "LEFT JOIN product p ON oi.product_id = p.id " +
-                            "WHERE oi.order_id = ?";
-            List<OrderItem> items = jdbcTemplate.query(itemsSql, new OrderItemRowMapper(), order.getId());
-            order.setOrderItems(items);
-        }
+        // 一次加載所有訂單的訂單項目
+        loadOrderItems(orders);
         return orders;
     }
     
@@ -130,14 +197,8 @@ public class OrderDAOImpl implements CustomOrderDAO {
                    "WHERE o.status = ? ORDER BY o.created_at DESC";
         List<Order> orders = jdbcTemplate.query(sql, orderRowMapper, status);
         
-        // 为每个订单加载订单项目
-        for (Order order : orders) {
-            String itemsSql = "SELECT oi.*, p.* FROM order_item oi " +
-                            "LEFT JOIN product p ON oi.product_id = p.id " +
-                            "WHERE oi.order_id = ?";
-            List<OrderItem> items = jdbcTemplate.query(itemsSql, new OrderItemRowMapper(), order.getId());
-            order.setOrderItems(items);
-        }
+        // 一次加載所有訂單的訂單項目
+        loadOrderItems(orders);
         return orders;
     }
     
@@ -164,14 +225,8 @@ public class OrderDAOImpl implements CustomOrderDAO {
                    "WHERE o.created_at BETWEEN ? AND ? ORDER BY o.created_at DESC";
         List<Order> orders = jdbcTemplate.query(sql, orderRowMapper, startDate, endDate);
         
-        // 为每个订单加载订单项目
-        for (Order order : orders) {
-            String itemsSql = "SELECT oi.*, p.* FROM order_item oi " +
-                            "LEFT JOIN product p ON oi.product_id = p.id " +
-                            "WHERE oi.order_id = ?";
-            List<OrderItem> items = jdbcTemplate.query(itemsSql, new OrderItemRowMapper(), order.getId());
-            order.setOrderItems(items);
-        }
+        // 一次加載所有訂單的訂單項目
+        loadOrderItems(orders);
         return orders;
     }
     
@@ -184,14 +239,8 @@ public class OrderDAOImpl implements CustomOrderDAO {
         try {
             List<Order> orders = jdbcTemplate.query(sql, orderRowMapper);
             
-            // 为每个订单加载订单项目
-            for (Order order : orders) {
-                String itemsSql = "SELECT oi.*, p.* FROM order_item oi " +
-                                "LEFT JOIN product p ON oi.product_id = p.id " +
-                                "WHERE oi.order_id = ?";
-                List<OrderItem> items = jdbcTemplate.query(itemsSql, new OrderItemRowMapper(), order.getId());
-                order.setOrderItems(items);
-            }
+            // 一次加載所有訂單的訂單項目
+            loadOrderItems(orders);
             return orders;
         } catch (Exception e) {
             System.err.println("查詢所有訂單時發生錯誤: " + e.getMessage());
@@ -236,32 +285,80 @@ public class OrderDAOImpl implements CustomOrderDAO {
         }
     }
 
-    private static class OrderItemRowMapper implements RowMapper<OrderItem> {
+    /**
+     * 以 order_id IN (...) 分批查詢多筆訂單的訂單項目 (每批一次查詢，不再每筆訂單各查一次)，
+     * 逐列組裝到對應的訂單上；同一商品在所有訂單項目間共用同一個 Product 物件。
+     */
+    private void loadOrderItems(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<Integer, Order> ordersById = new HashMap<>();
+        for (Order order : orders) {
+            order.setOrderItems(new ArrayList<>());
+            ordersById.put(order.getId(), order);
+        }
+        OrderItemAssembler assembler = new OrderItemAssembler(ordersById);
+        List<Integer> orderIds = new ArrayList<>(ordersById.keySet());
+        for (int from = 0; from < orderIds.size(); from += ORDER_ID_CHUNK_SIZE) {
+            List<Integer> chunk = orderIds.subList(from, Math.min(from + ORDER_ID_CHUNK_SIZE, orderIds.size()));
+            namedParameterJdbcTemplate.query(ORDER_ITEMS_SQL, Map.of("orderIds", chunk), assembler);
+        }
+    }
+
+    private static class OrderItemAssembler implements ResultSetExtractor<Void> {
+
+        private final Map<Integer, Order> ordersById;
+
+        // 商品 ID → 共用的 Product
+        private final Map<Integer, Product> productsById = new HashMap<>();
+
+        // 訂單 ID → 訂單項目引用的訂單 (只含 ID)
+        private final Map<Integer, Order> orderRefsById = new HashMap<>();
+
+        OrderItemAssembler(Map<Integer, Order> ordersById) {
+            this.ordersById = ordersById;
+        }
+
         @Override
-        public OrderItem mapRow(ResultSet rs, int rowNum) throws SQLException {
-            OrderItem item = new OrderItem();
-            item.setId(rs.getInt("id"));
-            item.setQuantity(rs.getInt("quantity"));
-            item.setSubtotal(rs.getBigDecimal("subtotal"));
-
-            // 創建並設置Product
-            Product product = new Product();
-            product.setId(rs.getInt("product_id"));
-            product.setName(rs.getString("name"));
-            product.setDescription(rs.getString("description"));
-            product.setPrice(rs.getBigDecimal("price"));
-            product.setStockQuantity(rs.getInt("stock_quantity"));
-            product.setImageUrl(rs.getString("image_url"));
-            product.setCreatedAt(rs.getTimestamp("created_at"));
-            product.setUpdatedAt(rs.getTimestamp("updated_at"));
-            item.setProduct(product);
-
-            // 創建並設置Order
-            Order order = new Order();
-            order.setId(rs.getInt("order_id"));
-            item.setOrder(order);
-            
-            return item;
+        public Void extractData(ResultSet rs) throws SQLException {
+            while (rs.next()) {
+                Order order = ordersById.get(rs.getInt("order_id"));
+                if (order == null) {
+                    continue;
+                }
+                OrderItem item = new OrderItem();
+                item.setId(rs.getInt("item_id"));
+                item.setQuantity(rs.getInt("quantity"));
+                item.setSubtotal(rs.getBigDecimal("subtotal"));
+                item.setProduct(productOf(rs));
+                item.setOrder(orderRefsById.computeIfAbsent(order.getId(), orderId -> {
+                    Order orderRef = new Order();
+                    orderRef.setId(orderId);
+                    return orderRef;
+                }));
+                order.getOrderItems().add(item);
+            }
+            return null;
+        }
+
+        private Product productOf(ResultSet rs) throws SQLException {
+            int productId = rs.getInt("product_id");
+            Product product = productsById.get(productId);
+            if (product == null) {
+                product = new Product();
+                product.setId(productId);
+                product.setName(rs.getString("name"));
+                product.setDescription(rs.getString("description"));
+                product.setPrice(rs.getBigDecimal("price"));
+                product.setStockQuantity(rs.getInt("stock_quantity"));
+                product.setCategory(rs.getString("category"));
+                product.setImageUrl(rs.getString("image_url"));
+                product.setCreatedAt(rs.getTimestamp("created_at"));
+                product.setUpdatedAt(rs.getTimestamp("updated_at"));
+                productsById.put(productId, product);
+            }
+            return product;
         }
     }
-} 
\ No newline at end of file
+}
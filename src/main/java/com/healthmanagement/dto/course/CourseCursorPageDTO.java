@@ -0,0 +1,21 @@
+package com.healthmanagement.dto.course;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// 課程列表 keyset 分頁結果；下一頁以 nextCursor 查詢，沒有下一頁時 nextCursor 為 null
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseCursorPageDTO {
+
+	private List<CourseInfoDTO> content; // 本頁課程
+	private Integer size; // 請求的每頁數量
+	private String nextCursor; // 下一頁游標 (不透明字串)
+	private boolean hasNext; // 是否還有下一頁
+}
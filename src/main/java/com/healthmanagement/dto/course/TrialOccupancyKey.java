@@ -0,0 +1,17 @@
+package com.healthmanagement.dto.course;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import lombok.Value;
+
+// 體驗課佔用人數查詢鍵：課程 ID + 上課日期 + 開始時間
+@Value
+public class TrialOccupancyKey {
+
+    Integer courseId;
+
+    LocalDate bookingDate;
+
+    LocalTime startTime;
+}
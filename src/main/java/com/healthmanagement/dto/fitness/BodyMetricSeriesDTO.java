@@ -0,0 +1,26 @@
+package com.healthmanagement.dto.fitness;
+
+import lombok.Data;
+
+/**
+ * 身體數據時間序列 (欄式)
+ * 各陣列長度相同，第 i 個元素對應 periodStarts[i] 開始的區間；區間內沒有該項數據時為 null。
+ */
+@Data
+public class BodyMetricSeriesDTO {
+    private Integer userId;
+    private String resolution;
+    private String[] periodStarts;
+    private int[] counts;
+    private MetricSeries weight;
+    private MetricSeries bodyFat;
+    private MetricSeries bmi;
+    private MetricSeries muscleMass;
+
+    @Data
+    public static class MetricSeries {
+        private Double[] mean;
+        private Double[] min;
+        private Double[] max;
+    }
+}
@@ -3,6 +3,7 @@ package com.healthmanagement.dto.fitness;
 
 import lombok.Data;
 
+import java.time.LocalDateTime;
 import java.time.Year;
 
 @Data
@@ -14,4 +15,9 @@ public class DashboardStatsDTO {
     private Integer activeUsersThisWeek;
     private Integer activeUsersThisMonth;
     private Integer activeUsersThisYear;
-}
\ No newline at end of file
+
+    // 快照資訊：計算時間、距今秒數、是否超過預期的重新計算間隔
+    private LocalDateTime computedAt;
+    private Long ageSeconds;
+    private Boolean stale;
+}
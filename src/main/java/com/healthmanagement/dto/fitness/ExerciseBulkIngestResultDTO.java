@@ -0,0 +1,25 @@
+package com.healthmanagement.dto.fitness;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// 批次匯入結果：通過驗證的紀錄全部寫入，未通過的依原始順序 (index) 回報原因
+@Data
+public class ExerciseBulkIngestResultDTO {
+    private int received;
+    private int inserted;
+    private int usersAffected;
+    private List<RejectedRecord> rejected = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RejectedRecord {
+        private int index;
+        private String reason;
+    }
+}
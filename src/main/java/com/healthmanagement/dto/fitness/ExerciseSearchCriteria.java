@@ -0,0 +1,20 @@
+package com.healthmanagement.dto.fitness;
+
+import java.time.LocalDate;
+
+/**
+ * 後台運動紀錄查詢條件，null 表示不限。空白字串在建立時即轉為 null，
+ * 相同條件的物件彼此相等 (可作為總筆數快取的鍵)。
+ */
+public record ExerciseSearchCriteria(Integer userId, String userName, String exerciseType, LocalDate startDate,
+		LocalDate endDate) {
+
+	public ExerciseSearchCriteria {
+		userName = blankToNull(userName);
+		exerciseType = blankToNull(exerciseType);
+	}
+
+	private static String blankToNull(String value) {
+		return value == null || value.isBlank() ? null : value.trim();
+	}
+}
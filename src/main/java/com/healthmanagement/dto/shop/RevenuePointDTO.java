@@ -0,0 +1,19 @@
+package com.healthmanagement.dto.shop;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevenuePointDTO {
+    private String period; // 日：yyyy-MM-dd，月：yyyy-MM
+    private Long orderCount;
+    private BigDecimal revenue;
+    private Long unitsSold;
+}
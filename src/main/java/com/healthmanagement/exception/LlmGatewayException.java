@@ -0,0 +1,26 @@
+package com.healthmanagement.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * AI 對話閘道的錯誤，附帶應回應給前端的 HTTP 狀態
+ * (429 同時請求過多、503 佇列已滿、504 逾時、502 上游服務錯誤)。
+ */
+public class LlmGatewayException extends RuntimeException {
+
+    private final HttpStatus status;
+
+    public LlmGatewayException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public LlmGatewayException(HttpStatus status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+}
@@ -54,6 +54,11 @@ public class Course {
 
     @Column(name = "max_trial_capacity")
     private Integer maxTrialCapacity;
+
+    // 樂觀鎖版本號；啟用 app.course.optimistic-version 時，報名相關交易也會遞增此版本
+    @Version
+    @Column(name = "version", columnDefinition = "bigint not null default 0")
+    private Long version;
     
     @OneToMany(mappedBy = "course", cascade = CascadeType.ALL)
     @JsonManagedReference("course-enrollments")
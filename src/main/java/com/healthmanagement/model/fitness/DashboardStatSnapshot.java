@@ -0,0 +1,50 @@
+package com.healthmanagement.model.fitness;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 後台儀表板統計快照 (只有一筆，snapshot_id 固定為 1)
+ * 由排程定期重新計算後覆寫，應用程式重新啟動時可立即提供上次的結果。
+ */
+@Entity
+@Table(name = "dashboard_stat_snapshots")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DashboardStatSnapshot {
+	@Id
+	@Column(name = "snapshot_id")
+	private Integer snapshotId;
+
+	@Column(name = "total_users", nullable = false)
+	private Integer totalUsers;
+
+	@Column(name = "total_workouts", nullable = false)
+	private Integer totalWorkouts;
+
+	@Column(name = "total_workout_minutes", nullable = false)
+	private Integer totalWorkoutMinutes;
+
+	@Column(name = "total_calories_burned", nullable = false)
+	private Double totalCaloriesBurned;
+
+	@Column(name = "active_users_this_week", nullable = false)
+	private Integer activeUsersThisWeek;
+
+	@Column(name = "active_users_this_month", nullable = false)
+	private Integer activeUsersThisMonth;
+
+	@Column(name = "active_users_this_year", nullable = false)
+	private Integer activeUsersThisYear;
+
+	@Column(name = "computed_at", nullable = false)
+	private LocalDateTime computedAt;
+
+	@Column(name = "compute_millis", nullable = false)
+	private Long computeMillis;
+}
@@ -10,7 +10,11 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.healthmanagement.model.member.User;
 
 @Entity
-@Table(name = "exercise_records")
+// 後台查詢依 (使用者, 日期) 或 (運動類型, 日期) 過濾並依日期排序
+// 索引名稱與 sql/ddl 中的涵蓋索引 (INCLUDE 其餘查詢欄位) 一致；JPA 無法表達 INCLUDE，自動建表時只會建立鍵欄位
+@Table(name = "exercise_records", indexes = {
+        @Index(name = "ix_exercise_records_user_date", columnList = "user_id, exercise_date"),
+        @Index(name = "ix_exercise_records_type_date", columnList = "exercise_type, exercise_date") })
 @Getter
 @Setter
 @NoArgsConstructor
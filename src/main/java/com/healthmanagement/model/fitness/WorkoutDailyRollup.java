@@ -0,0 +1,43 @@
+package com.healthmanagement.model.fitness;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * 使用者每日運動彙總 (由 ExerciseRecord 新增、修改、刪除時增量維護)
+ * streakStartDate 為包含當日的連續運動區間起始日，連續天數 = rollupDate - streakStartDate + 1。
+ */
+@Entity
+@Table(name = "workout_daily_rollups", uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "rollup_date"}),
+		indexes = @Index(name = "ix_workout_daily_rollups_streak", columnList = "user_id, streak_start_date"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WorkoutDailyRollup {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@Column(name = "rollup_id")
+	private Integer rollupId;
+
+	@Column(name = "user_id", nullable = false)
+	private Integer userId;
+
+	@Column(name = "rollup_date", nullable = false)
+	private LocalDate rollupDate;
+
+	@Column(name = "total_minutes", nullable = false)
+	private Integer totalMinutes;
+
+	@Column(name = "total_calories", nullable = false)
+	private Double totalCalories;
+
+	@Column(name = "workout_count", nullable = false)
+	private Integer workoutCount;
+
+	@Column(name = "streak_start_date", nullable = false)
+	private LocalDate streakStartDate;
+}
@@ -0,0 +1,41 @@
+package com.healthmanagement.model.shop;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 每日、每個訂單狀態的彙總 (訂單數、金額、商品件數)，由訂單新增與狀態變更時增量維護，
+ * 啟動時依 order / order_item 重建。
+ */
+@Data
+@Entity
+@Table(name = "order_daily_summary", uniqueConstraints = @UniqueConstraint(columnNames = {"summary_date", "status"}))
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderDailySummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @Column(name = "summary_date", nullable = false)
+    private LocalDate summaryDate;
+
+    @Column(name = "status", nullable = false, length = 50)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "total_amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount;
+
+    @Column(name = "units_sold", nullable = false)
+    private Long unitsSold;
+}
@@ -0,0 +1,284 @@
+package com.healthmanagement.service.course;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.dao.course.CourseDAO;
+import com.healthmanagement.dto.course.CourseImageDTO;
+import com.healthmanagement.dto.course.CourseResponse;
+import com.healthmanagement.model.course.Course;
+import com.healthmanagement.model.course.CourseImage;
+import com.healthmanagement.model.member.User;
+
+/**
+ * 課程目錄快取 (唯讀瀏覽用)
+ * 保存所有課程的靜態資料快照 (不含報名人數、體驗人數等即時欄位)，並建立星期、教練、名稱 n-gram 索引。
+ * 課程新增、修改、刪除時遞增版本號，下次讀取時發現版本不符才由資料庫重建一次；
+ * 其餘時間的目錄瀏覽、名稱/教練/星期查詢都不需查詢資料庫。
+ * 快照本身不對外暴露，每次查詢回傳新的 CourseResponse 複本，呼叫端可自由填入即時欄位。
+ */
+@Component
+public class CourseCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseCatalogCache.class);
+
+    @Autowired
+    private CourseDAO courseDAO;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    // 目前的目錄版本；課程異動時遞增
+    private final AtomicLong version = new AtomicLong(1);
+
+    // 已建立的快照，version 與上面的版本號不同時表示已過期
+    private volatile Catalog catalog = Catalog.EMPTY;
+
+    // 不可變的目錄快照與索引
+    private record Catalog(long version,
+                           Map<Integer, CourseResponse> byId,
+                           Map<Integer, List<Integer>> byDayOfWeek,
+                           Map<String, List<Integer>> byCoachName,
+                           Map<String, Set<Integer>> byNameBigram) {
+
+        static final Catalog EMPTY = new Catalog(0, Map.of(), Map.of(), Map.of(), Map.of());
+    }
+
+    @Autowired
+    public CourseCatalogCache(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        current();
+    }
+
+    /**
+     * 使目錄快照失效 (課程建立、修改、刪除時呼叫)。
+     * 立即遞增版本一次；若在交易中，commit 後再遞增一次，避免在 commit 前重建而快取到舊資料。
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    public long getVersion() {
+        return current().version();
+    }
+
+    public List<CourseResponse> getAllCourses() {
+        return copyOf(current().byId().values());
+    }
+
+    public List<CourseResponse> getCoursesByDayOfWeek(Integer dayOfWeek) {
+        Catalog snapshot = current();
+        return copyOf(snapshot, snapshot.byDayOfWeek().getOrDefault(dayOfWeek, List.of()));
+    }
+
+    // 課程名稱包含 name (不分大小寫)；以名稱二元組索引縮小候選範圍後再逐筆確認
+    public List<CourseResponse> searchByCourseName(String name) {
+        Catalog snapshot = current();
+        String keyword = normalize(name);
+        Collection<Integer> candidates = snapshot.byId().keySet();
+        if (keyword.length() >= 2) {
+            Set<Integer> narrowed = null;
+            for (String bigram : bigramsOf(keyword)) {
+                Set<Integer> posting = snapshot.byNameBigram().getOrDefault(bigram, Set.of());
+                if (narrowed == null) {
+                    narrowed = new TreeSet<>(posting);
+                } else {
+                    narrowed.retainAll(posting);
+                }
+                if (narrowed.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            candidates = narrowed;
+        }
+        List<Integer> matched = new ArrayList<>();
+        for (Integer courseId : candidates) {
+            if (normalize(snapshot.byId().get(courseId).getName()).contains(keyword)) {
+                matched.add(courseId);
+            }
+        }
+        return copyOf(snapshot, matched);
+    }
+
+    // 教練名稱包含 coachName (不分大小寫)；教練數量遠少於課程數，直接掃描教練名稱索引
+    public List<CourseResponse> searchByCoachName(String coachName) {
+        Catalog snapshot = current();
+        String keyword = normalize(coachName);
+        Set<Integer> matched = new TreeSet<>();
+        snapshot.byCoachName().forEach((name, courseIds) -> {
+            if (name.contains(keyword)) {
+                matched.addAll(courseIds);
+            }
+        });
+        return copyOf(snapshot, matched);
+    }
+
+    // 取得目前有效的快照，版本過期時重建
+    private Catalog current() {
+        Catalog snapshot = catalog;
+        if (snapshot.version() == version.get()) {
+            return snapshot;
+        }
+        return rebuild();
+    }
+
+    private synchronized Catalog rebuild() {
+        long targetVersion = version.get();
+        Catalog snapshot = catalog;
+        if (snapshot.version() == targetVersion) {
+            return snapshot;
+        }
+        long startNanos = System.nanoTime();
+        List<CourseResponse> responses = readOnlyTransaction.execute(status ->
+                courseDAO.findAllWithImagesAndCoach().stream()
+                        .distinct()
+                        .map(CourseCatalogCache::toSnapshot)
+                        .sorted(Comparator.comparing(CourseResponse::getId))
+                        .toList());
+
+        Map<Integer, CourseResponse> byId = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> byDayOfWeek = new HashMap<>();
+        Map<String, List<Integer>> byCoachName = new HashMap<>();
+        Map<String, Set<Integer>> byNameBigram = new HashMap<>();
+        for (CourseResponse response : responses) {
+            Integer courseId = response.getId();
+            byId.put(courseId, response);
+            if (response.getDayOfWeek() != null) {
+                byDayOfWeek.computeIfAbsent(response.getDayOfWeek(), key -> new ArrayList<>()).add(courseId);
+            }
+            // 與原本的 JOIN coach 查詢一致：沒有教練的課程不會出現在教練名稱查詢結果中
+            if (response.getCoachId() != null) {
+                byCoachName.computeIfAbsent(normalize(response.getCoachName()), key -> new ArrayList<>()).add(courseId);
+            }
+            for (String bigram : bigramsOf(normalize(response.getName()))) {
+                byNameBigram.computeIfAbsent(bigram, key -> new TreeSet<>()).add(courseId);
+            }
+        }
+
+        Catalog rebuilt = new Catalog(targetVersion,
+                Collections.unmodifiableMap(byId),
+                Collections.unmodifiableMap(byDayOfWeek),
+                Collections.unmodifiableMap(byCoachName),
+                Collections.unmodifiableMap(byNameBigram));
+        catalog = rebuilt;
+        logger.info("課程目錄快取已重建 (版本 {})：{} 門課程，{} 個名稱索引鍵，耗時 {} ms。",
+                targetVersion, byId.size(), byNameBigram.size(), (System.nanoTime() - startNanos) / 1_000_000);
+        return rebuilt;
+    }
+
+    private static List<CourseResponse> copyOf(Catalog snapshot, Collection<Integer> courseIds) {
+        List<CourseResponse> result = new ArrayList<>(courseIds.size());
+        for (Integer courseId : courseIds) {
+            result.add(copyOf(snapshot.byId().get(courseId)));
+        }
+        return result;
+    }
+
+    private static List<CourseResponse> copyOf(Collection<CourseResponse> snapshots) {
+        List<CourseResponse> result = new ArrayList<>(snapshots.size());
+        for (CourseResponse snapshot : snapshots) {
+            result.add(copyOf(snapshot));
+        }
+        return result;
+    }
+
+    // 複製快照，圖片 DTO 也一併複製，呼叫端修改回傳值不會影響快取
+    private static CourseResponse copyOf(CourseResponse snapshot) {
+        List<CourseImageDTO> images = new ArrayList<>(snapshot.getImages().size());
+        for (CourseImageDTO image : snapshot.getImages()) {
+            images.add(CourseImageDTO.builder()
+                    .id(image.getId())
+                    .imageUrl(image.getImageUrl())
+                    .imageOrder(image.getImageOrder())
+                    .build());
+        }
+        return CourseResponse.builder()
+                .id(snapshot.getId())
+                .name(snapshot.getName())
+                .description(snapshot.getDescription())
+                .coachId(snapshot.getCoachId())
+                .coachName(snapshot.getCoachName())
+                .dayOfWeek(snapshot.getDayOfWeek())
+                .startTime(snapshot.getStartTime())
+                .duration(snapshot.getDuration())
+                .maxCapacity(snapshot.getMaxCapacity())
+                .offersTrialOption(snapshot.getOffersTrialOption())
+                .maxTrialCapacity(snapshot.getMaxTrialCapacity())
+                .images(images)
+                .build();
+    }
+
+    // 只保存課程的靜態欄位；即時欄位 (報名人數、額滿狀態、體驗人數) 由呼叫端填入
+    private static CourseResponse toSnapshot(Course course) {
+        User coach = course.getCoach();
+        List<CourseImageDTO> images = course.getImages() == null ? List.of() : course.getImages().stream()
+                .sorted(Comparator.comparing(CourseImage::getImageOrder, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(image -> CourseImageDTO.builder()
+                        .id(image.getId())
+                        .imageUrl(image.getImageUrl())
+                        .imageOrder(image.getImageOrder())
+                        .build())
+                .toList();
+        return CourseResponse.builder()
+                .id(course.getId())
+                .name(course.getName())
+                .description(course.getDescription())
+                .coachId(coach != null ? coach.getId() : null)
+                .coachName(coach != null ? coach.getName() : "N/A")
+                .dayOfWeek(course.getDayOfWeek())
+                .startTime(course.getStartTime())
+                .duration(course.getDuration())
+                .maxCapacity(course.getMaxCapacity())
+                .offersTrialOption(course.getOffersTrialOption())
+                .maxTrialCapacity(course.getMaxTrialCapacity())
+                .images(images)
+                .build();
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // 相鄰兩字元組成的索引鍵，中英文名稱皆適用
+    private static Set<String> bigramsOf(String text) {
+        Set<String> bigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 2 <= text.length(); i++) {
+            bigrams.add(text.substring(i, i + 2));
+        }
+        return bigrams;
+    }
+}
@@ -0,0 +1,141 @@
+package com.healthmanagement.service.course;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.model.course.Course;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * 課程併發控制
+ * 以課程 ID 分段 (striped) 的 ReentrantLock 讓同一課程的報名、取消、候補、遞補依序執行，
+ * 不同課程 (落在不同分段時) 仍可完全平行。executeLocked 先取得鎖再開始交易，交易完全結束
+ * (含 rollback 時的座位帳本補償) 後才釋放，因此下一個請求一定看得到前一個請求已提交的結果；
+ * 等待鎖的執行緒不會占用資料庫連線，熱門課程的大量請求不會耗盡連線池而拖慢其他課程。
+ * 多節點部署時可啟用 app.course.optimistic-version，於同一交易中遞增 Course 的 @Version，
+ * 讓不同節點同時修改同一課程時由資料庫樂觀鎖擋下其中一方。
+ */
+@Component
+public class CourseLockManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseLockManager.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ReentrantLock[] stripes;
+    private final long lockTimeoutMillis;
+    private final boolean optimisticVersion;
+
+    public CourseLockManager(PlatformTransactionManager transactionManager,
+                             @Value("${app.course.lock-stripes:256}") int stripeCount,
+                             @Value("${app.course.lock-timeout-ms:5000}") long lockTimeoutMillis,
+                             @Value("${app.course.optimistic-version:false}") boolean optimisticVersion) {
+        // 分段數取 2 的次方，方便以位元運算取模
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.lockTimeoutMillis = lockTimeoutMillis;
+        this.optimisticVersion = optimisticVersion;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 取得課程鎖後在新的交易中執行 action，交易結束後才釋放鎖。courseId 為 null 時不上鎖。
+     * 若呼叫端已在交易中，改為在該交易中上鎖並持有到外層交易結束 (同 lockForTransaction)。
+     *
+     * @throws IllegalStateException 等待逾時 (課程正被大量操作)
+     */
+    public <T> T executeLocked(Integer courseId, TransactionCallback<T> action) {
+        if (courseId == null) {
+            return transactionTemplate.execute(action);
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return transactionTemplate.execute(status -> {
+                lockForTransaction(courseId);
+                return action.doInTransaction(status);
+            });
+        }
+        ReentrantLock lock = acquire(courseId);
+        try {
+            return transactionTemplate.execute(status -> {
+                forceVersionIncrement(courseId);
+                return action.doInTransaction(status);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取得課程鎖並持有到目前交易結束。必須在交易中呼叫；同一執行緒可重複取得 (可重入)。
+     * 等待期間會占住交易的資料庫連線，一般請使用 executeLocked。
+     *
+     * @throws IllegalStateException 等待逾時 (課程正被大量操作) 或不在交易中
+     */
+    public void lockForTransaction(Integer courseId) {
+        if (courseId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("課程鎖必須在交易中取得。");
+        }
+        ReentrantLock lock = acquire(courseId);
+        TransactionSynchronization unlock = new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        };
+        // 最低優先順序：在其他 afterCompletion (如座位帳本的 rollback 補償) 之後才釋放
+        TransactionSynchronizationManager.registerSynchronization(unlock);
+        forceVersionIncrement(courseId);
+    }
+
+    private ReentrantLock acquire(Integer courseId) {
+        ReentrantLock lock = stripeOf(courseId);
+        try {
+            if (!lock.tryLock(lockTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("等待課程 ID {} 的鎖逾時 ({} ms)。", courseId, lockTimeoutMillis);
+                throw new IllegalStateException("課程目前處理中的請求過多，請稍後再試。");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待課程鎖時被中斷。", e);
+        }
+        return lock;
+    }
+
+    private void forceVersionIncrement(Integer courseId) {
+        if (optimisticVersion) {
+            // 即使只修改報名記錄也遞增課程版本，讓其他節點上同一課程的交易在 commit 時衝突
+            Course course = entityManager.find(Course.class, courseId, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            if (course == null) {
+                throw new EntityNotFoundException("Course not found with id: " + courseId);
+            }
+        }
+    }
+
+    private ReentrantLock stripeOf(Integer courseId) {
+        int hash = courseId.hashCode();
+        hash ^= (hash >>> 16);
+        return stripes[hash & (stripes.length - 1)];
+    }
+}
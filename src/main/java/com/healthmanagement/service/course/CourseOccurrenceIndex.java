@@ -0,0 +1,225 @@
+package com.healthmanagement.service.course;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.healthmanagement.dao.course.CourseDAO;
+import com.healthmanagement.model.course.Course;
+
+/**
+ * 課程上課時間索引
+ * 保存每門課程的每週排程 (星期幾 + 開始時間)，並預先展開未來 HORIZON_WEEKS 週的上課時間，
+ * 以時間排序存放 (上課時間 → 課程 ID)。課程新增、修改、刪除時增量更新，每天凌晨往後滾動一天。
+ * 日期區間查詢、下一次/上一次上課時間都由索引計算，不需要載入整個課程目錄。
+ */
+@Component
+public class CourseOccurrenceIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseOccurrenceIndex.class);
+
+    // 預先展開的週數
+    private static final int HORIZON_WEEKS = 8;
+
+    @Autowired
+    private CourseDAO courseDAO;
+
+    // 課程 ID → 每週排程
+    private final Map<Integer, WeeklySlot> slots = new ConcurrentHashMap<>();
+    // 目前的上課時間索引；重建時整份換新，讀取端不會看到清空中或填到一半的索引
+    private volatile OccurrenceWindow window;
+
+    // 索引涵蓋範圍 [start, end) 與上課時間 → 該時間上課的課程 ID
+    private record OccurrenceWindow(LocalDateTime start, LocalDateTime end,
+            ConcurrentSkipListMap<LocalDateTime, Set<Integer>> occurrences) {
+    }
+
+    // 每週排程
+    private record WeeklySlot(DayOfWeek dayOfWeek, LocalTime startTime) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Map<Integer, WeeklySlot> loaded = new ConcurrentHashMap<>();
+        for (Object[] row : courseDAO.findAllSchedules()) {
+            WeeklySlot slot = toSlot((Integer) row[0], (Integer) row[1], (LocalTime) row[2]);
+            if (slot != null) {
+                loaded.put((Integer) row[0], slot);
+            }
+        }
+        synchronized (this) {
+            slots.clear();
+            slots.putAll(loaded);
+            rebuildOccurrences();
+        }
+        OccurrenceWindow current = window;
+        logger.info("課程上課時間索引載入完成：{} 門課程，{} 個上課時間點 ({} ~ {})。",
+                slots.size(), current.occurrences().size(), current.start(), current.end());
+    }
+
+    // 每天凌晨將索引範圍往後滾動
+    @Scheduled(cron = "0 0 0 * * ?")
+    public synchronized void rollHorizon() {
+        rebuildOccurrences();
+        logger.info("課程上課時間索引已滾動至 {} ~ {}。", window.start(), window.end());
+    }
+
+    // 新增或更新課程排程 (課程建立、修改時呼叫)
+    public synchronized void registerCourse(Course course) {
+        if (course == null || course.getId() == null) {
+            return;
+        }
+        removeOccurrences(course.getId());
+        WeeklySlot slot = toSlot(course.getId(), course.getDayOfWeek(), course.getStartTime());
+        if (slot == null) {
+            slots.remove(course.getId());
+            return;
+        }
+        slots.put(course.getId(), slot);
+        addOccurrences(course.getId(), slot);
+    }
+
+    public synchronized void removeCourse(Integer courseId) {
+        if (courseId == null) {
+            return;
+        }
+        removeOccurrences(courseId);
+        slots.remove(courseId);
+    }
+
+    // 課程下一次上課時間 (相對於現在)；索引中沒有此課程時，以實體上的排程補登
+    public LocalDateTime getNextOccurrence(Course course) {
+        if (course == null || course.getId() == null) {
+            return null;
+        }
+        WeeklySlot slot = slots.get(course.getId());
+        if (slot == null || !slot.equals(toSlot(course.getId(), course.getDayOfWeek(), course.getStartTime()))) {
+            registerCourse(course);
+            slot = slots.get(course.getId());
+        }
+        return slot != null ? nextOccurrence(slot, LocalDateTime.now()) : null;
+    }
+
+    public LocalDateTime getNextOccurrence(Integer courseId, LocalDateTime from) {
+        WeeklySlot slot = slots.get(courseId);
+        return slot != null ? nextOccurrence(slot, from) : null;
+    }
+
+    // 課程最近一次已發生的上課時間 (相對於 relativeTo)
+    public LocalDateTime getLastOccurrence(Integer courseId, LocalDateTime relativeTo) {
+        WeeklySlot slot = slots.get(courseId);
+        return slot != null ? lastOccurrence(slot, relativeTo) : null;
+    }
+
+    /**
+     * 查詢在 [rangeStart, rangeEnd] (含邊界) 內有上課的課程 ID，依最早上課時間排序。
+     * 區間落在索引範圍內時直接取子區間；否則以排程計算 (仍不需查詢資料庫)。
+     */
+    public List<Integer> findCourseIdsOccurringBetween(LocalDateTime rangeStart, LocalDateTime rangeEnd) {
+        if (rangeStart == null || rangeEnd == null || rangeStart.isAfter(rangeEnd)) {
+            return List.of();
+        }
+        OccurrenceWindow current = window;
+        Set<Integer> result = new LinkedHashSet<>();
+        if (current != null && !rangeStart.isBefore(current.start()) && rangeEnd.isBefore(current.end())) {
+            NavigableMap<LocalDateTime, Set<Integer>> matched =
+                    current.occurrences().subMap(rangeStart, true, rangeEnd, true);
+            for (Set<Integer> courseIds : matched.values()) {
+                result.addAll(courseIds);
+            }
+            return new ArrayList<>(result);
+        }
+        slots.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), nextOccurrence(entry.getValue(), rangeStart)))
+                .filter(entry -> !entry.getValue().isAfter(rangeEnd))
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(entry -> result.add(entry.getKey()));
+        return new ArrayList<>(result);
+    }
+
+    // 以資料庫排程 (dayOfWeek 0-6) 計算最近一次已發生的上課時間，供批次作業直接使用查詢結果
+    public static LocalDateTime lastOccurrenceOf(Integer dbDayOfWeek, LocalTime startTime, LocalDateTime relativeTo) {
+        WeeklySlot slot = toSlot(null, dbDayOfWeek, startTime);
+        return slot != null ? lastOccurrence(slot, relativeTo) : null;
+    }
+
+    // 第一個不早於 from 的上課時間
+    private static LocalDateTime nextOccurrence(WeeklySlot slot, LocalDateTime from) {
+        LocalDateTime candidate = LocalDateTime.of(
+                from.toLocalDate().with(TemporalAdjusters.nextOrSame(slot.dayOfWeek())), slot.startTime());
+        return candidate.isBefore(from) ? candidate.plusWeeks(1) : candidate;
+    }
+
+    // 最後一個不晚於 relativeTo 的上課時間
+    private static LocalDateTime lastOccurrence(WeeklySlot slot, LocalDateTime relativeTo) {
+        LocalDateTime candidate = LocalDateTime.of(
+                relativeTo.toLocalDate().with(TemporalAdjusters.previousOrSame(slot.dayOfWeek())), slot.startTime());
+        return candidate.isAfter(relativeTo) ? candidate.minusWeeks(1) : candidate;
+    }
+
+    private static WeeklySlot toSlot(Integer courseId, Integer dbDayOfWeek, LocalTime startTime) {
+        if (dbDayOfWeek == null || startTime == null || dbDayOfWeek < 0 || dbDayOfWeek > 6) {
+            logger.warn("課程 ID {} 排程資訊不完整或無效 (dayOfWeek: {}, startTime: {})，不納入上課時間索引。",
+                    courseId != null ? courseId : "N/A", dbDayOfWeek, startTime);
+            return null;
+        }
+        // 與原本的計算方式一致：資料庫 0-6 對應 Java DayOfWeek 1-7 (Mon-Sun)
+        return new WeeklySlot(DayOfWeek.of(dbDayOfWeek + 1), startTime);
+    }
+
+    // 在新的 map 上建好整份索引後，以一次 volatile 指派發佈
+    private void rebuildOccurrences() {
+        LocalDateTime start = LocalDate.now().atStartOfDay();
+        OccurrenceWindow rebuilt = new OccurrenceWindow(start, start.plusWeeks(HORIZON_WEEKS), new ConcurrentSkipListMap<>());
+        slots.forEach((courseId, slot) -> addOccurrences(rebuilt, courseId, slot));
+        window = rebuilt;
+    }
+
+    private void addOccurrences(Integer courseId, WeeklySlot slot) {
+        OccurrenceWindow current = window;
+        if (current != null) {
+            addOccurrences(current, courseId, slot);
+        }
+    }
+
+    private static void addOccurrences(OccurrenceWindow target, Integer courseId, WeeklySlot slot) {
+        for (LocalDateTime time = nextOccurrence(slot, target.start()); time.isBefore(target.end()); time = time.plusWeeks(1)) {
+            target.occurrences().computeIfAbsent(time, key -> ConcurrentHashMap.newKeySet()).add(courseId);
+        }
+    }
+
+    private void removeOccurrences(Integer courseId) {
+        WeeklySlot slot = slots.get(courseId);
+        OccurrenceWindow current = window;
+        if (slot == null || current == null) {
+            return;
+        }
+        for (LocalDateTime time = nextOccurrence(slot, current.start()); time.isBefore(current.end()); time = time.plusWeeks(1)) {
+            Set<Integer> courseIds = current.occurrences().get(time);
+            if (courseIds != null) {
+                courseIds.remove(courseId);
+                if (courseIds.isEmpty()) {
+                    current.occurrences().remove(time, courseIds);
+                }
+            }
+        }
+    }
+}
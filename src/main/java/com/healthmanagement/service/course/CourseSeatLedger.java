@@ -0,0 +1,279 @@
+package com.healthmanagement.service.course;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.healthmanagement.dao.course.CourseDAO;
+import com.healthmanagement.dao.course.EnrollmentDAO;
+import com.healthmanagement.model.course.Course;
+
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * 課程座位帳本 (記憶體)
+ * 每門課程保存：最大容量、已報名人數 (原子計數) 以及活躍 (已報名/候補中) 使用者 ID → 狀態。
+ * 啟動時由 EnrollmentDAO 載入，之後在報名、取消、狀態變更時同步更新，
+ * 讓容量與重複報名檢查不需再查詢資料庫。
+ */
+@Component
+public class CourseSeatLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(CourseSeatLedger.class);
+
+    static final String REGISTERED_STATUS = "已報名";
+    static final String WAITING_STATUS = "候補中";
+    private static final List<String> ACTIVE_ENROLLMENT_STATUSES = List.of(REGISTERED_STATUS, WAITING_STATUS);
+
+    @Autowired
+    private EnrollmentDAO enrollmentDAO;
+
+    @Autowired
+    private CourseDAO courseDAO;
+
+    private final Map<Integer, CourseSeats> ledger = new ConcurrentHashMap<>();
+
+    // 單一課程的座位狀態
+    static final class CourseSeats {
+        // maxCapacity 為 null 或 <= 0 時表示不限人數
+        private volatile int capacity;
+        private final AtomicInteger registered = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Map<Integer, String> activeUsers = new ConcurrentHashMap<>();
+
+        CourseSeats(int capacity) {
+            this.capacity = capacity;
+        }
+
+        boolean isUnlimited() {
+            return capacity <= 0;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        reload();
+    }
+
+    // 從資料庫重建整本帳本
+    public synchronized void reload() {
+        long startNanos = System.nanoTime();
+        Map<Integer, CourseSeats> fresh = new ConcurrentHashMap<>();
+        for (Object[] row : courseDAO.findAllCapacities()) {
+            Integer courseId = (Integer) row[0];
+            Integer maxCapacity = (Integer) row[1];
+            fresh.put(courseId, new CourseSeats(maxCapacity != null ? maxCapacity : 0));
+        }
+        int rows = 0;
+        for (Object[] row : enrollmentDAO.findCourseUserStatusByStatusIn(ACTIVE_ENROLLMENT_STATUSES)) {
+            CourseSeats seats = fresh.get((Integer) row[0]);
+            if (seats == null) {
+                continue;
+            }
+            applyStatus(seats, (Integer) row[1], (String) row[2]);
+            rows++;
+        }
+        ledger.clear();
+        ledger.putAll(fresh);
+        logger.info("課程座位帳本載入完成：{} 門課程，{} 筆活躍報名，耗時 {} ms。",
+                fresh.size(), rows, (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    // 新增或更新課程容量 (課程建立、修改時呼叫)
+    public void registerCourse(Integer courseId, Integer maxCapacity) {
+        if (courseId == null) {
+            return;
+        }
+        int capacity = maxCapacity != null ? maxCapacity : 0;
+        CourseSeats existing = ledger.putIfAbsent(courseId, new CourseSeats(capacity));
+        if (existing != null) {
+            existing.capacity = capacity;
+        }
+        logger.debug("座位帳本：課程 ID {} 容量設定為 {}。", courseId, capacity);
+    }
+
+    // 丟棄單一課程的帳本內容，下次存取時由資料庫重新載入 (發現帳本與資料庫不一致時使用)
+    public void invalidateCourse(Integer courseId) {
+        if (courseId != null) {
+            ledger.remove(courseId);
+            logger.info("座位帳本：課程 ID {} 已失效，下次存取時重新載入。", courseId);
+        }
+    }
+
+    public void removeCourse(Integer courseId) {
+        if (courseId != null) {
+            ledger.remove(courseId);
+        }
+    }
+
+    // 使用者在此課程的活躍狀態 (已報名/候補中)，沒有則回傳 null
+    public String getActiveStatus(Integer courseId, Integer userId) {
+        return seatsOf(courseId).activeUsers.get(userId);
+    }
+
+    public boolean isActiveMember(Integer courseId, Integer userId) {
+        return seatsOf(courseId).activeUsers.containsKey(userId);
+    }
+
+    public boolean isFull(Integer courseId) {
+        CourseSeats seats = seatsOf(courseId);
+        return !seats.isUnlimited() && seats.registered.get() >= seats.capacity;
+    }
+
+    public int getRegisteredCount(Integer courseId) {
+        return seatsOf(courseId).registered.get();
+    }
+
+    public int getWaitingCount(Integer courseId) {
+        return seatsOf(courseId).waiting.get();
+    }
+
+    // 剩餘座位數，不限人數時回傳 Integer.MAX_VALUE
+    public int getRemainingSeats(Integer courseId) {
+        CourseSeats seats = seatsOf(courseId);
+        if (seats.isUnlimited()) {
+            return Integer.MAX_VALUE;
+        }
+        return Math.max(0, seats.capacity - seats.registered.get());
+    }
+
+    /**
+     * 嘗試為使用者佔用一個座位 (CAS，無鎖)。
+     * 成功時使用者被標記為已報名；若目前交易稍後 rollback，座位會自動歸還。
+     *
+     * @return 是否成功佔位；false 表示課程已滿
+     */
+    public boolean tryReserveSeat(Integer courseId, Integer userId) {
+        CourseSeats seats = seatsOf(courseId);
+        while (true) {
+            int current = seats.registered.get();
+            if (!seats.isUnlimited() && current >= seats.capacity) {
+                return false;
+            }
+            if (seats.registered.compareAndSet(current, current + 1)) {
+                break;
+            }
+        }
+        String previous = seats.activeUsers.put(userId, REGISTERED_STATUS);
+        if (WAITING_STATUS.equals(previous)) {
+            seats.waiting.decrementAndGet();
+        }
+        onRollback(() -> {
+            seats.registered.decrementAndGet();
+            seats.activeUsers.remove(userId, REGISTERED_STATUS);
+            if (WAITING_STATUS.equals(previous)) {
+                seats.waiting.incrementAndGet();
+                seats.activeUsers.put(userId, WAITING_STATUS);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 報名狀態變更後同步帳本 (新增候補、取消、遞補、未到場等)。
+     * oldStatus 為 null 表示新建的報名記錄。
+     */
+    public void onStatusChange(Integer courseId, Integer userId, String oldStatus, String newStatus) {
+        if (courseId == null || userId == null || (oldStatus != null && oldStatus.equals(newStatus))) {
+            return;
+        }
+        CourseSeats seats = seatsOf(courseId);
+        removeStatus(seats, userId, oldStatus);
+        applyStatus(seats, userId, newStatus);
+        onRollback(() -> {
+            removeStatus(seats, userId, newStatus);
+            applyStatus(seats, userId, oldStatus);
+        });
+    }
+
+    // 批次版本：多位使用者由同一舊狀態變為同一新狀態 (例如批次遞補、批次標記未到場)
+    public void onBulkStatusChange(Integer courseId, Collection<Integer> userIds, String oldStatus, String newStatus) {
+        CourseSeats seats = ledger.get(courseId);
+        if (seats == null || userIds.isEmpty()) {
+            return;
+        }
+        for (Integer userId : userIds) {
+            removeStatus(seats, userId, oldStatus);
+            applyStatus(seats, userId, newStatus);
+        }
+        onRollback(() -> {
+            for (Integer userId : userIds) {
+                removeStatus(seats, userId, newStatus);
+                applyStatus(seats, userId, oldStatus);
+            }
+        });
+    }
+
+    private static void applyStatus(CourseSeats seats, Integer userId, String status) {
+        if (REGISTERED_STATUS.equals(status)) {
+            seats.registered.incrementAndGet();
+            seats.activeUsers.put(userId, REGISTERED_STATUS);
+        } else if (WAITING_STATUS.equals(status)) {
+            seats.waiting.incrementAndGet();
+            seats.activeUsers.put(userId, WAITING_STATUS);
+        }
+    }
+
+    private static void removeStatus(CourseSeats seats, Integer userId, String status) {
+        if (REGISTERED_STATUS.equals(status)) {
+            if (seats.activeUsers.remove(userId, REGISTERED_STATUS)) {
+                seats.registered.decrementAndGet();
+            }
+        } else if (WAITING_STATUS.equals(status)) {
+            if (seats.activeUsers.remove(userId, WAITING_STATUS)) {
+                seats.waiting.decrementAndGet();
+            }
+        }
+    }
+
+    // 取得課程的座位狀態；帳本中沒有時 (例如其他節點新增的課程) 由資料庫補載
+    private CourseSeats seatsOf(Integer courseId) {
+        CourseSeats seats = ledger.get(courseId);
+        if (seats != null) {
+            return seats;
+        }
+        return ledger.computeIfAbsent(courseId, id -> {
+            logger.info("座位帳本中沒有課程 ID {}，由資料庫補載。", id);
+            Course course = courseDAO.findById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Course not found with id: " + id));
+            CourseSeats loaded = new CourseSeats(course.getMaxCapacity() != null ? course.getMaxCapacity() : 0);
+            for (Object[] row : enrollmentDAO.findUserStatusByCourseIdAndStatusIn(id, ACTIVE_ENROLLMENT_STATUSES)) {
+                applyStatus(loaded, (Integer) row[0], (String) row[1]);
+            }
+            return loaded;
+        });
+    }
+
+    // 若目前在交易中，註冊 rollback 時的補償動作，確保帳本與資料庫一致
+    private static void onRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // 優先於其他同步動作執行，課程鎖 (CourseLockManager.lockForTransaction) 在補償完成後才釋放
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+}
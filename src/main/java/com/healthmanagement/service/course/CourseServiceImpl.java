@@ -21,13 +21,9 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.DayOfWeek;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 
 import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalAdjusters;
 
 import java.util.List;
 import java.util.Map;
@@ -38,7 +34,6 @@ import java.util.ArrayList; // 引入 ArrayList
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Set; // 引入 Set
 import java.util.HashSet; // 引入 HashSet
 
@@ -56,6 +51,10 @@ public class CourseServiceImpl implements CourseService {
     private final UserDAO userDAO;
     private final EnrollmentDAO enrollmentDAO;
     private final EntityManager entityManager; // 初始化
+    private final CourseSeatLedger seatLedger;
+    private final CourseOccurrenceIndex occurrenceIndex;
+    private final TrialOccupancyCache trialOccupancyCache;
+    private final CourseCatalogCache catalogCache;
     // 常規和體驗預約的非活躍狀態 (需要與 EnrollmentService/TrialBookingService 一致)
     private static final List<String> INACTIVE_ENROLLMENT_STATUSES = List.of("已取消", "已完成", "未到場");
     private static final List<String> INACTIVE_TRIAL_STATUSES = List.of("已取消", "已完成", "未到場");
@@ -64,13 +63,21 @@ public class CourseServiceImpl implements CourseService {
     public CourseServiceImpl(CourseDAO courseDAO, TrialBookingDAO trialBookingDAO,
                              EnrollmentService enrollmentService, UserDAO userDAO,
                              EnrollmentDAO enrollmentDAO,
-                             EntityManager entityManager) {
+                             EntityManager entityManager,
+                             CourseSeatLedger seatLedger,
+                             CourseOccurrenceIndex occurrenceIndex,
+                             TrialOccupancyCache trialOccupancyCache,
+                             CourseCatalogCache catalogCache) {
         this.courseDAO = courseDAO;
         this.trialBookingDAO = trialBookingDAO;
         this.enrollmentService = enrollmentService;
         this.userDAO = userDAO;
         this.enrollmentDAO = enrollmentDAO;
         this.entityManager = entityManager;
+        this.seatLedger = seatLedger;
+        this.occurrenceIndex = occurrenceIndex;
+        this.trialOccupancyCache = trialOccupancyCache;
+        this.catalogCache = catalogCache;
     }
 
     // 輔助方法：將 Course 實體轉換為 CourseResponse DTO (這個方法已經處理圖片列表，無需修改)
@@ -129,103 +136,20 @@ public class CourseServiceImpl implements CourseService {
             .collect(Collectors.toList());
     }
 
-    // 輔助方法：計算課程的下一個發生日期和時間，相對於當前日期時間
-    // 假設 DayOfWeek 是 0=Sun, 6=Sat
-    private LocalDateTime calculateNextCourseOccurrenceTime(Course course) {
-         if (course == null || course.getDayOfWeek() == null || course.getStartTime() == null) {
-              logger.warn("課程 ID {} 有不完整的排程資訊 (dayOfWeek: {}, startTime: {})。無法計算下一個發生。",
-                          course != null ? course.getId() : "N/A",
-                          course != null ? course.getDayOfWeek() : "N/A", course != null ? course.getStartTime() : "N/A");
-             return null;
-         }
-         LocalDate today = LocalDate.now();
-         LocalTime nowTime = LocalTime.now();
-         // 將資料庫的 0-6 (Sun-Sat) 轉換為 Java 的 DayOfWeek (1-7, Mon-Sun)
-         // 或者根據你的資料庫實際定義調整轉換邏輯
-         int dbDayOfWeek = course.getDayOfWeek();
-         DayOfWeek courseDayOfWeek = DayOfWeek.of((dbDayOfWeek + 1) % 7 == 0 ? 7 : (dbDayOfWeek + 1) % 7);
-         DayOfWeek todayDayOfWeek = today.getDayOfWeek();
-
-         LocalDate nextDate = today;
-         int daysUntilNext = courseDayOfWeek.getValue() - todayDayOfWeek.getValue();
-         if (daysUntilNext < 0) {
-             daysUntilNext += 7;
-         }
-         if (daysUntilNext == 0 && course.getStartTime().isBefore(nowTime)) {
-             daysUntilNext = 7;
-         }
-         nextDate = today.plusDays(daysUntilNext);
-         return LocalDateTime.of(nextDate, course.getStartTime());
-     }
-
-    // 輔助方法：批量獲取提供體驗選項的課程的下一個排程的 bookedTrialCount
+    // 輔助方法：批量獲取提供體驗選項的課程的下一個排程的 bookedTrialCount (單一分組查詢 + 短 TTL 快取)
     @Transactional(readOnly = true)
     public Map<Integer, Integer> getNextOccurrenceBookedTrialCounts(List<Course> courses) {
         logger.info("正在為 {} 個課程獲取下一個排程的體驗預約計數...", courses != null ? courses.size() : 0);
-        Map<Integer, Integer> countsMap = new HashMap<>();
-
-        if (courses == null || courses.isEmpty()) {
-            logger.warn("傳入的課程列表為空或 null，返回空 Map。");
-            return countsMap; // 返回空的 Map
-        }
-
-        for (Course course : courses) {
-             if (course == null) {
-                 logger.warn("課程列表包含 null 項目，跳過處理。");
-                 continue; // 跳過 null 課程
-             }
-            // 只為提供體驗選項且最大體驗容量大於 0 的課程計算計數
-            if (course.getOffersTrialOption() != null && course.getOffersTrialOption() &&
-                course.getMaxTrialCapacity() != null && course.getMaxTrialCapacity() > 0) {
-
-                try {
-                    // 1. 計算當前課程的下一個排程時間
-                    LocalDateTime nextOccurrenceTime = calculateNextCourseOccurrenceTime(course);
-                    logger.debug("課程 ID {} ({} {}) 的下一個排程時間計算為: {}", course.getId(), course.getDayOfWeek(), course.getStartTime(), nextOccurrenceTime);
-                    if (nextOccurrenceTime != null) {
-                        // 2. 查詢該課程在該下一個排程時間的活躍體驗預約人數
-                        int bookedTrialCount = trialBookingDAO.countTrialBookingsByCourseDateActualStartTimeAndStatusNotInNative(
-                            course.getId(),
-                            nextOccurrenceTime.toLocalDate(),
-                            nextOccurrenceTime.toLocalTime(),
-                            INACTIVE_TRIAL_STATUSES // 傳遞非活躍狀態列表
-                        );
-                        logger.debug("課程 ID {} 在 {} 體驗預約計數查詢結果: {}", course.getId(), nextOccurrenceTime, bookedTrialCount);
-                        // 3. 將計數存入 Map
-                        countsMap.put(course.getId(), bookedTrialCount);
-                    } else {
-                        // 如果無法計算下一個排程時間 (例如課程時間設置有問題)，將計數設為 0
-                        logger.warn("無法計算課程 ID {} 的下一個排程時間，將其體驗預約計數設為 0。", course.getId());
-                        countsMap.put(course.getId(), 0); // 確保 Map 中有該課程的鍵，避免前端獲取時報錯
-                    }
-                } catch (Exception e) {
-                    // 處理計算或 DAO 呼叫過程中可能發生的異常
-                    logger.error("處理課程 ID {} 的體驗預約計數時發生錯誤，將其計數設為 0。", course.getId(), e);
-                    countsMap.put(course.getId(), 0); // 確保異常情況下也有計數
-                }
-
-            } else {
-                // 如果課程不提供體驗選項或最大體驗容量為 0，計數就是 0
-                countsMap.put(course.getId(), 0);
-            }
-        }
-
+        Map<Integer, Integer> countsMap = trialOccupancyCache.getNextOccurrenceBookedTrialCounts(courses);
         logger.info("完成獲取體驗預約計數，返回 Map 大小: {}", countsMap.size());
-        return countsMap; // 返回包含所有課程體驗預約計數的 Map
+        return countsMap;
     }
 
+    // 目錄查詢：靜態資料取自目錄快取，報名人數與額滿狀態取自座位帳本，體驗人數取自佔用人數快取
     @Override
-    @Transactional(readOnly = true)
     public List<CourseResponse> getAllCourses() {
         logger.info("獲取所有課程並轉換為 CourseResponse。");
-        // 呼叫 CourseDAO 中新增的 findAllWithImagesAndCoach() 方法
-        List<Course> courses = courseDAO.findAllWithImagesAndCoach();
-        // 獲取提供體驗選項的課程的下一個排程的 bookedTrialCounts
-        Map<Integer, Integer> bookedTrialCountsMap = getNextOccurrenceBookedTrialCounts(courses);
-        // 將 Course 實體列表轉換為 CourseResponse 列表
-        List<CourseResponse> responseList = courses.stream()
-             .map(course -> convertToCourseResponse(course, bookedTrialCountsMap.getOrDefault(course.getId(), 0)))
-             .collect(Collectors.toList());
+        List<CourseResponse> responseList = fillLiveCounts(catalogCache.getAllCourses());
         logger.info("返回 {} 個課程作為 CourseResponse。", responseList.size());
         return responseList;
     }
@@ -349,6 +273,9 @@ public class CourseServiceImpl implements CourseService {
         // 如果 Course 的 images 關聯設置了 CascadeType.PERSIST 或 ALL，CourseImage 會自動儲存
 
         logger.info("課程創建成功，ID: {}。", savedCourse.getId());
+        seatLedger.registerCourse(savedCourse.getId(), savedCourse.getMaxCapacity());
+        occurrenceIndex.registerCourse(savedCourse);
+        catalogCache.invalidate();
         // 獲取並返回包含圖片的完整 CourseResponse
         // 假設 findById 返回的 Course Entity 的 images 列表已經被載入 (通過 @EntityGraph 或 JOIN FETCH)
         Course fullCourse = courseDAO.findById(savedCourse.getId()).orElse(savedCourse);
@@ -497,6 +424,9 @@ public class CourseServiceImpl implements CourseService {
 
         Course updatedCourse = courseDAO.save(existingCourse); // 儲存更新後的 Course Entity
         logger.info("課程 ID {} 更新成功。", updatedCourse.getId());
+        seatLedger.registerCourse(updatedCourse.getId(), updatedCourse.getMaxCapacity());
+        occurrenceIndex.registerCourse(updatedCourse);
+        catalogCache.invalidate();
 
         // 獲取更新後的課程下一個排程的 bookedTrialCount (如果提供體驗選項)
          Integer bookedTrialCount = 0;
@@ -576,6 +506,9 @@ public class CourseServiceImpl implements CourseService {
         }
 
         courseDAO.deleteById(id);
+        seatLedger.removeCourse(id);
+        occurrenceIndex.removeCourse(id);
+        catalogCache.invalidate();
         logger.info("課程 ID {} 已刪除。", id);
     }
 
@@ -610,107 +543,48 @@ public class CourseServiceImpl implements CourseService {
 	}
 
     @Override
-    @Transactional(readOnly = true)
     public List<CourseResponse> searchCoursesByCourseName(String name) {
         logger.info("依課程名稱查詢：{}", name);
-        // 呼叫 CourseDAO 中覆寫的 findByNameContainingIgnoreCase(String name) 方法並加上 @EntityGraph({"images", "coach"})
-        List<Course> courses = courseDAO.findByNameContainingIgnoreCase(name);
+        List<CourseResponse> courses = catalogCache.searchByCourseName(name);
         logger.info("找到 {} 個匹配名稱 '{}' 的課程。", courses.size(), name);
-
-        // 批量獲取這些課程的體驗預約計數
-        Map<Integer, Integer> bookedTrialCountsMap = getNextOccurrenceBookedTrialCounts(courses);
-        // 使用 Stream 處理課程列表
-        return courses.stream()
-             .map(course -> {
-                 // 計算常規已報名人數和額滿狀態
-                 int registeredCount = enrollmentService.getEnrolledCount(course.getId());
-                 boolean isCourseActuallyFull = isCourseFull(course.getId()); // 使用 CourseService 中的方法
-
-                // 計算體驗預約人數和額滿狀態
-                 Integer bookedTrialCount = bookedTrialCountsMap.getOrDefault(course.getId(), 0);
-                 boolean isCourseTrialActuallyFull = isCourseTrialFull(course.getId(), bookedTrialCount); // 使用 CourseService 中的方法
-
-                 // 使用 convertToCourseResponse 轉換
-                 CourseResponse response = convertToCourseResponse(course, bookedTrialCount);
-                 // 填充常規報名和滿額狀態
-                 response.setRegisteredCount(registeredCount);
-                 response.setFull(isCourseActuallyFull);
-                 // 填充體驗預約和滿額狀態 (已在 convertToCourseResponse 內部處理)
-                 response.setBookedTrialCount(bookedTrialCount);
-                 response.setTrialFull(isCourseTrialActuallyFull);
-
-                 return response;
-             })
-             .collect(Collectors.toList());
+        return fillLiveCounts(courses);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<CourseResponse> searchCoursesByCoachName(String coachName) {
         logger.info("依教練名稱查詢：{}", coachName);
-        // 呼叫 CourseDAO 中修改的 findByCoachNameContainingIgnoreCase(String coachName) 方法 (帶 JOIN FETCH)
-        List<Course> courses = courseDAO.findByCoachNameContainingIgnoreCase(coachName);
+        List<CourseResponse> courses = catalogCache.searchByCoachName(coachName);
         logger.info("找到 {} 個匹配教練名稱 '{}' 的課程。", courses.size(), coachName);
-
-        // 批量獲取提供體驗選項的課程的下一個排程的 bookedTrialCounts
-        Map<Integer, Integer> bookedTrialCountsMap = getNextOccurrenceBookedTrialCounts(courses);
-        // 使用 Stream 處理課程列表
-        return courses.stream()
-             .map(course -> {
-                 // 計算常規已報名人數和額滿狀態
-                 int registeredCount = enrollmentService.getEnrolledCount(course.getId());
-                 boolean isCourseActuallyFull = isCourseFull(course.getId()); // 使用 CourseService 中的方法
-
-                // 計算體驗預約人數和額滿狀態
-                 Integer bookedTrialCount = bookedTrialCountsMap.getOrDefault(course.getId(), 0);
-                 boolean isCourseTrialActuallyFull = isCourseTrialFull(course.getId(), bookedTrialCount); // 使用 CourseService 中的方法
-
-                 // 使用 convertToCourseResponse 轉換
-                 CourseResponse response = convertToCourseResponse(course, bookedTrialCount);
-                 // 填充常規報名和滿額狀態
-                 response.setRegisteredCount(registeredCount);
-                 response.setFull(isCourseActuallyFull);
-                 // 填充體驗預約和滿額狀態 (已在 convertToCourseResponse 內部處理)
-                 response.setBookedTrialCount(bookedTrialCount);
-                 response.setTrialFull(isCourseTrialActuallyFull);
-
-                 return response;
-             })
-             .collect(Collectors.toList());
+        return fillLiveCounts(courses);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<CourseResponse> getCoursesByDayOfWeek(Integer dayOfWeek) {
         logger.info("依星期查詢課程：{}", dayOfWeek);
-        // 呼叫 CourseDAO 中覆寫的 findByDayOfWeek(Integer dayOfWeek) 方法並加上 @EntityGraph({"images", "coach"})
-        List<Course> courses = courseDAO.findByDayOfWeek(dayOfWeek);
+        List<CourseResponse> courses = catalogCache.getCoursesByDayOfWeek(dayOfWeek);
         logger.info("找到星期 {} 的 {} 個課程。", dayOfWeek, courses.size());
-        // 批量獲取提供體驗選項的課程的下一個排程的 bookedTrialCounts
-        Map<Integer, Integer> bookedTrialCountsMap = getNextOccurrenceBookedTrialCounts(courses);
-        // 轉換並帶入 bookedTrialCount 和圖片列表
-        return courses.stream()
-             .map(course -> {
-                 // 計算常規已報名人數和額滿狀態
-                 int registeredCount = enrollmentService.getEnrolledCount(course.getId());
-                 boolean isCourseActuallyFull = isCourseFull(course.getId()); // 使用 CourseService 中的方法
-
-                // 計算體驗預約人數和額滿狀態
-                 Integer bookedTrialCount = bookedTrialCountsMap.getOrDefault(course.getId(), 0);
-                 boolean isCourseTrialActuallyFull = isCourseTrialFull(course.getId(), bookedTrialCount); // 使用 CourseService 中的方法
-
-                 // 使用 convertToCourseResponse 轉換
-                 CourseResponse response = convertToCourseResponse(course, bookedTrialCount);
-                 // 填充常規報名和滿額狀態
-                 response.setRegisteredCount(registeredCount);
-                 response.setFull(isCourseActuallyFull);
-                 // 填充體驗預約和滿額狀態 (已在 convertToCourseResponse 內部處理)
-                 response.setBookedTrialCount(bookedTrialCount);
-                 response.setTrialFull(isCourseTrialActuallyFull);
+        return fillLiveCounts(courses);
+    }
 
-                 return response;
-             })
-             .collect(Collectors.toList());
+    // 輔助方法：為目錄快取回傳的 CourseResponse 填入即時的報名人數、體驗預約人數與額滿狀態
+    private List<CourseResponse> fillLiveCounts(List<CourseResponse> responses) {
+        List<Integer> trialCourseIds = responses.stream()
+                .filter(response -> Boolean.TRUE.equals(response.getOffersTrialOption()))
+                .map(CourseResponse::getId)
+                .collect(Collectors.toList());
+        Map<Integer, Integer> bookedTrialCountsMap = trialCourseIds.isEmpty()
+                ? Collections.emptyMap()
+                : trialOccupancyCache.getNextOccurrenceBookedTrialCountsByCourseIds(trialCourseIds);
+        for (CourseResponse response : responses) {
+            Integer bookedTrialCount = bookedTrialCountsMap.getOrDefault(response.getId(), 0);
+            Integer maxTrialCapacity = response.getMaxTrialCapacity();
+            response.setRegisteredCount(seatLedger.getRegisteredCount(response.getId()));
+            response.setFull(seatLedger.isFull(response.getId()));
+            response.setBookedTrialCount(bookedTrialCount);
+            response.setTrialFull(Boolean.TRUE.equals(response.getOffersTrialOption())
+                    && maxTrialCapacity != null && maxTrialCapacity > 0 && bookedTrialCount >= maxTrialCapacity);
+        }
+        return responses;
     }
 
     // 依日期時段查詢課程
@@ -718,16 +592,21 @@ public class CourseServiceImpl implements CourseService {
     @Transactional(readOnly = true)
     public List<CourseResponse> getCoursesByDateTimeRange(LocalDateTime startTime, LocalDateTime endTime) {
         logger.info("依日期時段查詢課程服務：查詢範圍從 {} 到 {}。", startTime, endTime);
-        // 1. 從資料庫獲取所有課程 (確保載入圖片和教練)
-        // 呼叫 CourseDAO 中新增的 findAllWithImagesAndCoach() 方法
-        List<Course> allCourses = courseDAO.findAllWithImagesAndCoach();
-        logger.info("獲取所有 {} 門課程，準備進行日期時段過濾。", allCourses.size());
-
-        // 2. 在 Service 層過濾課程，判斷其是否在給定的日期時間範圍內發生過
-        List<Course> filteredCourses = allCourses.stream()
-            .filter(course -> doesCourseOccurInRange(course, startTime, endTime))
+        // 1. 由上課時間索引找出在範圍內有上課的課程 ID (依最早上課時間排序)
+        List<Integer> courseIds = occurrenceIndex.findCourseIdsOccurringBetween(startTime, endTime);
+        if (courseIds.isEmpty()) {
+            logger.info("指定日期時段內沒有任何課程。");
+            return Collections.emptyList();
+        }
+
+        // 2. 只載入這些課程 (含圖片和教練)，並保持索引的排序
+        Map<Integer, Course> coursesById = courseDAO.findAllWithImagesAndCoachByIdIn(courseIds).stream()
+            .collect(Collectors.toMap(Course::getId, Function.identity()));
+        List<Course> filteredCourses = courseIds.stream()
+            .map(coursesById::get)
+            .filter(course -> course != null)
             .collect(Collectors.toList());
-        logger.info("過濾後找到 {} 門在指定日期時段內發生過的課程。", filteredCourses.size());
+        logger.info("找到 {} 門在指定日期時段內發生過的課程。", filteredCourses.size());
 
         // 3. 獲取過濾後課程的下一個排程的 bookedTrialCounts
         Map<Integer, Integer> bookedTrialCountsMap = getNextOccurrenceBookedTrialCounts(filteredCourses);
@@ -756,55 +635,6 @@ public class CourseServiceImpl implements CourseService {
              .collect(Collectors.toList());
     }
 
-    // 輔助方法：判斷一個課程在給定的日期時間範圍內是否有發生
-    private boolean doesCourseOccurInRange(Course course, LocalDateTime rangeStart, LocalDateTime rangeEnd) {
-        // 檢查必要的欄位是否存在且有效
-        if (course == null || course.getDayOfWeek() == null || course.getStartTime() == null ||
-            rangeStart == null || rangeEnd == null || rangeStart.isAfter(rangeEnd)) {
-            logger.warn("驗證發生範圍失敗：課程或範圍參數無效。課程 ID: {}, 星期: {}, 時間: {}, 範圍: {} 到 {}",
-                        course != null ? course.getId() : "N/A",
-                        course != null ? course.getDayOfWeek() : "N/A",
-                        course != null ? course.getStartTime() : "N/A",
-                        rangeStart, rangeEnd);
-            return false;
-        }
-
-        // 獲取課程設定的星期幾 (DayOfWeek enum)
-        // 假設你的資料庫是 0=Sun, 6=Sat
-        DayOfWeek courseDayOfWeek;
-        try {
-            // 將 0-6 (Sun-Sat) 轉換為 Java 的 1-7 (Mon-Sun)
-            courseDayOfWeek = DayOfWeek.of((course.getDayOfWeek() + 1) % 7 == 0 ? 7 : (course.getDayOfWeek() + 1) % 7);
-        } catch (Exception e) {
-            logger.warn("課程 ID {} 的星期幾值無效: {}.", course.getId(), course.getDayOfWeek());
-            return false;
-        }
-
-        LocalTime courseStartTime = course.getStartTime();
-        LocalDate currentCheckDate = rangeStart.toLocalDate();
-        // 找到第一個課程發生的日期，從 rangeStart 或之後開始計算
-        // 如果 rangeStart 是課程日，且開始時間在 rangeStart 之後或等於，就從 rangeStart 的課程日開始
-        // 否則從下一個課程日開始
-         LocalDateTime firstPossibleOccurrence = LocalDateTime.of(currentCheckDate.with(TemporalAdjusters.nextOrSame(courseDayOfWeek)), courseStartTime);
-         // 如果計算出的第一個可能發生時間點早於範圍開始時間，則移至下一週
-         if (firstPossibleOccurrence.isBefore(rangeStart)) {
-             firstPossibleOccurrence = firstPossibleOccurrence.plusWeeks(1);
-         }
-
-        // 從第一個可能發生時間點開始，一週一週往後檢查
-        LocalDateTime potentialOccurrence = firstPossibleOccurrence;
-        while (!potentialOccurrence.isAfter(rangeEnd)) {
-            // 如果當前檢查的時間點在範圍內 (包含邊界)
-            if (!potentialOccurrence.isBefore(rangeStart) && !potentialOccurrence.isAfter(rangeEnd)) {
-                return true; // 找到一次發生，返回 true
-            }
-            // 移至下一週
-            potentialOccurrence = potentialOccurrence.plusWeeks(1);
-        }
-
-        return false; // 在整個範圍內沒有找到任何發生時間
-    }
-
     // 實現 CourseService 介面中新加入的 getCourseDetailsIncludingCounts 方法
  	@Override
  	@Transactional(readOnly = true)
@@ -10,6 +10,7 @@ import com.healthmanagement.dto.course.EnrollmentDTO;
 import com.healthmanagement.dto.course.EnrollmentStatusUpdateDTO;
 import com.healthmanagement.model.course.Course;
 import com.healthmanagement.dto.course.CourseInfoDTO;
+import com.healthmanagement.dto.course.CourseCursorPageDTO;
 
 public interface EnrollmentService {
     // 常規課程報名 (已加入 24 小時限制和檢查是否為體驗課程)
@@ -36,6 +37,8 @@ public interface EnrollmentService {
     // 修改方法簽名以支援分頁和篩選
     // 查詢課程列表，包含使用者的報名/預約狀態和人數，並支援分頁及體驗課、星期幾篩選
     Page<CourseInfoDTO> getAllCoursesWithUserStatus(Integer userId, Integer page, Integer size, Boolean offersTrialOption, Integer dayOfWeek, String fullnessStatus);
+    // 以游標 (keyset) 分頁查詢課程列表，依星期幾、開始時間、ID 排序；滿額篩選在資料庫端完成，每頁固定 size 筆 (最後一頁除外)
+    CourseCursorPageDTO getCoursesWithUserStatusByCursor(Integer userId, String cursor, Integer size, Boolean offersTrialOption, Integer dayOfWeek, String fullnessStatus);
 
 	// 檢查特定課程是否存在活躍的常規報名記錄 (新增用於 CourseService 刪除檢查)
     boolean hasActiveEnrollmentsForCourse(Integer courseId);
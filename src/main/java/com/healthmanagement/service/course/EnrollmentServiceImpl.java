@@ -5,7 +5,6 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
@@ -17,6 +16,7 @@ import com.healthmanagement.dao.member.UserDAO;
 import com.healthmanagement.dto.course.EnrollmentDTO;
 import com.healthmanagement.dto.course.EnrollmentStatusUpdateDTO;
 import com.healthmanagement.dto.course.CourseInfoDTO;
+import com.healthmanagement.dto.course.CourseCursorPageDTO;
 import com.healthmanagement.dto.course.CourseImageDTO;
 import com.healthmanagement.model.course.Course;
 import com.healthmanagement.model.course.Enrollment;
@@ -26,11 +26,13 @@ import com.healthmanagement.model.course.CourseImage;
 
 import jakarta.persistence.EntityNotFoundException;
 
-import java.time.DayOfWeek;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -62,6 +64,21 @@ public class EnrollmentServiceImpl implements EnrollmentService {
     @Autowired
     private TrialBookingDAO trialBookingDAO;
 
+    @Autowired
+    private CourseSeatLedger seatLedger;
+
+    @Autowired
+    private WaitlistPromotionEngine waitlistPromotionEngine;
+
+    @Autowired
+    private CourseOccurrenceIndex occurrenceIndex;
+
+    @Autowired
+    private TrialOccupancyCache trialOccupancyCache;
+
+    @Autowired
+    private CourseLockManager courseLockManager;
+
     private static final String REGISTERED_STATUS = "已報名";
     private static final String CANCELLED_STATUS = "已取消";
     private static final String WAITING_STATUS = "候補中";
@@ -73,31 +90,9 @@ public class EnrollmentServiceImpl implements EnrollmentService {
 
     private static final long ENROLLMENT_CANCEL_CUTOFF_HOURS = 24;
 
-    // 計算課程的下一次發生時間，相對於當前日期時間 - 這是唯一一份實現
+    // 計算課程的下一次發生時間，相對於當前日期時間 (由上課時間索引計算)
     private LocalDateTime calculateNextCourseOccurrenceTime(Course course) {
-         if (course == null || course.getDayOfWeek() == null || course.getStartTime() == null) {
-              logger.warn("Course ID {} has incomplete scheduling info (dayOfWeek: {}, startTime: {}). Cannot calculate next occurrence.",
-                          course != null ? course.getId() : "N/A",
-                          course != null ? course.getDayOfWeek() : "N/A", course != null ? course.getStartTime() : "N/A");
-              return null;
-         }
-         LocalDate today = LocalDate.now();
-         LocalTime nowTime = LocalTime.now();
-         int dbDayOfWeek = course.getDayOfWeek();
-         DayOfWeek courseDayOfWeek = DayOfWeek.of((dbDayOfWeek + 1) % 7 == 0 ? 7 : (dbDayOfWeek + 1) % 7);
-         DayOfWeek todayDayOfWeek = today.getDayOfWeek();
-
-         LocalDate nextDate = today;
-         int daysUntilNext = courseDayOfWeek.getValue() - todayDayOfWeek.getValue();
-
-         if (daysUntilNext < 0) {
-             daysUntilNext += 7;
-         }
-         if (daysUntilNext == 0 && course.getStartTime().isBefore(nowTime)) {
-             daysUntilNext = 7;
-         }
-         nextDate = today.plusDays(daysUntilNext);
-         return LocalDateTime.of(nextDate, course.getStartTime());
+        return occurrenceIndex.getNextOccurrence(course);
     }
 
     private boolean isWithinHours(Course course, long hours) {
@@ -110,22 +105,35 @@ public class EnrollmentServiceImpl implements EnrollmentService {
         return nextCourseTime.isAfter(now) && ChronoUnit.HOURS.between(now, nextCourseTime) < hours;
     }
 
+    // 使用座位帳本檢查使用者是否已有活躍 (已報名/候補中) 的常規報名，O(1) 不查資料庫
+    private void assertNoActiveEnrollment(User user, Course course) {
+        String activeStatus = seatLedger.getActiveStatus(course.getId(), user.getId());
+        if (activeStatus == null) {
+            logger.info("使用者 ID {} 於課程 ID {} 不存在活躍常規報名記錄。", user.getId(), course.getId());
+            return;
+        }
+        logger.warn("使用者 ID {} 已有課程 ID {} 的活躍常規報名記錄 ({})。", user.getId(), course.getId(), activeStatus);
+        if (REGISTERED_STATUS.equals(activeStatus)) {
+            throw new IllegalStateException("您已報名此課程");
+        } else if (WAITING_STATUS.equals(activeStatus)) {
+            throw new IllegalStateException("您已在候補名單中");
+        } else {
+            throw new IllegalStateException("您已存在其他活躍狀態的報名記錄於此課程。");
+        }
+    }
+
+    // 交易開始前先以輕量查詢取得報名所屬課程，用於上鎖；上鎖後才在交易中載入報名實體，確保讀到的是前一個請求提交後的狀態。
+    // 找不到報名時回傳 null (不上鎖，交易中的查詢會丟出找不到的例外)
+    private Integer courseIdOfEnrollment(Integer enrollmentId) {
+        return enrollmentDAO.findCourseIdById(enrollmentId).orElse(null);
+    }
+
     @Transactional
     protected Enrollment performEnrollmentLogic(User user, Course course) {
         logger.info("執行核心報名邏輯，使用者 ID: {}，課程 ID: {}", user.getId(), course.getId());
-        if (enrollmentDAO.existsByUserAndCourseAndStatusNotIn(user, course, INACTIVE_ENROLLMENT_STATUSES)) {
-             logger.warn("使用者 ID {} 已有課程 ID {} 的活躍常規報名記錄。", user.getId(), course.getId());
-             if (enrollmentDAO.existsByUserAndCourseAndStatus(user, course, REGISTERED_STATUS)) {
-                 throw new IllegalStateException("您已報名此課程");
-             } else if (enrollmentDAO.existsByUserAndCourseAndStatus(user, course, WAITING_STATUS)) {
-                 throw new IllegalStateException("您已在候補名單中");
-             } else {
-                 throw new IllegalStateException("您已存在其他活躍狀態的報名記錄於此課程。");
-             }
-        }
-        logger.info("使用者 ID {} 於課程 ID {} 不存在活躍常規報名記錄。", user.getId(), course.getId());
+        assertNoActiveEnrollment(user, course);
 
-        if (isCourseFull(course.getId())) {
+        if (!seatLedger.tryReserveSeat(course.getId(), user.getId())) {
             logger.info("課程 ID {} 已滿，將使用者 ID {} 加入候補名單。", course.getId(), user.getId());
             Enrollment waitlistItem = Enrollment.builder()
                     .user(user)
@@ -133,7 +141,9 @@ public class EnrollmentServiceImpl implements EnrollmentService {
                     .enrollmentTime(LocalDateTime.now())
                     .status(WAITING_STATUS)
                     .build();
-            return enrollmentDAO.save(waitlistItem);
+            Enrollment savedWaitlistItem = enrollmentDAO.save(waitlistItem);
+            seatLedger.onStatusChange(course.getId(), user.getId(), null, WAITING_STATUS);
+            return savedWaitlistItem;
         } else {
             logger.info("課程 ID {} 未滿，將嘗試直接報名使用者 ID {}。", user.getId(), course.getId());
             Optional<Enrollment> existingCancelledEnrollmentOpt = enrollmentDAO.findByUserAndCourseAndStatus(user, course, CANCELLED_STATUS);
@@ -157,68 +167,71 @@ public class EnrollmentServiceImpl implements EnrollmentService {
         }
     }
 
-    @Transactional
     @Override
     public EnrollmentDTO enrollUserToCourse(Integer userId, Integer courseId) {
         logger.info("使用者 ID {} 嘗試報名常規課程 ID: {}", userId, courseId);
-        User user = userDAO.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("找不到使用者 ID: " + userId));
-        Course course = courseDAO.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("找不到課程 ID: " + courseId));
-
-        if (isWithinHours(course, ENROLLMENT_CANCEL_CUTOFF_HOURS)) {
-            LocalDateTime nextCourseTime = calculateNextCourseOccurrenceTime(course);
-            logger.warn("使用者 ID {} 報名課程 ID {} 失敗：課程將於 {} 開始，距離不足 {} 小時。",
-                       userId, courseId, nextCourseTime, ENROLLMENT_CANCEL_CUTOFF_HOURS);
-            throw new IllegalStateException(String.format("報名失敗：課程將於 %s 開始，距離不足 %d 小時。",
-                    nextCourseTime != null ? nextCourseTime.toString() : "未知時間", ENROLLMENT_CANCEL_CUTOFF_HOURS));
-        }
-        logger.info("確認課程 ID {} 報名時間符合提前預約時限 (提前 {} 小時)", courseId, ENROLLMENT_CANCEL_CUTOFF_HOURS);
+        // 同一課程的報名、取消、候補依序執行，避免兩個請求同時通過額滿檢查 (先取得課程鎖再開始交易)
+        return courseLockManager.executeLocked(courseId, status -> {
+            User user = userDAO.findById(userId)
+                    .orElseThrow(() -> new EntityNotFoundException("找不到使用者 ID: " + userId));
+            Course course = courseDAO.findById(courseId)
+                    .orElseThrow(() -> new EntityNotFoundException("找不到課程 ID: " + courseId));
+
+            if (isWithinHours(course, ENROLLMENT_CANCEL_CUTOFF_HOURS)) {
+                LocalDateTime nextCourseTime = calculateNextCourseOccurrenceTime(course);
+                logger.warn("使用者 ID {} 報名課程 ID {} 失敗：課程將於 {} 開始，距離不足 {} 小時。",
+                           userId, courseId, nextCourseTime, ENROLLMENT_CANCEL_CUTOFF_HOURS);
+                throw new IllegalStateException(String.format("報名失敗：課程將於 %s 開始，距離不足 %d 小時。",
+                        nextCourseTime != null ? nextCourseTime.toString() : "未知時間", ENROLLMENT_CANCEL_CUTOFF_HOURS));
+            }
+            logger.info("確認課程 ID {} 報名時間符合提前預約時限 (提前 {} 小時)", courseId, ENROLLMENT_CANCEL_CUTOFF_HOURS);
 
-        Enrollment resultEnrollment = performEnrollmentLogic(user, course);
-        return convertToEnrollmentDTO(resultEnrollment);
+            Enrollment resultEnrollment = performEnrollmentLogic(user, course);
+            return convertToEnrollmentDTO(resultEnrollment);
+        });
     }
 
-    @Transactional
     @Override
     public void cancelEnrollment(Integer enrollmentId) {
         logger.info("嘗試取消常規報名 ID: {}", enrollmentId);
-        Enrollment enrollment = enrollmentDAO.findById(enrollmentId)
-                .orElseThrow(() -> new EntityNotFoundException("找不到報名 ID: + enrollmentId"));
-        Course course = enrollment.getCourse();
-        if (course == null) {
-            logger.error("報名 ID {} 關聯的課程為 null，無法檢查取消時限。", enrollmentId);
-            throw new IllegalStateException("報名記錄關聯的課程無效，無法取消。");
-        }
+        courseLockManager.executeLocked(courseIdOfEnrollment(enrollmentId), status -> {
+            Enrollment enrollment = enrollmentDAO.findById(enrollmentId)
+                    .orElseThrow(() -> new EntityNotFoundException("找不到報名 ID: + enrollmentId"));
+            Course course = enrollment.getCourse();
+            if (course == null) {
+                logger.error("報名 ID {} 關聯的課程為 null，無法檢查取消時限。", enrollmentId);
+                throw new IllegalStateException("報名記錄關聯的課程無效，無法取消。");
+            }
 
-        if (isWithinHours(course, ENROLLMENT_CANCEL_CUTOFF_HOURS)) {
-            LocalDateTime nextCourseTime = calculateNextCourseOccurrenceTime(course);
-            logger.warn("取消報名 ID {} 失敗：課程將於 {} 開始，距離不足 {} 小時。",
-                       enrollmentId, nextCourseTime, ENROLLMENT_CANCEL_CUTOFF_HOURS);
-            throw new IllegalStateException(String.format("取消失敗：課程將於 %s 開始，距離不足 %d 小時。",
-                    nextCourseTime != null ? nextCourseTime.toString() : "未知時間", ENROLLMENT_CANCEL_CUTOFF_HOURS));
-        }
-        logger.info("確認報名 ID {} 取消時間符合提前取消時限 (提前 {} 小時)", enrollmentId, ENROLLMENT_CANCEL_CUTOFF_HOURS);
+            if (isWithinHours(course, ENROLLMENT_CANCEL_CUTOFF_HOURS)) {
+                LocalDateTime nextCourseTime = calculateNextCourseOccurrenceTime(course);
+                logger.warn("取消報名 ID {} 失敗：課程將於 {} 開始，距離不足 {} 小時。",
+                           enrollmentId, nextCourseTime, ENROLLMENT_CANCEL_CUTOFF_HOURS);
+                throw new IllegalStateException(String.format("取消失敗：課程將於 %s 開始，距離不足 %d 小時。",
+                        nextCourseTime != null ? nextCourseTime.toString() : "未知時間", ENROLLMENT_CANCEL_CUTOFF_HOURS));
+            }
+            logger.info("確認報名 ID {} 取消時間符合提前取消時限 (提前 {} 小時)", enrollmentId, ENROLLMENT_CANCEL_CUTOFF_HOURS);
 
-        if (INACTIVE_ENROLLMENT_STATUSES.contains(enrollment.getStatus())) {
-            logger.warn("報名 ID {} 狀態 {} 不允許取消。", enrollmentId, enrollment.getStatus());
-            throw new IllegalStateException(String.format("報名狀態不正確，無法取消。目前狀態: %s", enrollment.getStatus()));
-        }
+            if (INACTIVE_ENROLLMENT_STATUSES.contains(enrollment.getStatus())) {
+                logger.warn("報名 ID {} 狀態 {} 不允許取消。", enrollmentId, enrollment.getStatus());
+                throw new IllegalStateException(String.format("報名狀態不正確，無法取消。目前狀態: %s", enrollment.getStatus()));
+            }
 
-        boolean wasRegistered = REGISTERED_STATUS.equals(enrollment.getStatus());
-        logger.info("報名 ID {} 原狀態為 {}", enrollmentId, enrollment.getStatus());
+            String oldStatus = enrollment.getStatus();
+            boolean wasRegistered = REGISTERED_STATUS.equals(oldStatus);
+            logger.info("報名 ID {} 原狀態為 {}", enrollmentId, oldStatus);
 
-        enrollment.setStatus(CANCELLED_STATUS);
-        enrollmentDAO.save(enrollment);
-        logger.info("報名 ID {} 狀態更新為 {}。", enrollmentId, CANCELLED_STATUS);
+            enrollment.setStatus(CANCELLED_STATUS);
+            enrollmentDAO.save(enrollment);
+            seatLedger.onStatusChange(course.getId(), enrollment.getUser().getId(), oldStatus, CANCELLED_STATUS);
+            logger.info("報名 ID {} 狀態更新為 {}。", enrollmentId, CANCELLED_STATUS);
 
-        if (wasRegistered) {
-             if (!isCourseFull(course.getId())) {
-                processWaitlist(course.getId());
-             } else {
-                 logger.info("課程 ID {} 仍滿，手動取消報名 ID {} 未觸發候補遞補。", course.getId(), enrollmentId);
-             }
-        }
+            if (wasRegistered) {
+                 // 交易 commit 後排入背景遞補佇列，同一課程的多次取消會合併為一次遞補
+                 waitlistPromotionEngine.requestPromotion(course.getId());
+            }
+            return null;
+        });
     }
 
     @Override
@@ -252,40 +265,24 @@ public class EnrollmentServiceImpl implements EnrollmentService {
     @Override
     @Transactional(readOnly = true)
     public boolean isCourseFull(Integer courseId) {
-        logger.info("檢查常規課程 ID {} 是否已滿...", courseId);
-        Course course = courseDAO.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("Course not found with id: " + courseId));
-
-        int enrolledCount = enrollmentDAO.countByCourseAndStatus(course, REGISTERED_STATUS);
-        boolean isFull = course.getMaxCapacity() != null && course.getMaxCapacity() > 0 && enrolledCount >= course.getMaxCapacity();
-        logger.info("常規課程 ID {} 已報名人數: {}，最大容量: {}，是否已滿: {}",
-                   courseId, enrolledCount, course.getMaxCapacity(), isFull);
+        boolean isFull = seatLedger.isFull(courseId);
+        logger.debug("常規課程 ID {} 已報名人數: {}，是否已滿: {}", courseId, seatLedger.getRegisteredCount(courseId), isFull);
         return isFull;
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean isUserEnrolled(Integer userId, Integer courseId) {
-        logger.info("檢查使用者 ID {} 是否已有效報名或候補常規課程 ID: {}", userId, courseId);
-        User user = userDAO.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("查無此會員編號"));
-        Course course = courseDAO.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("Course not found with id: " + courseId));
-
-        boolean isEnrolled = enrollmentDAO.existsByUserAndCourseAndStatusNotIn(user, course, INACTIVE_ENROLLMENT_STATUSES);
-        logger.info("使用者 ID {} 是否已有效報名或候補常規課程 ID {}: {}", userId, courseId, isEnrolled);
+        boolean isEnrolled = seatLedger.isActiveMember(courseId, userId);
+        logger.debug("使用者 ID {} 是否已有效報名或候補常規課程 ID {}: {}", userId, courseId, isEnrolled);
         return isEnrolled;
     }
 
     @Override
     @Transactional(readOnly = true)
     public int getEnrolledCount(Integer courseId) {
-        logger.info("查詢常規課程 ID {} 的已報名人數...", courseId);
-        Course course = courseDAO.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("Course not found with id: " + courseId));
-
-        int count = enrollmentDAO.countByCourseAndStatus(course, REGISTERED_STATUS);
-        logger.info("常規課程 ID {} 的已報名人數: {}", courseId, count);
+        int count = seatLedger.getRegisteredCount(courseId);
+        logger.debug("常規課程 ID {} 的已報名人數: {}", courseId, count);
         return count;
     }
 
@@ -435,21 +432,123 @@ public class EnrollmentServiceImpl implements EnrollmentService {
         }
         logger.debug("找到 {} 條課程記錄 (當前頁)，總數 {}。", courses.size(), totalElements);
 
-        final User finalUser = (userId != null) ?
-                userDAO.findById(userId).orElse(null) : null;
-        if (userId != null && finalUser == null) {
-            logger.warn("傳入的使用者 ID {} 未找到對應的 User 實體，將無法查詢個人狀態。", userId);
-        }
-
         List<Integer> currentCourseIds = courses.stream().map(Course::getId).collect(Collectors.toList());
         List<Enrollment> currentCoursesRegisteredEnrollments = enrollmentDAO.findByCourseIdInAndStatus(currentCourseIds, REGISTERED_STATUS);
         List<Enrollment> currentCoursesWaitingEnrollments = enrollmentDAO.findByCourseIdInAndStatus(currentCourseIds, WAITING_STATUS);
-        final Map<Integer, Long> registeredCountsMap = currentCoursesRegisteredEnrollments.stream()
+        Map<Integer, Long> registeredCountsMap = currentCoursesRegisteredEnrollments.stream()
                 .filter(e -> e.getCourse() != null)
                 .collect(Collectors.groupingBy(e -> e.getCourse().getId(), Collectors.counting()));
-        final Map<Integer, Long> waitlistCountsMap = currentCoursesWaitingEnrollments.stream()
+        Map<Integer, Long> waitlistCountsMap = currentCoursesWaitingEnrollments.stream()
                 .filter(e -> e.getCourse() != null)
                 .collect(Collectors.groupingBy(e -> e.getCourse().getId(), Collectors.counting()));
+        List<CourseInfoDTO> courseInfoDTOs = buildCourseInfoDTOs(courses, userId, registeredCountsMap, waitlistCountsMap);
+
+        if (filterIsFull != null) {
+            logger.info("在 Service 層根據滿額狀態 {} 過濾課程列表。", fullnessStatus);
+            courseInfoDTOs = courseInfoDTOs.stream()
+                // 這裡使用 filterIsFull 變數，它是 final 的
+                // 並且呼叫 DTO 的 isFull() 方法
+                .filter(dto -> filterIsFull.equals(dto.isFull())) // <--- 這裡使用了 filterIsFull.equals(dto.isFull())
+                .collect(Collectors.toList());
+            logger.info("過濾後剩下 {} 條課程記錄。", courseInfoDTOs.size());
+        }
+
+        return new PageImpl<>(courseInfoDTOs, pageable, totalElements);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CourseCursorPageDTO getCoursesWithUserStatusByCursor(Integer userId, String cursor, Integer size, Boolean offersTrialOption, Integer dayOfWeek, String fullnessStatus) {
+        logger.info("以游標查詢課程列表並包含使用者 {} 的狀態，游標: {}, 每頁: {}, 體驗課過濾: {}, 星期幾過濾: {}, 滿額狀態過濾: {}...",
+                    userId != null ? userId : "匿名", cursor != null ? cursor : "第一頁", size,
+                    offersTrialOption != null ? offersTrialOption : "無過濾",
+                    dayOfWeek != null ? dayOfWeek : "無過濾", fullnessStatus != null ? fullnessStatus : "無過濾");
+        if (size == null || size <= 0) {
+            throw new IllegalArgumentException("每頁數量必須大於 0。");
+        }
+        int fullnessMode = "full".equals(fullnessStatus) ? 1 : "notFull".equals(fullnessStatus) ? 2 : 0;
+        CourseCursor after = CourseCursor.decode(cursor);
+
+        // 單一查詢：keyset 定位、報名/候補人數與滿額篩選都在 SQL 端完成；多取一筆用來判斷是否有下一頁
+        List<Object[]> rows = courseDAO.findCourseSeatCountsAfterCursor(offersTrialOption, dayOfWeek, fullnessMode,
+                REGISTERED_STATUS, WAITING_STATUS, after.dayOfWeek(), after.startTime(), after.id(),
+                PageRequest.of(0, size + 1));
+        boolean hasNext = rows.size() > size;
+        if (hasNext) {
+            rows = rows.subList(0, size);
+        }
+        if (rows.isEmpty()) {
+            logger.info("游標之後沒有符合條件的課程。");
+            return CourseCursorPageDTO.builder().content(Collections.emptyList()).size(size).hasNext(false).build();
+        }
+
+        List<Integer> courseIds = new ArrayList<>(rows.size());
+        Map<Integer, Long> registeredCountsMap = new HashMap<>();
+        Map<Integer, Long> waitlistCountsMap = new HashMap<>();
+        for (Object[] row : rows) {
+            Integer courseId = (Integer) row[0];
+            courseIds.add(courseId);
+            registeredCountsMap.put(courseId, ((Number) row[1]).longValue());
+            waitlistCountsMap.put(courseId, ((Number) row[2]).longValue());
+        }
+        // 依 keyset 查詢的順序排列課程實體 (含教練與圖片)
+        Map<Integer, Course> coursesById = courseDAO.findAllWithImagesAndCoachByIdIn(courseIds).stream()
+                .collect(Collectors.toMap(Course::getId, Function.identity()));
+        List<Course> courses = courseIds.stream()
+                .map(coursesById::get)
+                .filter(course -> course != null)
+                .collect(Collectors.toList());
+
+        List<CourseInfoDTO> courseInfoDTOs = buildCourseInfoDTOs(courses, userId, registeredCountsMap, waitlistCountsMap);
+        Course last = courses.isEmpty() ? null : courses.get(courses.size() - 1);
+        String nextCursor = hasNext && last != null
+                ? new CourseCursor(last.getDayOfWeek(), last.getStartTime(), last.getId()).encode()
+                : null;
+        logger.info("游標查詢返回 {} 個課程，是否有下一頁: {}。", courseInfoDTOs.size(), hasNext);
+        return CourseCursorPageDTO.builder()
+                .content(courseInfoDTOs)
+                .size(size)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    // 課程列表游標：最後一筆課程的 (星期幾, 開始時間, ID)，以 URL-safe Base64 編碼後交給前端
+    private record CourseCursor(Integer dayOfWeek, LocalTime startTime, Integer id) {
+
+        // 第一頁：排在所有課程之前
+        static final CourseCursor FIRST = new CourseCursor(-1, LocalTime.MIN, 0);
+
+        String encode() {
+            String raw = dayOfWeek + "|" + startTime + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static CourseCursor decode(String cursor) {
+            if (!StringUtils.hasText(cursor)) {
+                return FIRST;
+            }
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|");
+                return new CourseCursor(Integer.valueOf(parts[0]), LocalTime.parse(parts[1]), Integer.valueOf(parts[2]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("無效的分頁游標：" + cursor);
+            }
+        }
+    }
+
+    // == 內部輔助方法：為一頁課程補上使用者報名/體驗預約狀態與體驗人數，轉換為 CourseInfoDTO (保持傳入順序) ==
+    private List<CourseInfoDTO> buildCourseInfoDTOs(List<Course> courses, Integer userId,
+                                                    Map<Integer, Long> registeredCountsMap,
+                                                    Map<Integer, Long> waitlistCountsMap) {
+        final User finalUser = (userId != null) ?
+                userDAO.findById(userId).orElse(null) : null;
+        if (userId != null && finalUser == null) {
+            logger.warn("傳入的使用者 ID {} 未找到對應的 User 實體，將無法查詢個人狀態。", userId);
+        }
+
+        List<Integer> currentCourseIds = courses.stream().map(Course::getId).collect(Collectors.toList());
         final Map<Integer, Enrollment> userActiveEnrollmentsMap = (finalUser != null) ?
                 enrollmentDAO.findByUserAndCourseIdInAndStatusNotIn(finalUser, currentCourseIds, INACTIVE_ENROLLMENT_STATUSES).stream()
                         .filter(e -> e.getCourse() != null)
@@ -460,35 +559,11 @@ public class EnrollmentServiceImpl implements EnrollmentService {
         List<Course> currentCoursesOfferingTrial = courses.stream()
                 .filter(course -> course.getOffersTrialOption() != null && course.getOffersTrialOption())
                 .collect(Collectors.toList());
-        Map<Integer, LocalDateTime> nextOccurrenceTimes = currentCoursesOfferingTrial.stream()
-                .collect(Collectors.toMap(
-                        Course::getId,
-                        this::calculateNextCourseOccurrenceTime
-                ));
-        List<Integer> courseIdsForTrialCountQuery = nextOccurrenceTimes.entrySet().stream()
-                .filter(entry -> entry.getValue() != null)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
-
-        Map<Integer, Integer> bookedTrialCountsMap = new HashMap<>();
-        if (!courseIdsForTrialCountQuery.isEmpty()) {
-             for (Integer courseId : courseIdsForTrialCountQuery) {
-                 LocalDateTime nextTime = nextOccurrenceTimes.get(courseId);
-                 if (nextTime != null) {
-                     int count = trialBookingDAO.countTrialBookingsByCourseDateActualStartTimeAndStatusNotInNative(
-                         courseId,
-                         nextTime.toLocalDate(),
-                         nextTime.toLocalTime(),
-                         INACTIVE_TRIAL_STATUSES
-                     );
-                     logger.debug("課程 ID {} 在 {} 體驗預約計數查詢結果: {}", courseId, nextTime, count);
-                     bookedTrialCountsMap.put(courseId, count);
-                 }
-             }
-             logger.debug("獲取了當前頁提供體驗選項課程的下一個排程體驗預約計數。");
-        } else {
-            logger.debug("當前頁沒有提供體驗選項的課程，跳過體驗預約計數查詢。");
-        }
+        // 單一分組查詢 (經短 TTL 快取) 取得當前頁提供體驗選項課程的下一個排程體驗預約計數
+        Map<Integer, Integer> bookedTrialCountsMap = currentCoursesOfferingTrial.isEmpty() ?
+                Collections.emptyMap() :
+                trialOccupancyCache.getNextOccurrenceBookedTrialCounts(currentCoursesOfferingTrial);
+        logger.debug("獲取了當前頁提供體驗選項課程的下一個排程體驗預約計數。");
 
      final Map<Integer, TrialBooking> userActiveTrialBookingsMap;
      if (finalUser != null && !currentCoursesOfferingTrial.isEmpty()) {
@@ -515,255 +590,103 @@ public class EnrollmentServiceImpl implements EnrollmentService {
           logger.debug("使用者未登入或當前頁沒有提供體驗選項的課程，跳過體驗預約記錄查詢。");
      }
 
-     List<CourseInfoDTO> courseInfoDTOs = courses.stream()
-         .map(course -> convertToCourseInfoDTO(course, finalUser,
-                                               registeredCountsMap, waitlistCountsMap,
-                                               userActiveEnrollmentsMap, bookedTrialCountsMap,
-                                               userActiveTrialBookingsMap))
-         .collect(Collectors.toList());
-
-        if (filterIsFull != null) {
-            logger.info("在 Service 層根據滿額狀態 {} 過濾課程列表。", fullnessStatus);
-            courseInfoDTOs = courseInfoDTOs.stream()
-                // 這裡使用 filterIsFull 變數，它是 final 的
-                // 並且呼叫 DTO 的 isFull() 方法
-                .filter(dto -> filterIsFull.equals(dto.isFull())) // <--- 這裡使用了 filterIsFull.equals(dto.isFull())
-                .collect(Collectors.toList());
-            logger.info("過濾後剩下 {} 條課程記錄。", courseInfoDTOs.size());
-        }
-
-        return new PageImpl<>(courseInfoDTOs, pageable, totalElements);
+        return courses.stream()
+            .map(course -> convertToCourseInfoDTO(course, finalUser,
+                                                  registeredCountsMap, waitlistCountsMap,
+                                                  userActiveEnrollmentsMap, bookedTrialCountsMap,
+                                                  userActiveTrialBookingsMap))
+            .collect(Collectors.toList());
     }
 
-    @Transactional
     @Override
     public EnrollmentDTO addWaitlistItem(Integer userId, Integer courseId) {
         logger.info("嘗試將使用者 ID {} 加入課程 ID {} 的候補名單...", userId, courseId);
-        User user = userDAO.findById(userId)
-                .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
-        Course course = courseDAO.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("Course not found with id: " + courseId));
-
-        if (enrollmentDAO.existsByUserAndCourseAndStatusNotIn(user, course, INACTIVE_ENROLLMENT_STATUSES)) {
-             logger.warn("使用者 ID {} 已有課程 ID {} 的活躍常規報名記錄。", user.getId(), course.getId());
-             if (enrollmentDAO.existsByUserAndCourseAndStatus(user, course, REGISTERED_STATUS)) {
-                 throw new IllegalStateException("您已報名此課程");
-             } else if (enrollmentDAO.existsByUserAndCourseAndStatus(user, course, WAITING_STATUS)) {
-                 throw new IllegalStateException("您已在候補名單中");
-             } else {
-                 throw new IllegalStateException("您已存在其他活躍狀態的報名記錄於此課程。");
-             }
-        }
-        logger.info("使用者 ID {} 於課程 ID {} 不存在活躍常規報名記錄。", user.getId(), course.getId());
+        return courseLockManager.executeLocked(courseId, status -> {
+            User user = userDAO.findById(userId)
+                    .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + userId));
+            Course course = courseDAO.findById(courseId)
+                    .orElseThrow(() -> new EntityNotFoundException("Course not found with id: " + courseId));
 
-        if (!isCourseFull(course.getId())) {
-             logger.warn("嘗試將使用者 ID {} 加入課程 ID {} 的候補名單，但課程未滿。", user.getId(), courseId);
-             throw new IllegalStateException("課程未滿，可以直接報名。");
-        }
+            assertNoActiveEnrollment(user, course);
 
-        Enrollment waitlistItem = Enrollment.builder()
-                .user(user)
-                .course(course)
-                .enrollmentTime(LocalDateTime.now())
-                .status(WAITING_STATUS)
-                .build();
-        Enrollment savedWaitlistItem = enrollmentDAO.save(waitlistItem);
-        logger.info("使用者 ID {} 成功加入課程 ID {} 的候補名單，報名 ID: {}",
-                   user.getId(), course.getId(), savedWaitlistItem.getId());
-        return convertToEnrollmentDTO(savedWaitlistItem);
+            if (!isCourseFull(course.getId())) {
+                 logger.warn("嘗試將使用者 ID {} 加入課程 ID {} 的候補名單，但課程未滿。", user.getId(), courseId);
+                 throw new IllegalStateException("課程未滿，可以直接報名。");
+            }
+
+            Enrollment waitlistItem = Enrollment.builder()
+                    .user(user)
+                    .course(course)
+                    .enrollmentTime(LocalDateTime.now())
+                    .status(WAITING_STATUS)
+                    .build();
+            Enrollment savedWaitlistItem = enrollmentDAO.save(waitlistItem);
+            seatLedger.onStatusChange(course.getId(), user.getId(), null, WAITING_STATUS);
+            logger.info("使用者 ID {} 成功加入課程 ID {} 的候補名單，報名 ID: {}",
+                       user.getId(), course.getId(), savedWaitlistItem.getId());
+            return convertToEnrollmentDTO(savedWaitlistItem);
+        });
     }
 
-    @Transactional
     @Override
     public void processWaitlist(Integer courseId) {
         logger.info("處理常規課程 ID {} 的候補名單自動遞補...", courseId);
-        Course course = courseDAO.findById(courseId)
-                .orElseThrow(() -> new EntityNotFoundException("Course not found with id: " + courseId));
-
-        logger.info("課程 ID {} 接受常規報名，進行候補遞補處理。", courseId);
-
-        long registeredCount = enrollmentDAO.countByCourseAndStatus(course, REGISTERED_STATUS);
-        Integer maxCapacity = course.getMaxCapacity();
-
-        if (maxCapacity != null && maxCapacity > 0 && registeredCount < maxCapacity) {
-            logger.info("課程 ID {} 有空位，已報名人數: {}，最大容量: {}", course.getId(), registeredCount, maxCapacity);
-            List<Enrollment> waitingList = enrollmentDAO.findByCourseAndStatusOrderByEnrollmentTimeAsc(course, WAITING_STATUS);
-            if (waitingList.isEmpty()) {
-                logger.info("課程 ID {} 候補名單為空，無需遞補。", course.getId());
-                return;
-            }
-            logger.info("課程 ID {} 找到 {} 位候補中的使用者。", course.getId(), waitingList.size());
-
-            int slotsAvailable = (int) Math.max(0, maxCapacity - registeredCount);
-
-            int promotedCount = 0;
-            for (int i = 0; i < Math.min(slotsAvailable, waitingList.size()); i++) {
-                Enrollment enrollment = waitingList.get(i);
-                 if (WAITING_STATUS.equals(enrollment.getStatus())) {
-                     enrollment.setStatus(REGISTERED_STATUS);
-                     enrollmentDAO.save(enrollment);
-                     promotedCount++;
-                     logger.info("候補名單自動遞補：使用者 {} (報名 ID {}) 已從候補遞補為已報名 課程 ID: {}",
-                             enrollment.getUser() != null ? enrollment.getUser().getId() : "Unknown User",
-                             enrollment.getId(), course.getId());
-                 } else {
-                      logger.warn("候補報名 ID {} 狀態 {} 不正確，跳過遞補。", enrollment.getId(), enrollment.getStatus());
-                 }
-            }
-            logger.info("課程 ID {} 候補名單自動遞補完成，遞補了 {} 位使用者。", course.getId(), promotedCount);
-        } else {
-            logger.info("課程 ID {} 已滿、最大容量未設定或無空位，無需遞補。 已報名人數: {}，最大容量: {}", course.getId(), registeredCount, maxCapacity);
+        if (!courseDAO.existsById(courseId)) {
+            throw new EntityNotFoundException("Course not found with id: " + courseId);
         }
+        int promotedCount = courseLockManager.executeLocked(courseId,
+                status -> waitlistPromotionEngine.promote(courseId));
+        logger.info("課程 ID {} 候補名單自動遞補完成，遞補了 {} 位使用者。", courseId, promotedCount);
     }
 
-    @Transactional
     @Override
     public EnrollmentDTO updateEnrollmentStatus(Integer enrollmentId, EnrollmentStatusUpdateDTO updateDTO) {
         String newStatus = updateDTO.getStatus();
         logger.info("嘗試手動更新報名 ID {} 的狀態為 {}", enrollmentId, newStatus);
-        Enrollment enrollment = enrollmentDAO.findById(enrollmentId)
-                .orElseThrow(() -> new EntityNotFoundException("找不到報名 ID: + enrollmentId"));
-        String oldStatus = enrollment.getStatus();
-
-        if (oldStatus.equals(newStatus)) {
-             logger.warn("報名 ID {} 狀態已為 {}，無需更新。", enrollmentId, newStatus);
-             return convertToEnrollmentDTO(enrollment);
-        }
-        if (INACTIVE_ENROLLMENT_STATUSES.contains(oldStatus)) {
-             logger.warn("無法從目前狀態 '{}' 更改報名 ID {} 的狀態。", oldStatus, enrollmentId);
-             throw new IllegalStateException(String.format("無法從目前狀態 '%s' 更改報名狀態。", oldStatus));
-        }
-
-        enrollment.setStatus(newStatus);
-        Enrollment updatedEnrollmentEntity = enrollmentDAO.save(enrollment);
-        logger.info("報名 ID {} 狀態成功從 {} 更新為 {}", enrollmentId, oldStatus, newStatus);
-
-        boolean wasActive = ACTIVE_ENROLLMENT_STATUSES.contains(oldStatus);
-        boolean isNowCancelled = CANCELLED_STATUS.equals(newStatus);
-        if (wasActive && isNowCancelled) {
-            logger.info("報名 ID {} 狀態從活躍 ({}) 變為已取消，觸發候補遞補流程。", enrollmentId, oldStatus);
-            Course course = updatedEnrollmentEntity.getCourse();
-            if (course != null) {
-                 if (!isCourseFull(course.getId())) {
-                    processWaitlist(course.getId());
-                 } else {
-                     logger.info("課程 ID {}仍滿，手動取消報名 ID {} 未觸發候補遞補。", course.getId(), enrollmentId);
-                 }
-            } else {
-                logger.warn("報名 ID {} 關聯的課程為 null，無法觸發候補遞補流程。", enrollmentId);
+        return courseLockManager.executeLocked(courseIdOfEnrollment(enrollmentId), status -> {
+            Enrollment enrollment = enrollmentDAO.findById(enrollmentId)
+                    .orElseThrow(() -> new EntityNotFoundException("找不到報名 ID: + enrollmentId"));
+            String oldStatus = enrollment.getStatus();
+
+            if (oldStatus.equals(newStatus)) {
+                 logger.warn("報名 ID {} 狀態已為 {}，無需更新。", enrollmentId, newStatus);
+                 return convertToEnrollmentDTO(enrollment);
             }
-        } else {
-            logger.info("報名 ID {} 狀態從 {} 更新為 {}，無需觸發候補遞補流程。", enrollmentId, oldStatus, newStatus);
-        }
-        return convertToEnrollmentDTO(updatedEnrollmentEntity);
-    }
-
-    // 計算課程最近一次過去的發生時間，相對於給定的時間點
-    private LocalDateTime calculateLastPastCourseOccurrenceTime(Course course, LocalDateTime relativeTo) {
-         if (course == null || course.getDayOfWeek() == null || course.getStartTime() == null) {
-              logger.warn("Course ID {} has incomplete scheduling info (dayOfWeek: {}, startTime: {}). Cannot calculate last occurrence.",
-                          course != null ? course.getId() : "N/A",
-                          course != null ? course.getDayOfWeek() : "N/A", course != null ? course.getStartTime() : "N/A");
-              return null;
-         }
-         LocalDate relativeDate = relativeTo.toLocalDate();
-         LocalTime relativeTime = relativeTo.toLocalTime();
-         int dbDayOfWeek = course.getDayOfWeek();
-         if (dbDayOfWeek < 0 || dbDayOfWeek > 6) {
-             logger.warn("Course ID {} has invalid dayOfWeek value: {}. Cannot calculate last occurrence.", course.getId(), dbDayOfWeek);
-             return null;
-         }
-         DayOfWeek courseDayOfWeek = DayOfWeek.of((dbDayOfWeek + 1) % 7 == 0 ? 7 : (dbDayOfWeek + 1) % 7);
-         DayOfWeek relativeDayOfWeek = relativeTo.getDayOfWeek();
-
-         LocalDate lastDate = relativeDate.minusDays((relativeDayOfWeek.getValue() - courseDayOfWeek.getValue() + 7) % 7);
-         if (LocalDateTime.of(lastDate, course.getStartTime()).isAfter(relativeTo)) {
-              lastDate = lastDate.minusWeeks(1);
-         }
-         return LocalDateTime.of(lastDate, course.getStartTime());
-    }
-
-
-    @Scheduled(cron = "0 0 2 * * ?")
-    @Transactional
-    public void processPastDueEnrollments() {
-        logger.info("Running scheduled task: Processing past due enrollments...");
-        LocalDateTime now = LocalDateTime.now();
-        List<Enrollment> registeredEnrollments = enrollmentDAO.findByStatus(REGISTERED_STATUS);
-        if (registeredEnrollments.isEmpty()) {
-            logger.info("No registered enrollments found to process.");
-            return;
-        }
-        logger.info("Found {} registered enrollments to process.", registeredEnrollments.size());
-
-        int updatedCount = 0;
-        for (Enrollment enrollment : registeredEnrollments) {
-            Course course = enrollment.getCourse();
-            if (course == null) {
-                logger.error("Enrollment ID {} has null course. Skipping.", enrollment != null ? enrollment.getId() : "N/A");
-                continue;
+            if (INACTIVE_ENROLLMENT_STATUSES.contains(oldStatus)) {
+                 logger.warn("無法從目前狀態 '{}' 更改報名 ID {} 的狀態。", oldStatus, enrollmentId);
+                 throw new IllegalStateException(String.format("無法從目前狀態 '%s' 更改報名狀態。", oldStatus));
             }
 
-            LocalDateTime lastOccurrence = calculateLastPastCourseOccurrenceTime(course, now);
-            if (lastOccurrence != null && now.isAfter(lastOccurrence)) {
-                enrollment.setStatus(NO_SHOW_STATUS);
-                enrollmentDAO.save(enrollment);
-                updatedCount++;
-                logger.info("Marked Enrollment ID {} for Course {} as {}. Last occurrence: {}",
-                            enrollment.getId(), course.getName(), NO_SHOW_STATUS, lastOccurrence);
+            enrollment.setStatus(newStatus);
+            Enrollment updatedEnrollmentEntity = enrollmentDAO.save(enrollment);
+            if (updatedEnrollmentEntity.getCourse() != null && updatedEnrollmentEntity.getUser() != null) {
+                seatLedger.onStatusChange(updatedEnrollmentEntity.getCourse().getId(),
+                        updatedEnrollmentEntity.getUser().getId(), oldStatus, newStatus);
             }
-        }
-        logger.info("Finished processing past due enrollments. Updated: {}", updatedCount);
+            logger.info("報名 ID {} 狀態成功從 {} 更新為 {}", enrollmentId, oldStatus, newStatus);
+
+            boolean wasActive = ACTIVE_ENROLLMENT_STATUSES.contains(oldStatus);
+            boolean isNowCancelled = CANCELLED_STATUS.equals(newStatus);
+            if (wasActive && isNowCancelled) {
+                logger.info("報名 ID {} 狀態從活躍 ({}) 變為已取消，觸發候補遞補流程。", enrollmentId, oldStatus);
+                Course course = updatedEnrollmentEntity.getCourse();
+                if (course != null) {
+                     waitlistPromotionEngine.requestPromotion(course.getId());
+                } else {
+                    logger.warn("報名 ID {} 關聯的課程為 null，無法觸發候補遞補流程。", enrollmentId);
+                }
+            } else {
+                logger.info("報名 ID {} 狀態從 {} 更新為 {}，無需觸發候補遞補流程。", enrollmentId, oldStatus, newStatus);
+            }
+            return convertToEnrollmentDTO(updatedEnrollmentEntity);
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
     public Map<Integer, Integer> getNextOccurrenceBookedTrialCounts(List<Course> courses) {
-        logger.info("這個 getNextOccurrenceBookedTrialCounts 方法的實際實作在 EnrollmentServiceImpl 中，為 getAllCoursesWithUserStatus 提供數據。");
         logger.info("正在為 {} 個課程獲取下一個排程的體驗預約計數...", courses != null ? courses.size() : 0);
-        Map<Integer, Integer> countsMap = new HashMap<>();
-
-        if (courses == null || courses.isEmpty()) {
-            logger.warn("傳入的課程列表為空或 null，返回空 Map。");
-            return countsMap;
-        }
-
-        for (Course course : courses) {
-             if (course == null) {
-                 logger.warn("課程列表包含 null 項目，跳過處理。");
-                 continue;
-             }
-            if (course.getOffersTrialOption() != null && course.getOffersTrialOption() &&
-                course.getMaxTrialCapacity() != null && course.getMaxTrialCapacity() > 0) {
-
-                try {
-                    LocalDateTime nextOccurrenceTime = calculateNextCourseOccurrenceTime(course);
-
-                    logger.debug("課程 ID {} ({} {}) 的下一個排程時間計算為: {}", course.getId(), course.getDayOfWeek(), course.getStartTime(), nextOccurrenceTime);
-
-                    if (nextOccurrenceTime != null) {
-                        int bookedTrialCount = trialBookingDAO.countTrialBookingsByCourseDateActualStartTimeAndStatusNotInNative(
-                            course.getId(),
-                            nextOccurrenceTime.toLocalDate(),
-                            nextOccurrenceTime.toLocalTime(),
-                            INACTIVE_TRIAL_STATUSES
-                        );
-                        logger.debug("課程 ID {} 在 {} 體驗預約計數查詢結果: {}", course.getId(), nextOccurrenceTime, bookedTrialCount);
-                        countsMap.put(course.getId(), bookedTrialCount);
-                    } else {
-                        logger.warn("無法計算課程 ID {} 的下一個排程時間，將其體驗預約計數設為 0。", course.getId());
-                        countsMap.put(course.getId(), 0);
-                    }
-                } catch (Exception e) {
-                    logger.error("處理課程 ID {} 的體驗預約計數時發生錯誤，將其計數設為 0。", course.getId(), e);
-                    countsMap.put(course.getId(), 0);
-                }
-
-            } else {
-                countsMap.put(course.getId(), 0);
-            }
-        }
-
+        Map<Integer, Integer> countsMap = trialOccupancyCache.getNextOccurrenceBookedTrialCounts(courses);
         logger.info("完成獲取體驗預約計數，返回 Map 大小: {}", countsMap.size());
         return countsMap;
     }
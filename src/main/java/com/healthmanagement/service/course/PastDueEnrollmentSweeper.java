@@ -0,0 +1,114 @@
+package com.healthmanagement.service.course;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.dao.course.EnrollmentDAO;
+
+/**
+ * 夜間未到場批次
+ * 每門課程只計算一次最近一次已發生的上課時間，之後以 keyset 分批 (每批獨立 commit)
+ * 將該次上課前就已報名、仍為「已報名」的記錄批次更新為「未到場」。
+ * 不會一次把所有報名記錄載入記憶體。
+ */
+@Component
+public class PastDueEnrollmentSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(PastDueEnrollmentSweeper.class);
+
+    private static final String REGISTERED_STATUS = "已報名";
+    private static final String NO_SHOW_STATUS = "未到場";
+
+    // 每批更新筆數
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private EnrollmentDAO enrollmentDAO;
+
+    @Autowired
+    private CourseSeatLedger seatLedger;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public PastDueEnrollmentSweeper(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void processPastDueEnrollments() {
+        logger.info("Running scheduled task: Processing past due enrollments...");
+        long startNanos = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Object[]> schedules = enrollmentDAO.findDistinctCourseSchedulesByStatus(REGISTERED_STATUS);
+        if (schedules.isEmpty()) {
+            logger.info("No registered enrollments found to process.");
+            return;
+        }
+        logger.info("Found {} courses with registered enrollments to process.", schedules.size());
+
+        long updatedCount = 0;
+        int chunkCount = 0;
+        for (Object[] schedule : schedules) {
+            Integer courseId = (Integer) schedule[0];
+            LocalDateTime lastOccurrence = CourseOccurrenceIndex.lastOccurrenceOf(
+                    (Integer) schedule[1], (LocalTime) schedule[2], now);
+            if (lastOccurrence == null) {
+                logger.warn("Course ID {} has incomplete scheduling info. Skipping.", courseId);
+                continue;
+            }
+
+            Integer afterId = 0;
+            while (true) {
+                List<Object[]> chunk = enrollmentDAO.findIdAndUserIdChunkForSweep(
+                        courseId, REGISTERED_STATUS, lastOccurrence, afterId, PageRequest.of(0, CHUNK_SIZE));
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                List<Integer> enrollmentIds = new ArrayList<>(chunk.size());
+                List<Integer> userIds = new ArrayList<>(chunk.size());
+                for (Object[] row : chunk) {
+                    enrollmentIds.add((Integer) row[0]);
+                    userIds.add((Integer) row[1]);
+                }
+                afterId = enrollmentIds.get(enrollmentIds.size() - 1);
+
+                Integer updated = transactionTemplate.execute(status -> {
+                    int rows = enrollmentDAO.updateStatusByIdInAndStatus(enrollmentIds, REGISTERED_STATUS, NO_SHOW_STATUS);
+                    if (rows == enrollmentIds.size()) {
+                        seatLedger.onBulkStatusChange(courseId, userIds, REGISTERED_STATUS, NO_SHOW_STATUS);
+                    } else {
+                        // 有記錄在查詢後被變更，改由資料庫重建此課程帳本
+                        seatLedger.invalidateCourse(courseId);
+                    }
+                    return rows;
+                });
+                updatedCount += updated != null ? updated : 0;
+                chunkCount++;
+                logger.debug("Course {} chunk marked {} enrollments as {} (last occurrence: {}).",
+                        courseId, updated, NO_SHOW_STATUS, lastOccurrence);
+
+                if (chunk.size() < CHUNK_SIZE) {
+                    break;
+                }
+            }
+        }
+
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        double rowsPerSecond = elapsedSeconds > 0 ? updatedCount / elapsedSeconds : updatedCount;
+        logger.info("Finished processing past due enrollments. Updated: {} in {} chunks, {} s ({} rows/s)",
+                updatedCount, chunkCount, String.format("%.3f", elapsedSeconds), String.format("%.1f", rowsPerSecond));
+    }
+}
@@ -50,6 +50,9 @@ public class TrialBookingServiceImpl implements TrialBookingService {
     @Autowired
     private EnrollmentService enrollmentService;
 
+    @Autowired
+    private TrialOccupancyCache trialOccupancyCache;
+
     private static final String BOOKED_STATUS = "已預約";
     private static final String CANCELLED_STATUS = "已取消";
     private static final String COMPLETED_STATUS = "已完成";
@@ -233,6 +236,7 @@ public class TrialBookingServiceImpl implements TrialBookingService {
                 .build();
 
         TrialBooking savedBooking = trialBookingDAO.save(trialBooking);
+        trialOccupancyCache.invalidate(course.getId(), savedBooking.getBookingDate());
         logger.info("體驗預約創建成功 (ID: {})", savedBooking.getId());
 
         return convertToTrialBookingDTO(savedBooking);
@@ -290,6 +294,7 @@ public class TrialBookingServiceImpl implements TrialBookingService {
 
         trialBooking.setBookingStatus(CANCELLED_STATUS);
         trialBookingDAO.save(trialBooking);
+        invalidateOccupancy(trialBooking);
         logger.info("體驗預約 ID {} 取消成功。", bookingId);
     }
 
@@ -330,6 +335,7 @@ public class TrialBookingServiceImpl implements TrialBookingService {
         for (TrialBooking booking : pastDueBookings) {
             booking.setBookingStatus(NO_SHOW_STATUS);
             trialBookingDAO.save(booking);
+            invalidateOccupancy(booking);
             updatedCount++;
             logger.info("Marked Trial Booking ID {} for Course {} on {} {} as {}.",
                        booking.getId(), booking.getCourse() != null ? booking.getCourse().getName() : "Unknown Course",
@@ -360,10 +366,18 @@ public class TrialBookingServiceImpl implements TrialBookingService {
 
         trialBooking.setBookingStatus(newStatus);
         TrialBooking updatedBooking = trialBookingDAO.save(trialBooking);
+        invalidateOccupancy(updatedBooking);
         logger.info("體驗預約 ID {} 狀態更新為 {} 成功。", bookingId, newStatus);
         return convertToTrialBookingDTO(updatedBooking);
     }
 
+    // 體驗預約狀態變更後，使該課程該日期的佔用人數快取失效
+    private void invalidateOccupancy(TrialBooking trialBooking) {
+        if (trialBooking.getCourse() != null) {
+            trialOccupancyCache.invalidate(trialBooking.getCourse().getId(), trialBooking.getBookingDate());
+        }
+    }
+
     // 電話號碼格式化輔助方法
     private String formatPhoneNumber(String rawPhoneNumber) {
         if (rawPhoneNumber == null) {
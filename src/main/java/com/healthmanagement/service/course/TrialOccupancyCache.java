@@ -0,0 +1,156 @@
+package com.healthmanagement.service.course;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.healthmanagement.dao.course.TrialBookingDAO;
+import com.healthmanagement.dto.course.TrialOccupancyKey;
+import com.healthmanagement.model.course.Course;
+
+/**
+ * 體驗課佔用人數快取
+ * 以短 TTL 快取 (課程, 日期, 開始時間) 的活躍體驗預約人數，未命中的鍵以 TrialBookingDAO 的分組查詢一次取得。
+ * 體驗預約新增、取消或狀態變更時使對應的鍵失效。
+ */
+@Component
+public class TrialOccupancyCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrialOccupancyCache.class);
+
+    private static final List<String> INACTIVE_TRIAL_STATUSES = List.of("已取消", "已完成", "未到場");
+
+    // 快取筆數超過此值時清除過期項目
+    private static final int PRUNE_THRESHOLD = 10_000;
+
+    @Autowired
+    private TrialBookingDAO trialBookingDAO;
+
+    @Autowired
+    private CourseOccurrenceIndex occurrenceIndex;
+
+    @Value("${app.course.trial-occupancy-cache-ttl-seconds:5}")
+    private long ttlSeconds;
+
+    private final Map<TrialOccupancyKey, CachedCount> cache = new ConcurrentHashMap<>();
+
+    private record CachedCount(int count, long expiresAtNanos) {
+    }
+
+    // 取得多個鍵的佔用人數，未命中或過期的鍵以單一分組查詢補齊
+    public Map<TrialOccupancyKey, Integer> getCounts(List<TrialOccupancyKey> keys) {
+        Map<TrialOccupancyKey, Integer> result = new HashMap<>();
+        List<TrialOccupancyKey> misses = new ArrayList<>();
+        long now = System.nanoTime();
+        for (TrialOccupancyKey key : keys) {
+            CachedCount cached = cache.get(key);
+            if (cached != null && cached.expiresAtNanos() - now > 0) {
+                result.put(key, cached.count());
+            } else {
+                misses.add(key);
+            }
+        }
+        if (!misses.isEmpty()) {
+            long expiresAt = now + TimeUnit.SECONDS.toNanos(ttlSeconds);
+            Map<TrialOccupancyKey, Integer> loaded = trialBookingDAO.countTrialBookingsByKeys(misses, INACTIVE_TRIAL_STATUSES);
+            loaded.forEach((key, count) -> cache.put(key, new CachedCount(count, expiresAt)));
+            result.putAll(loaded);
+            logger.debug("體驗佔用人數快取：命中 {} 筆，查詢 {} 筆。", keys.size() - misses.size(), misses.size());
+            if (cache.size() > PRUNE_THRESHOLD) {
+                cache.values().removeIf(cached -> cached.expiresAtNanos() - now <= 0);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 取得每個課程「下一個排程」的體驗預約人數 (課程 ID → 人數)。
+     * 不提供體驗選項或無法計算下一次上課時間的課程為 0。
+     */
+    public Map<Integer, Integer> getNextOccurrenceBookedTrialCounts(List<Course> courses) {
+        Map<Integer, Integer> countsMap = new HashMap<>();
+        if (courses == null || courses.isEmpty()) {
+            return countsMap;
+        }
+        Map<Integer, TrialOccupancyKey> keysByCourseId = new HashMap<>();
+        for (Course course : courses) {
+            if (course == null) {
+                continue;
+            }
+            countsMap.put(course.getId(), 0);
+            if (course.getOffersTrialOption() == null || !course.getOffersTrialOption()) {
+                continue;
+            }
+            LocalDateTime nextOccurrence = occurrenceIndex.getNextOccurrence(course);
+            if (nextOccurrence == null) {
+                logger.warn("無法計算課程 ID {} 的下一個排程時間，將其體驗預約計數設為 0。", course.getId());
+                continue;
+            }
+            keysByCourseId.put(course.getId(),
+                    new TrialOccupancyKey(course.getId(), nextOccurrence.toLocalDate(), nextOccurrence.toLocalTime()));
+        }
+        fillCounts(countsMap, keysByCourseId);
+        return countsMap;
+    }
+
+    /**
+     * 以課程 ID 取得「下一個排程」的體驗預約人數，排程直接取自上課時間索引，不需載入課程實體。
+     * 傳入的課程應為提供體驗選項者；索引中沒有排程的課程為 0。
+     */
+    public Map<Integer, Integer> getNextOccurrenceBookedTrialCountsByCourseIds(Collection<Integer> trialCourseIds) {
+        Map<Integer, Integer> countsMap = new HashMap<>();
+        Map<Integer, TrialOccupancyKey> keysByCourseId = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Integer courseId : trialCourseIds) {
+            countsMap.put(courseId, 0);
+            LocalDateTime nextOccurrence = occurrenceIndex.getNextOccurrence(courseId, now);
+            if (nextOccurrence != null) {
+                keysByCourseId.put(courseId,
+                        new TrialOccupancyKey(courseId, nextOccurrence.toLocalDate(), nextOccurrence.toLocalTime()));
+            }
+        }
+        fillCounts(countsMap, keysByCourseId);
+        return countsMap;
+    }
+
+    private void fillCounts(Map<Integer, Integer> countsMap, Map<Integer, TrialOccupancyKey> keysByCourseId) {
+        if (!keysByCourseId.isEmpty()) {
+            Map<TrialOccupancyKey, Integer> counts = getCounts(new ArrayList<>(keysByCourseId.values()));
+            keysByCourseId.forEach((courseId, key) -> countsMap.put(courseId, counts.getOrDefault(key, 0)));
+        }
+    }
+
+    // 使特定課程某日期的佔用人數失效；在交易中時於 commit 後再失效一次，避免讀到未提交前的舊值
+    public void invalidate(Integer courseId, LocalDate bookingDate) {
+        if (courseId == null || bookingDate == null) {
+            return;
+        }
+        evict(courseId, bookingDate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(courseId, bookingDate);
+                }
+            });
+        }
+    }
+
+    private void evict(Integer courseId, LocalDate bookingDate) {
+        cache.keySet().removeIf(key -> courseId.equals(key.getCourseId()) && bookingDate.equals(key.getBookingDate()));
+    }
+}
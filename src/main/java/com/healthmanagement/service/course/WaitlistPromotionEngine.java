@@ -0,0 +1,161 @@
+package com.healthmanagement.service.course;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.healthmanagement.dao.course.EnrollmentDAO;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 候補遞補引擎
+ * 依座位帳本的剩餘座位數，一次取出前 N 位候補者，並以單一批次 UPDATE 將其遞補為已報名。
+ * 取消報名時透過 requestPromotion 排入背景佇列；同一課程在佇列中只會有一個待處理任務，
+ * 因此同一課程的大量取消只會觸發一次遞補。
+ */
+@Component
+public class WaitlistPromotionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistPromotionEngine.class);
+
+    private static final String REGISTERED_STATUS = "已報名";
+    private static final String WAITING_STATUS = "候補中";
+
+    // 每次批次遞補的最大筆數 (不限人數課程時也以此分批)
+    private static final int PROMOTION_BATCH_SIZE = 200;
+
+    @Autowired
+    private EnrollmentDAO enrollmentDAO;
+
+    @Autowired
+    private CourseSeatLedger seatLedger;
+
+    @Autowired
+    private CourseLockManager courseLockManager;
+
+    // 已排入佇列但尚未開始處理的課程 ID，用來合併同一課程的多次請求
+    private final Set<Integer> pendingCourseIds = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "waitlist-promotion");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 排入背景遞補。若目前在交易中，會等交易 commit 後才排入，確保遞補時看得到取消結果。
+     */
+    public void requestPromotion(Integer courseId) {
+        if (courseId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enqueue(courseId);
+                }
+            });
+        } else {
+            enqueue(courseId);
+        }
+    }
+
+    private void enqueue(Integer courseId) {
+        if (!pendingCourseIds.add(courseId)) {
+            logger.debug("課程 ID {} 已在遞補佇列中，合併本次請求。", courseId);
+            return;
+        }
+        executor.execute(() -> {
+            // 先移出待處理集合，處理期間進來的新請求會再排一次，不會遺漏
+            pendingCourseIds.remove(courseId);
+            try {
+                // 與前台報名、取消同一把課程鎖 (交易開始前取得)，避免遞補與報名同時佔用最後的座位
+                Integer promoted = courseLockManager.executeLocked(courseId, status -> promote(courseId));
+                logger.info("背景遞補完成：課程 ID {}，遞補 {} 位。", courseId, promoted);
+            } catch (Exception e) {
+                logger.error("課程 ID {} 背景遞補失敗。", courseId, e);
+                seatLedger.invalidateCourse(courseId);
+            }
+        });
+    }
+
+    /**
+     * 在目前交易中執行遞補，回傳遞補人數。
+     */
+    public int promote(Integer courseId) {
+        int totalPromoted = 0;
+        while (true) {
+            int remaining = seatLedger.getRemainingSeats(courseId);
+            if (remaining <= 0 || seatLedger.getWaitingCount(courseId) <= 0) {
+                break;
+            }
+            int limit = Math.min(remaining, PROMOTION_BATCH_SIZE);
+            List<Object[]> candidates = enrollmentDAO.findIdAndUserIdByCourseIdAndStatusOrderByEnrollmentTime(
+                    courseId, WAITING_STATUS, PageRequest.of(0, limit));
+            if (candidates.isEmpty()) {
+                break;
+            }
+
+            List<Integer> enrollmentIds = new ArrayList<>(candidates.size());
+            for (Object[] row : candidates) {
+                if (!seatLedger.tryReserveSeat(courseId, (Integer) row[1])) {
+                    break;
+                }
+                enrollmentIds.add((Integer) row[0]);
+            }
+            if (enrollmentIds.isEmpty()) {
+                break;
+            }
+
+            int updated = enrollmentDAO.updateStatusByIdInAndStatus(enrollmentIds, WAITING_STATUS, REGISTERED_STATUS);
+            totalPromoted += updated;
+            logger.info("課程 ID {} 批次遞補 {} 位候補者 (預計 {} 位)。", courseId, updated, enrollmentIds.size());
+            if (updated != enrollmentIds.size()) {
+                // 有候補者在查詢與更新之間變更了狀態，交易結束後由資料庫重建此課程帳本
+                logger.warn("課程 ID {} 遞補時有 {} 筆候補狀態已變更，將重建座位帳本。",
+                        courseId, enrollmentIds.size() - updated);
+                invalidateAfterCompletion(courseId);
+                break;
+            }
+            if (enrollmentIds.size() < limit) {
+                break;
+            }
+        }
+        return totalPromoted;
+    }
+
+    private void invalidateAfterCompletion(Integer courseId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            seatLedger.invalidateCourse(courseId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                seatLedger.invalidateCourse(courseId);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.healthmanagement.service.fitness;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.dao.fitness.AchievementDefinitionDAO;
+import com.healthmanagement.dao.fitness.AchievementsDAO;
+import com.healthmanagement.model.fitness.AchievementDefinition;
+import com.healthmanagement.model.fitness.Achievements;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * 獎章評估引擎 (非同步、事件驅動)
+ * 呼叫端送出 (使用者, 觸發事件, 數值) 事件後立即返回；事件在交易 commit 後才排入有界佇列，
+ * 由背景執行緒評估。獎章定義在記憶體中預先編譯為「觸發事件 → 門檻值 → 規則」，評估為 O(1) 查表；
+ * 每位使用者已獲得的獎章以 BitSet 保存 (每個規則一個位元)，不需逐一查詢資料庫。
+ * 佇列已滿時改由呼叫端執行緒評估 (背壓)，不會遺失事件。
+ */
+@Component
+public class AchievementEngine {
+
+	private static final Logger logger = LoggerFactory.getLogger(AchievementEngine.class);
+
+	// 不需數值門檻、事件發生即頒發的規則
+	private static final int ANY_VALUE = Integer.MIN_VALUE;
+
+	// 獎章類型 → 門檻值 (與原本 checkAndAwardAchievements 中的判斷相同)
+	private static final Map<String, Integer> TYPE_THRESHOLDS = Map.ofEntries(
+			Map.entry("FIRST_WORKOUT", 1), Map.entry("5_WORKOUTS", 5), Map.entry("10_WORKOUTS", 10),
+			Map.entry("25_WORKOUTS", 25), Map.entry("50_WORKOUTS", 50),
+			Map.entry("LOGIN_1_DAY", 1), Map.entry("LOGIN_3_DAYS", 3), Map.entry("LOGIN_7_DAYS", 7),
+			Map.entry("LOGIN_30_DAYS", 30), Map.entry("LOGIN_90_DAYS", 90),
+			Map.entry("GOAL_CREATED", ANY_VALUE),
+			Map.entry("GOAL_COMPLETED_1", 1), Map.entry("GOAL_COMPLETED_5", 5),
+			Map.entry("GOAL_COMPLETED_10", 10), Map.entry("GOAL_COMPLETED_25", 25),
+			Map.entry("FIRST_BODY_DATA", 1), Map.entry("10_BODY_DATA", 10), Map.entry("25_BODY_DATA", 25),
+			Map.entry("FIRST_DIET_LOG", 1), Map.entry("10_DIET_LOGS", 10), Map.entry("25_DIET_LOGS", 25),
+			Map.entry("FIRST_POST", 1), Map.entry("5_POSTS", 5), Map.entry("10_POSTS", 10),
+			Map.entry("FIRST_COMMENT", 1), Map.entry("5_COMMENTS", 5), Map.entry("10_COMMENTS", 10));
+
+	private final AchievementsDAO achievementsRepo;
+	private final AchievementDefinitionDAO achievementDefinitionRepo;
+	private final TransactionTemplate transactionTemplate;
+	private final ThreadPoolExecutor executor;
+
+	// 編譯後的規則集，重新載入定義時整組替換 (連同其中已獲得獎章的位元集合)
+	private volatile RuleSet ruleSet = RuleSet.empty();
+
+	// 單一規則：位元索引與頒發內容
+	private record Rule(int bit, String achievementType, String title, String description) {
+	}
+
+	/**
+	 * 批次事件的累計數值區間 (fromExclusive, toInclusive]，例如一次匯入多筆運動紀錄後總次數由 3 變為 40；
+	 * 區間內的每個門檻都視為達成。
+	 */
+	public record CountRange(int fromExclusive, int toInclusive) {
+	}
+
+	/**
+	 * earnedByUser：使用者 ID → 已獲得獎章的位元集合，位元索引對應同一 RuleSet 中的規則。
+	 * 與規則一起保存，替換 RuleSet 時一併丟棄，評估中的事件仍使用自己取得的 RuleSet 與其位元集合，不會混用新舊編號。
+	 */
+	private record RuleSet(Map<String, Map<Integer, List<Rule>>> byTriggerAndThreshold, Map<String, Rule> byType,
+			Map<Integer, BitSet> earnedByUser) {
+
+		static RuleSet empty() {
+			return new RuleSet(Map.of(), Map.of(), new ConcurrentHashMap<>());
+		}
+	}
+
+	public AchievementEngine(AchievementsDAO achievementsRepo, AchievementDefinitionDAO achievementDefinitionRepo,
+			PlatformTransactionManager transactionManager,
+			@Value("${app.achievement.queue-capacity:10000}") int queueCapacity) {
+		this.achievementsRepo = achievementsRepo;
+		this.achievementDefinitionRepo = achievementDefinitionRepo;
+		// 佇列已滿時評估在呼叫端的 afterCommit 中執行，原交易已 commit，必須另開新交易才會寫入
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "achievement-engine");
+					thread.setDaemon(true);
+					return thread;
+				}, (task, pool) -> {
+					logger.warn("獎章事件佇列已滿 ({} 筆)，改由呼叫端執行緒評估。", queueCapacity);
+					if (!pool.isShutdown()) {
+						task.run();
+					}
+				});
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadOnStartup() {
+		reloadDefinitions();
+	}
+
+	// 定期重新載入獎章定義 (定義由後台直接維護資料表)
+	@Scheduled(fixedDelayString = "${app.achievement.definition-refresh-ms:600000}",
+			initialDelayString = "${app.achievement.definition-refresh-ms:600000}")
+	public void reloadDefinitions() {
+		// 依定義 ID 排序編號，重新載入時未異動的規則維持相同位元
+		List<AchievementDefinition> definitions = achievementDefinitionRepo.findAll(Sort.by("definitionId"));
+		Map<String, Map<Integer, List<Rule>>> byTriggerAndThreshold = new HashMap<>();
+		Map<String, Rule> byType = new HashMap<>();
+		int bit = 0;
+		for (AchievementDefinition definition : definitions) {
+			Integer threshold = TYPE_THRESHOLDS.get(definition.getAchievementType());
+			if (threshold == null || definition.getTriggerEvent() == null) {
+				logger.debug("獎章定義 {} 沒有對應的事件門檻，略過編譯。", definition.getAchievementType());
+				continue;
+			}
+			Rule rule = new Rule(bit++, definition.getAchievementType(), definition.getTitle(), definition.getDescription());
+			byTriggerAndThreshold.computeIfAbsent(definition.getTriggerEvent(), key -> new HashMap<>())
+					.computeIfAbsent(threshold, key -> new ArrayList<>()).add(rule);
+			byType.put(rule.achievementType(), rule);
+		}
+		ruleSet = new RuleSet(byTriggerAndThreshold, byType, new ConcurrentHashMap<>());
+		logger.info("獎章規則已編譯：{} 個定義中 {} 個可由事件觸發。", definitions.size(), byType.size());
+	}
+
+	/**
+	 * 送出獎章事件。在交易中時於 commit 後才排入佇列 (rollback 則丟棄)，呼叫端不等待評估結果。
+	 */
+	public void publish(Integer userId, String triggerEvent, Object data) {
+		if (userId == null || triggerEvent == null) {
+			return;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					enqueue(userId, triggerEvent, data);
+				}
+			});
+		} else {
+			enqueue(userId, triggerEvent, data);
+		}
+	}
+
+	// 後台直接頒發獎章時同步位元集合
+	public void markEarned(Integer userId, String achievementType) {
+		RuleSet rules = ruleSet;
+		Rule rule = rules.byType().get(achievementType);
+		BitSet earned = rules.earnedByUser().get(userId);
+		if (rule != null && earned != null) {
+			synchronized (earned) {
+				earned.set(rule.bit());
+			}
+		}
+	}
+
+	// 使用者的獎章被刪除時丟棄快取，下次事件時由資料庫重新載入
+	public void evictUser(Integer userId) {
+		if (userId != null) {
+			ruleSet.earnedByUser().remove(userId);
+		}
+	}
+
+	private void enqueue(Integer userId, String triggerEvent, Object data) {
+		executor.execute(() -> {
+			try {
+				evaluate(userId, triggerEvent, data);
+			} catch (Exception e) {
+				logger.error("評估使用者 ID {} 的獎章事件 {} 失敗。", userId, triggerEvent, e);
+				evictUser(userId);
+			}
+		});
+	}
+
+	private void evaluate(Integer userId, String triggerEvent, Object data) {
+		RuleSet rules = ruleSet;
+		Map<Integer, List<Rule>> byThreshold = rules.byTriggerAndThreshold().get(triggerEvent);
+		if (byThreshold == null) {
+			return;
+		}
+		List<Rule> matched = new ArrayList<>(byThreshold.getOrDefault(ANY_VALUE, List.of()));
+		if (data instanceof Integer value) {
+			matched.addAll(byThreshold.getOrDefault(value, List.of()));
+		} else if (data instanceof CountRange range) {
+			byThreshold.forEach((threshold, thresholdRules) -> {
+				if (threshold != ANY_VALUE && threshold > range.fromExclusive() && threshold <= range.toInclusive()) {
+					matched.addAll(thresholdRules);
+				}
+			});
+		}
+		if (matched.isEmpty()) {
+			return;
+		}
+
+		BitSet earned = rules.earnedByUser().computeIfAbsent(userId, id -> loadEarned(id, rules));
+		synchronized (earned) {
+			List<Rule> toAward = matched.stream().filter(rule -> !earned.get(rule.bit())).toList();
+			if (toAward.isEmpty()) {
+				return;
+			}
+			award(userId, toAward);
+			toAward.forEach(rule -> earned.set(rule.bit()));
+		}
+	}
+
+	private BitSet loadEarned(Integer userId, RuleSet rules) {
+		BitSet earned = new BitSet(rules.byType().size());
+		for (Achievements achievement : achievementsRepo.findByUserId(userId)) {
+			Rule rule = rules.byType().get(achievement.getAchievementType());
+			if (rule != null) {
+				earned.set(rule.bit());
+			}
+		}
+		return earned;
+	}
+
+	private void award(Integer userId, Collection<Rule> rules) {
+		List<Achievements> achievements = rules.stream()
+				.map(rule -> Achievements.builder()
+						.userId(userId)
+						.achievementType(rule.achievementType())
+						.title(rule.title())
+						.description(rule.description())
+						.achievedDate(LocalDate.now())
+						.build())
+				.toList();
+		transactionTemplate.executeWithoutResult(status -> achievementsRepo.saveAll(achievements));
+		logger.info("使用者 ID {} 獲得獎章：{}", userId, rules.stream().map(Rule::achievementType).toList());
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		executor.shutdown();
+		if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -4,7 +4,6 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import com.healthmanagement.model.member.User;
 
 import com.healthmanagement.dto.fitness.AchievementDTO;
@@ -16,7 +15,6 @@ import jakarta.persistence.EntityNotFoundException;
 import jakarta.persistence.criteria.Predicate;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 import java.time.format.DateTimeFormatter;
 import lombok.RequiredArgsConstructor;
@@ -27,191 +25,17 @@ public class AchievementServiceImpl implements AchievementService {
 
 	private final AchievementsDAO achievementsRepo;
 	private final UserDAO userRepo;
-	private final AchievementDefinitionDAO achievementDefinitionRepo;
+	private final AchievementEngine achievementEngine;
 
 	@Override
 	public List<AchievementDTO> getUserAchievements(Integer userId) {
 		return achievementsRepo.findByUserId(userId).stream().map(this::convertToDto).collect(Collectors.toList());
 	}
 
-	@Transactional
+	// 只送出事件，由 AchievementEngine 於交易 commit 後非同步評估，呼叫端不等待
 	@Override
 	public void checkAndAwardAchievements(Integer userId, String triggerEvent, Object data) {
-		System.out.println("AchievementServiceImpl - checkAndAwardAchievements 被調用了！使用者 ID: " + userId + ", 事件: " + triggerEvent + ", 數據: " + data);
-	    achievementDefinitionRepo.findByTriggerEvent(triggerEvent).forEach(definition -> {
-	       			boolean shouldAward = false;
-
-			switch (triggerEvent) {
-			case "WORKOUT_CREATED":
-				if (data instanceof Integer) {
-					int workoutCount = (Integer) data;
-					switch (definition.getAchievementType()) {
-					case "FIRST_WORKOUT":
-						shouldAward = workoutCount == 1;
-						break;
-					case "5_WORKOUTS":
-						shouldAward = workoutCount == 5;
-						break;
-					case "10_WORKOUTS":
-						shouldAward = workoutCount == 10;
-						break;
-					case "25_WORKOUTS":
-						shouldAward = workoutCount == 25;
-						break;
-					case "50_WORKOUTS":
-						shouldAward = workoutCount == 50;
-						break;
-					}
-				}
-				break;
-			case "USER_LOGGED_IN": // 假設有這個事件
-				if (data instanceof Integer) {
-					int consecutiveDays = (Integer) data;
-					switch (definition.getAchievementType()) {
-					case "LOGIN_1_DAY":
-						shouldAward = consecutiveDays == 1;
-						break;
-					case "LOGIN_3_DAYS":
-						shouldAward = consecutiveDays == 3;
-						break;
-					case "LOGIN_7_DAYS":
-						shouldAward = consecutiveDays == 7;
-						break;
-					case "LOGIN_30_DAYS":
-						shouldAward = consecutiveDays == 30;
-						break;
-					case "LOGIN_90_DAYS":
-						shouldAward = consecutiveDays == 90;
-						break;
-					}
-				}
-				break;
-			case "GOAL_CREATED":
-				if (definition.getAchievementType().equals("GOAL_CREATED")) {
-					shouldAward = true;
-				}
-				break;
-			case "GOAL_COMPLETED":
-				if (data instanceof Integer) {
-					int completedGoals = (Integer) data;
-					switch (definition.getAchievementType()) {
-					case "GOAL_COMPLETED_1":
-						shouldAward = completedGoals == 1;
-						break;
-					case "GOAL_COMPLETED_5":
-						shouldAward = completedGoals == 5;
-						break;
-					case "GOAL_COMPLETED_10":
-						shouldAward = completedGoals == 10;
-						break;
-					case "GOAL_COMPLETED_25":
-						shouldAward = completedGoals == 25;
-						break;
-					}
-				}
-				break;
-			case "BODY_DATA_CREATED":
-				if (data instanceof Integer) {
-					int bodyDataCount = (Integer) data;
-					switch (definition.getAchievementType()) {
-					case "FIRST_BODY_DATA":
-						shouldAward = bodyDataCount == 1;
-						break;
-					case "10_BODY_DATA":
-						shouldAward = bodyDataCount == 10;
-						break;
-					case "25_BODY_DATA":
-						shouldAward = bodyDataCount == 25;
-						break;
-					}
-				}
-				break;
-			case "DIET_DATA_CREATED":
-				if (data instanceof Integer) {
-					int dietLogCount = (Integer) data;
-					switch (definition.getAchievementType()) {
-					case "FIRST_DIET_LOG":
-						shouldAward = dietLogCount == 1;
-						break;
-					case "10_DIET_LOGS":
-						shouldAward = dietLogCount == 10;
-						break;
-					case "25_DIET_LOGS":
-						shouldAward = dietLogCount == 25;
-						break;
-					}
-				}
-				break;
-			case "SOCIAL_POST_CREATED":
-				if (data instanceof Integer) {
-					int postCount = (Integer) data;
-					switch (definition.getAchievementType()) {
-					case "FIRST_POST":
-						shouldAward = postCount == 1;
-						break;
-					case "5_POSTS":
-						shouldAward = postCount == 5;
-						break;
-					case "10_POSTS":
-						shouldAward = postCount == 10;
-						break;
-					}
-				}
-				break;
-			case "SOCIAL_COMMENT_CREATED":
-				if (data instanceof Integer) {
-					int commentCount = (Integer) data;
-					switch (definition.getAchievementType()) {
-					case "FIRST_COMMENT":
-						shouldAward = commentCount == 1;
-						break;
-					case "5_COMMENTS":
-						shouldAward = commentCount == 5;
-						break;
-					case "10_COMMENTS":
-						shouldAward = commentCount == 10;
-						break;
-					}
-				}
-				break;
-			// 可以根據 achievement_definitions 表中的 trigger_event 繼續添加 case
-			}
-			 if (shouldAward) {
-	                Optional<Achievements> existingAchievement;
-	                try {
-	                    existingAchievement = achievementsRepo.findByUserIdAndAchievementType(userId,
-	                            definition.getAchievementType());
-	                    if (existingAchievement.isEmpty()) {
-	                        addAchievementInternal(userId, definition.getAchievementType(), definition.getTitle(),
-	                                definition.getDescription());
-	                    }
-	                } catch (Exception e) {
-	                    System.err.println("檢查或頒發獎章時發生錯誤: " + e.getMessage());
-	                    e.printStackTrace(); // 打印更詳細的錯誤堆疊
-	                    // 這裡可以選擇繼續處理下一個獎章定義，或者直接返回
-	                }
-	            }
-	        });
-
-		// TODO: 處理基於 trigger_condition 的獎章 (需要定期檢查)
-		// 這部分可以使用 @Scheduled 註解的方法來實現，
-		// 需要解析 trigger_condition 字串並評估是否滿足條件。
-	}
-
-	// 內部方法，避免在 checkAndAwardAchievements 中直接調用 public addAchievement 導致可能的
-	@Transactional
-	private void addAchievementInternal(Integer userId, String achievementType, String title, String description) {
-		System.out.println("AchievementServiceImpl - addAchievementInternal - 開始頒發獎章:");
-		System.out.println("AchievementServiceImpl - addAchievementInternal -   使用者 ID: " + userId);
-		System.out.println("AchievementServiceImpl - addAchievementInternal -   獎章類型: " + achievementType);
-		System.out.println("AchievementServiceImpl - addAchievementInternal -   標題: " + title);
-		System.out.println("AchievementServiceImpl - addAchievementInternal -   描述: " + description);
-
-		Achievements achievement = Achievements.builder().userId(userId).achievementType(achievementType).title(title)
-				.description(description).achievedDate(LocalDate.now()).build();
-		System.out.println("AchievementServiceImpl - addAchievementInternal - 準備保存獎章到資料庫...");
-		achievementsRepo.save(achievement);
-		System.out.println("AchievementServiceImpl - addAchievementInternal - 獎章已成功保存到資料庫。");
+		achievementEngine.publish(userId, triggerEvent, data);
 	}
 
 	@Override
@@ -219,6 +43,7 @@ public class AchievementServiceImpl implements AchievementService {
 		Achievements achievement = Achievements.builder().userId(userId).achievementType(achievementType).title(title)
 				.description(description).achievedDate(LocalDate.now()).build();
 		Achievements savedAchievement = achievementsRepo.save(achievement);
+		achievementEngine.markEarned(userId, achievementType);
 		return convertToDto(savedAchievement);
 	}
 
@@ -235,6 +60,7 @@ public class AchievementServiceImpl implements AchievementService {
 
 	@Override
 	public void deleteAchievement(Integer achievementId) {
+		achievementsRepo.findById(achievementId).ifPresent(achievement -> achievementEngine.evictUser(achievement.getUserId()));
 		achievementsRepo.deleteById(achievementId);
 	}
 
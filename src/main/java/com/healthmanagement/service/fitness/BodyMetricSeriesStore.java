@@ -0,0 +1,237 @@
+package com.healthmanagement.service.fitness;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.healthmanagement.dao.fitness.BodyMetricDAO;
+import com.healthmanagement.dto.fitness.BodyMetricSeriesDTO;
+
+/**
+ * 身體數據時間序列
+ * 每位使用者的身體數據以欄式陣列保存 (記錄日 epochDay、體重、體脂、BMI、肌肉量；缺值為 NaN)，
+ * 依日期排序，查詢區間以二分搜尋定位，再於伺服器端降採樣為日/週/月的平均、最小、最大值。
+ * 序列以 LRU 方式快取最近使用的使用者，身體數據異動時於 commit 後丟棄該使用者的快取。
+ */
+@Component
+public class BodyMetricSeriesStore {
+
+	public enum Resolution {
+		DAY, WEEK, MONTH;
+
+		public static Resolution parse(String value) {
+			if (value == null || value.isBlank()) {
+				return DAY;
+			}
+			try {
+				return valueOf(value.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("不支援的時間解析度: " + value + " (可用 day、week、month)");
+			}
+		}
+
+		LocalDate bucketStart(LocalDate date) {
+			return switch (this) {
+				case DAY -> date;
+				case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+				case MONTH -> date.withDayOfMonth(1);
+			};
+		}
+	}
+
+	private static final int WEIGHT = 0;
+	private static final int BODY_FAT = 1;
+	private static final int BMI = 2;
+	private static final int MUSCLE_MASS = 3;
+	private static final int METRIC_COUNT = 4;
+
+	// 單一使用者的欄式序列；values[metric][i] 對應 epochDays[i]
+	private record Series(int[] epochDays, float[][] values) {
+	}
+
+	private final BodyMetricDAO bodyMetricRepo;
+	private final Map<Integer, Series> cache;
+
+	// 每次丟棄快取時遞增；載入期間若有異動則不放入快取，避免存入舊資料
+	private final AtomicLong generation = new AtomicLong();
+
+	public BodyMetricSeriesStore(BodyMetricDAO bodyMetricRepo,
+			@Value("${app.fitness.metric-series-cache-size:1000}") int cacheSize) {
+		this.bodyMetricRepo = bodyMetricRepo;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Series> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * 查詢 [startDate, endDate] 區間 (兩端皆可為 null 表示不限) 的降採樣序列。
+	 */
+	public BodyMetricSeriesDTO query(Integer userId, LocalDate startDate, LocalDate endDate, Resolution resolution) {
+		Series series = seriesOf(userId);
+		int from = startDate == null ? 0 : lowerBound(series.epochDays(), (int) startDate.toEpochDay());
+		int to = endDate == null ? series.epochDays().length
+				: lowerBound(series.epochDays(), (int) endDate.toEpochDay() + 1);
+
+		// 先計算區間數量，再一次配置所有陣列
+		int buckets = 0;
+		LocalDate previousBucket = null;
+		for (int i = from; i < to; i++) {
+			LocalDate bucket = resolution.bucketStart(LocalDate.ofEpochDay(series.epochDays()[i]));
+			if (!bucket.equals(previousBucket)) {
+				buckets++;
+				previousBucket = bucket;
+			}
+		}
+
+		String[] periodStarts = new String[buckets];
+		int[] counts = new int[buckets];
+		Double[][] means = new Double[METRIC_COUNT][buckets];
+		Double[][] mins = new Double[METRIC_COUNT][buckets];
+		Double[][] maxes = new Double[METRIC_COUNT][buckets];
+		double[] sums = new double[METRIC_COUNT];
+		int[] valueCounts = new int[METRIC_COUNT];
+
+		int bucketIndex = -1;
+		previousBucket = null;
+		for (int i = from; i < to; i++) {
+			LocalDate bucket = resolution.bucketStart(LocalDate.ofEpochDay(series.epochDays()[i]));
+			if (!bucket.equals(previousBucket)) {
+				if (bucketIndex >= 0) {
+					closeBucket(bucketIndex, sums, valueCounts, means);
+				}
+				bucketIndex++;
+				periodStarts[bucketIndex] = bucket.toString();
+				previousBucket = bucket;
+			}
+			counts[bucketIndex]++;
+			for (int metric = 0; metric < METRIC_COUNT; metric++) {
+				float value = series.values()[metric][i];
+				if (Float.isNaN(value)) {
+					continue;
+				}
+				sums[metric] += value;
+				valueCounts[metric]++;
+				Double min = mins[metric][bucketIndex];
+				Double max = maxes[metric][bucketIndex];
+				mins[metric][bucketIndex] = min == null ? (double) value : Math.min(min, value);
+				maxes[metric][bucketIndex] = max == null ? (double) value : Math.max(max, value);
+			}
+		}
+		if (bucketIndex >= 0) {
+			closeBucket(bucketIndex, sums, valueCounts, means);
+		}
+
+		BodyMetricSeriesDTO dto = new BodyMetricSeriesDTO();
+		dto.setUserId(userId);
+		dto.setResolution(resolution.name().toLowerCase(Locale.ROOT));
+		dto.setPeriodStarts(periodStarts);
+		dto.setCounts(counts);
+		dto.setWeight(metricSeries(means[WEIGHT], mins[WEIGHT], maxes[WEIGHT]));
+		dto.setBodyFat(metricSeries(means[BODY_FAT], mins[BODY_FAT], maxes[BODY_FAT]));
+		dto.setBmi(metricSeries(means[BMI], mins[BMI], maxes[BMI]));
+		dto.setMuscleMass(metricSeries(means[MUSCLE_MASS], mins[MUSCLE_MASS], maxes[MUSCLE_MASS]));
+		return dto;
+	}
+
+	// 使用者的身體數據異動後呼叫；在交易中時 commit 後再丟棄一次
+	public void invalidate(Integer userId) {
+		if (userId == null) {
+			return;
+		}
+		evict(userId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					evict(userId);
+				}
+			});
+		}
+	}
+
+	private void evict(Integer userId) {
+		generation.incrementAndGet();
+		synchronized (cache) {
+			cache.remove(userId);
+		}
+	}
+
+	private Series seriesOf(Integer userId) {
+		synchronized (cache) {
+			Series cached = cache.get(userId);
+			if (cached != null) {
+				return cached;
+			}
+		}
+		long loadGeneration = generation.get();
+		Series series = load(userId);
+		if (generation.get() == loadGeneration) {
+			synchronized (cache) {
+				cache.put(userId, series);
+			}
+		}
+		return series;
+	}
+
+	private Series load(Integer userId) {
+		List<Object[]> rows = bodyMetricRepo.findSeriesColumnsByUserId(userId);
+		int[] epochDays = new int[rows.size()];
+		float[][] values = new float[METRIC_COUNT][rows.size()];
+		for (int i = 0; i < rows.size(); i++) {
+			Object[] row = rows.get(i);
+			epochDays[i] = (int) ((LocalDate) row[0]).toEpochDay();
+			for (int metric = 0; metric < METRIC_COUNT; metric++) {
+				Object value = row[metric + 1];
+				values[metric][i] = value == null ? Float.NaN : ((Number) value).floatValue();
+			}
+		}
+		return new Series(epochDays, values);
+	}
+
+	private static void closeBucket(int bucketIndex, double[] sums, int[] valueCounts, Double[][] means) {
+		for (int metric = 0; metric < METRIC_COUNT; metric++) {
+			if (valueCounts[metric] > 0) {
+				means[metric][bucketIndex] = sums[metric] / valueCounts[metric];
+			}
+		}
+		Arrays.fill(sums, 0);
+		Arrays.fill(valueCounts, 0);
+	}
+
+	private static BodyMetricSeriesDTO.MetricSeries metricSeries(Double[] mean, Double[] min, Double[] max) {
+		BodyMetricSeriesDTO.MetricSeries series = new BodyMetricSeriesDTO.MetricSeries();
+		series.setMean(mean);
+		series.setMin(min);
+		series.setMax(max);
+		return series;
+	}
+
+	// 第一個 >= key 的位置
+	private static int lowerBound(int[] sorted, int key) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
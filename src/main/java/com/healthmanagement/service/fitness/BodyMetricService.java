@@ -7,6 +7,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import com.healthmanagement.dto.fitness.BodyMetricDTO;
+import com.healthmanagement.dto.fitness.BodyMetricSeriesDTO;
 
 public interface BodyMetricService {
 	// 保存身體數據
@@ -33,6 +34,9 @@ public interface BodyMetricService {
 	// 根據 userId 和日期範圍查詢 BodyMetric
 	List<BodyMetricDTO> findByUserIdAndDateRange(Integer userId, String startDate, String endDate);
 
+	// 身體數據時間序列 (欄式陣列，依 day / week / month 降採樣)
+	BodyMetricSeriesDTO getSeries(Integer userId, String startDate, String endDate, String resolution);
+
 	// 根據姓名查詢 BodyMetric (需要用戶服務)
 	List<BodyMetricDTO> findByUserName(String name);
 
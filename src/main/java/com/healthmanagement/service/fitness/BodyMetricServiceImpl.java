@@ -7,10 +7,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.healthmanagement.dao.fitness.BodyMetricDAO;
-import com.healthmanagement.dao.fitness.FitnessGoalDAO;
 import com.healthmanagement.dto.fitness.BodyMetricDTO;
+import com.healthmanagement.dto.fitness.BodyMetricSeriesDTO;
 import com.healthmanagement.model.fitness.BodyMetric;
-import com.healthmanagement.model.fitness.FitnessGoal;
 import com.healthmanagement.model.member.User;
 import com.healthmanagement.service.member.UserService;
 
@@ -37,7 +36,16 @@ public class BodyMetricServiceImpl implements BodyMetricService {
 	private UserService userService;
 
 	@Autowired
-	private FitnessGoalDAO fitnessGoalRepo;
+	private CalorieCalculator calorieCalculator;
+
+	@Autowired
+	private GoalProgressEngine goalProgressEngine;
+
+	@Autowired
+	private BodyMetricSeriesStore bodyMetricSeriesStore;
+
+	@Autowired
+	private RecommendationService recommendationService;
 
 	@Override
 	@Transactional
@@ -54,9 +62,12 @@ public class BodyMetricServiceImpl implements BodyMetricService {
 		bodyMetric.setBmi(calculateBMI(bodyMetricDTO.getWeight(), bodyMetricDTO.getHeight()));
 
 		BodyMetric savedBodyMetric = bodyMetricRepo.save(bodyMetric);
+		calorieCalculator.onBodyMetricSaved(savedBodyMetric);
+		bodyMetricSeriesStore.invalidate(savedBodyMetric.getUserId());
 
-		// 更新健身目標進度
-		updateFitnessGoalProgress(bodyMetricDTO.getUserId(), bodyMetric);
+		// 更新健身目標進度 (commit 後依最新身體數據重新計算，達成者標記為已完成)
+		goalProgressEngine.onBodyMetricsChanged(bodyMetricDTO.getUserId());
+		recommendationService.invalidate(bodyMetricDTO.getUserId());
 
 		// 檢查並頒發身體數據相關的獎章
 		Integer userId = bodyMetricDTO.getUserId();
@@ -70,93 +81,6 @@ public class BodyMetricServiceImpl implements BodyMetricService {
 		return convertToDTO(savedBodyMetric, null);
 	}
 
-	@Transactional
-	public void updateFitnessGoalProgress(Integer userId, BodyMetric currentBodyData) {
-		System.out.println("updateFitnessGoalProgress - 開始執行，使用者 ID: " + userId + ", 時間: " + java.time.LocalDateTime.now());
-		System.out.println("updateFitnessGoalProgress - 當前身體數據重量: " + (currentBodyData != null ? currentBodyData.getWeight() : "null"));
-
-		// 查詢用戶目前進行中的健身目標
-		List<FitnessGoal> activeGoals = fitnessGoalRepo.findByUserIdAndStatus(userId, "進行中");
-		System.out.println("updateFitnessGoalProgress - 找到 " + activeGoals.size() + " 個進行中的目標。");
-
-		for (FitnessGoal goal : activeGoals) {
-			if ("減重".equalsIgnoreCase(goal.getGoalType())) {
-				System.out.println("updateFitnessGoalProgress - 目標是減重。");
-				if (goal.getTargetValue() != null && currentBodyData.getWeight() != null
-						&& goal.getStartWeight() != null) {
-					double startWeight = goal.getStartWeight();
-					double targetValue = goal.getTargetValue();
-					double currentWeight = currentBodyData.getWeight();
-
-					System.out.println("updateFitnessGoalProgress - 起始體重: " + startWeight + ", 目標減少量: " + targetValue + ", 目前體重: " + currentWeight);
-
-					double weightDiff = startWeight - currentWeight;
-					double targetDiff = targetValue;
-					double progressPercentage = 0.0;
-
-					if (targetDiff != 0) {
-						progressPercentage = Math.min(100.0, Math.max(0.0, (weightDiff / targetDiff) * 100));
-					} else {
-						progressPercentage = weightDiff > 0 ? 100.0 : 0.0;
-					}
-
-					System.out.println("updateFitnessGoalProgress - 計算出的進度百分比: " + progressPercentage);
-					goal.setCurrentProgress(progressPercentage);
-					System.out.println("updateFitnessGoalProgress - 目標 ID: " + goal.getGoalId() + ", 設定目前進度為: " + progressPercentage);
-
-					if (progressPercentage >= 100) {
-						goal.setStatus("已完成");
-						System.out.println("updateFitnessGoalProgress - 目標 ID: " + goal.getGoalId() + ", 狀態更新為: 已完成");
-					}
-
-					fitnessGoalRepo.save(goal);
-					System.out.println("updateFitnessGoalProgress - 目標 ID: " + goal.getGoalId() + ", 進度已保存到資料庫，目前進度: " + goal.getCurrentProgress() + ", 狀態: " + goal.getStatus());
-
-				} else {
-					System.out.println("updateFitnessGoalProgress - 減重目標的必要數據為 null，跳過進度更新。目標 ID: " + goal.getGoalId() + ", targetValue: " + goal.getTargetValue() + ", currentWeight: " + currentBodyData.getWeight() + ", startWeight: " + goal.getStartWeight());
-				}
-			} else if ("增肌".equalsIgnoreCase(goal.getGoalType())) {
-				if (goal.getTargetValue() != null && currentBodyData.getMuscleMass() != null
-						&& goal.getStartMuscleMass() != null) {
-					double muscleGain = currentBodyData.getMuscleMass() - goal.getStartMuscleMass();
-					double targetGain = goal.getTargetValue();
-					if (targetGain != 0) {
-						double progressPercentage = Math.min(200.0, Math.max(0.0, (muscleGain / targetGain) * 100));
-						goal.setCurrentProgress(progressPercentage);	if (progressPercentage >= 100) {
-							goal.setStatus("已完成");
-						}
-					} else {
-						goal.setCurrentProgress(muscleGain > 0 ? 100.0 : 0.0);
-						if (goal.getCurrentProgress() >= 100) {
-							goal.setStatus("已完成");
-						}
-					}
-					fitnessGoalRepo.save(goal);
-				}
-			} else if ("減脂".equalsIgnoreCase(goal.getGoalType())) {
-				if (goal.getTargetValue() != null && currentBodyData.getBodyFat() != null
-						&& goal.getStartBodyFat() != null) {
-					double fatLoss = goal.getStartBodyFat() - currentBodyData.getBodyFat();
-					double targetLoss =goal.getTargetValue();
-					if (targetLoss != 0) {
-						double progressPercentage = Math.min(100.0, Math.max(0.0, (fatLoss / targetLoss) * 100));
-						goal.setCurrentProgress(progressPercentage);
-						if (progressPercentage >= 100) {
-							goal.setStatus("已完成");
-						}
-					} else {
-						goal.setCurrentProgress(fatLoss > 0 ? 100.0 : 0.0);
-						if (goal.getCurrentProgress() >= 100) {
-							goal.setStatus("已完成");
-						}
-					}
-					fitnessGoalRepo.save(goal);
-				}
-			}
-			// 在這裡可以添加對其他目標類型的處理
-		}
-	}
-
 	@Override
 	public BodyMetricDTO calculateBMI(BodyMetricDTO bodyMetricDTO) {
 		double bmi = calculateBMI(bodyMetricDTO.getWeight(), bodyMetricDTO.getHeight());
@@ -170,8 +94,15 @@ public class BodyMetricServiceImpl implements BodyMetricService {
 	}
 
 	@Override
+	@Transactional
 	public void deleteBodyMetric(Integer bodyMetricId) {
-		bodyMetricRepo.deleteById(bodyMetricId);
+		bodyMetricRepo.findById(bodyMetricId).ifPresent(bodyMetric -> {
+			bodyMetricRepo.delete(bodyMetric);
+			calorieCalculator.evictWeight(bodyMetric.getUserId());
+			bodyMetricSeriesStore.invalidate(bodyMetric.getUserId());
+			goalProgressEngine.onBodyMetricsChanged(bodyMetric.getUserId());
+			recommendationService.invalidate(bodyMetric.getUserId());
+		});
 	}
 
 	@Override
@@ -207,6 +138,10 @@ public class BodyMetricServiceImpl implements BodyMetricService {
 			existingBodyMetric.setBmi(calculateBMI(bodyMetricDTO.getWeight(), bodyMetricDTO.getHeight()));
 
 			BodyMetric updatedBodyMetric = bodyMetricRepo.save(existingBodyMetric);
+			calorieCalculator.evictWeight(updatedBodyMetric.getUserId());
+			bodyMetricSeriesStore.invalidate(updatedBodyMetric.getUserId());
+			goalProgressEngine.onBodyMetricsChanged(updatedBodyMetric.getUserId());
+			recommendationService.invalidate(updatedBodyMetric.getUserId());
 			return convertToDTO(updatedBodyMetric, null);
 		}
 		return null;
@@ -233,6 +168,21 @@ public class BodyMetricServiceImpl implements BodyMetricService {
 				.map(bodyMetric -> convertToDTO(bodyMetric, null)).toList();
 	}
 
+	@Override
+	public BodyMetricSeriesDTO getSeries(Integer userId, String startDate, String endDate, String resolution) {
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+		LocalDate startLocalDate;
+		LocalDate endLocalDate;
+		try {
+			startLocalDate = startDate != null && !startDate.isEmpty() ? LocalDate.parse(startDate, formatter) : null;
+			endLocalDate = endDate != null && !endDate.isEmpty() ? LocalDate.parse(endDate, formatter) : null;
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("日期格式錯誤: " + e.getMessage());
+		}
+		return bodyMetricSeriesStore.query(userId, startLocalDate, endLocalDate,
+				BodyMetricSeriesStore.Resolution.parse(resolution));
+	}
+
 	@Override
 	public List<BodyMetricDTO> findByMultipleCriteria(Integer userId, String userName, String startDate,
 													  String endDate) {
@@ -0,0 +1,207 @@
+package com.healthmanagement.service.fitness;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.healthmanagement.dao.fitness.BodyMetricDAO;
+import com.healthmanagement.dao.fitness.ExerciseTypeCoefficientDAO;
+import com.healthmanagement.model.fitness.BodyMetric;
+import com.healthmanagement.model.fitness.ExerciseTypeCoefficient;
+
+import jakarta.persistence.EntityNotFoundException;
+
+/**
+ * 運動卡路里計算 (卡路里 = MET × 體重(kg) × 時數)
+ * MET 係數表在記憶體中保存為不可變的 Map，定期或查無運動類型時整表重新載入；
+ * 每位使用者的最新體重另外快取，由身體數據的新增、修改、刪除於 commit 後同步。
+ * 批次計算 (穿戴裝置匯入) 時，快取中沒有的使用者體重以一次查詢取得。
+ */
+@Component
+public class CalorieCalculator {
+
+	private static final Logger logger = LoggerFactory.getLogger(CalorieCalculator.class);
+
+	private final ExerciseTypeCoefficientDAO exerciseTypeCoefficientRepo;
+	private final BodyMetricDAO bodyMetricRepo;
+
+	// 運動名稱 → MET 值，重新載入時整組替換
+	private volatile Map<String, Double> metByExerciseName = Map.of();
+
+	// 使用者 ID → 最新體重
+	private final Map<Integer, LatestWeight> latestWeightByUser = new ConcurrentHashMap<>();
+
+	// 單筆計算輸入：使用者、運動類型、運動時長 (分鐘)
+	public record CalorieInput(Integer userId, String exerciseType, int durationMinutes) {
+	}
+
+	private record LatestWeight(LocalDate dateRecorded, Integer bodyMetricId, double weight) {
+
+		static LatestWeight of(BodyMetric bodyMetric) {
+			return new LatestWeight(bodyMetric.getDateRecorded(), bodyMetric.getId(), bodyMetric.getWeight());
+		}
+
+		boolean isNewerThan(LatestWeight other) {
+			int byDate = dateRecorded.compareTo(other.dateRecorded);
+			return byDate > 0 || (byDate == 0 && bodyMetricId >= other.bodyMetricId);
+		}
+	}
+
+	public CalorieCalculator(ExerciseTypeCoefficientDAO exerciseTypeCoefficientRepo, BodyMetricDAO bodyMetricRepo) {
+		this.exerciseTypeCoefficientRepo = exerciseTypeCoefficientRepo;
+		this.bodyMetricRepo = bodyMetricRepo;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadOnStartup() {
+		reloadMetTable();
+	}
+
+	// MET 係數表由後台直接維護，定期重新載入
+	@Scheduled(fixedDelayString = "${app.fitness.met-refresh-ms:600000}",
+			initialDelayString = "${app.fitness.met-refresh-ms:600000}")
+	public void reloadMetTable() {
+		Map<String, Double> table = new HashMap<>();
+		for (ExerciseTypeCoefficient coefficient : exerciseTypeCoefficientRepo.findAll()) {
+			if (coefficient.getExerciseName() != null && coefficient.getMet() != null) {
+				table.put(coefficient.getExerciseName(), coefficient.getMet());
+			}
+		}
+		metByExerciseName = Map.copyOf(table);
+		logger.debug("已載入 {} 筆運動 MET 係數。", table.size());
+	}
+
+	/**
+	 * 計算單筆運動消耗的卡路里。
+	 *
+	 * @throws EntityNotFoundException 使用者沒有身體數據，或運動類型沒有 MET 值
+	 */
+	public double calculate(Integer userId, String exerciseType, int durationMinutes) {
+		return compute(metOf(exerciseType), weightOf(userId), durationMinutes);
+	}
+
+	/**
+	 * 批次計算，回傳值與輸入順序相同。任一筆缺少體重或 MET 值時整批失敗。
+	 *
+	 * @throws EntityNotFoundException 使用者沒有身體數據，或運動類型沒有 MET 值
+	 */
+	public double[] calculateAll(List<CalorieInput> inputs) {
+		preloadWeights(inputs.stream().map(CalorieInput::userId).collect(Collectors.toSet()));
+
+		double[] calories = new double[inputs.size()];
+		for (int i = 0; i < inputs.size(); i++) {
+			CalorieInput input = inputs.get(i);
+			calories[i] = compute(metOf(input.exerciseType()), weightOf(input.userId()), input.durationMinutes());
+		}
+		return calories;
+	}
+
+	// 運動類型是否有 MET 值 (批次匯入時逐筆驗證用)
+	public boolean hasMet(String exerciseType) {
+		try {
+			metOf(exerciseType);
+			return true;
+		} catch (EntityNotFoundException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * 預先載入多位使用者的最新體重 (快取中沒有的以一次查詢取得)，回傳沒有任何身體數據的使用者。
+	 */
+	public Set<Integer> preloadWeights(Collection<Integer> userIds) {
+		Set<Integer> missingUserIds = new HashSet<>();
+		for (Integer userId : userIds) {
+			if (!latestWeightByUser.containsKey(userId)) {
+				missingUserIds.add(userId);
+			}
+		}
+		if (!missingUserIds.isEmpty()) {
+			for (BodyMetric bodyMetric : bodyMetricRepo.findLatestByUserIdIn(missingUserIds)) {
+				cacheIfNewer(bodyMetric.getUserId(), LatestWeight.of(bodyMetric));
+			}
+			missingUserIds.removeIf(latestWeightByUser::containsKey);
+		}
+		return missingUserIds;
+	}
+
+	// 身體數據新增後呼叫；commit 後才更新快取 (較舊日期的補登不影響目前體重)。
+	// 只更新已快取的使用者：沒有快取時無從比較新舊，留待下次讀取時由資料庫載入最新一筆
+	public void onBodyMetricSaved(BodyMetric bodyMetric) {
+		LatestWeight latest = LatestWeight.of(bodyMetric);
+		afterCommit(() -> latestWeightByUser.computeIfPresent(bodyMetric.getUserId(),
+				(userId, existing) -> latest.isNewerThan(existing) ? latest : existing));
+	}
+
+	// 身體數據修改或刪除後呼叫；無法判斷最新一筆是否改變，直接丟棄快取
+	public void evictWeight(Integer userId) {
+		if (userId != null) {
+			latestWeightByUser.remove(userId);
+			afterCommit(() -> latestWeightByUser.remove(userId));
+		}
+	}
+
+	private double metOf(String exerciseType) {
+		Double met = exerciseType == null ? null : metByExerciseName.get(exerciseType);
+		if (met == null && exerciseType != null) {
+			// 可能是剛新增的運動類型：確認資料庫中存在後重新載入整表
+			met = exerciseTypeCoefficientRepo.findByExerciseName(exerciseType)
+					.map(ExerciseTypeCoefficient::getMet)
+					.orElse(null);
+			if (met != null) {
+				reloadMetTable();
+			}
+		}
+		if (met == null) {
+			throw new EntityNotFoundException("找不到該運動類型的 MET 值。");
+		}
+		return met;
+	}
+
+	private double weightOf(Integer userId) {
+		LatestWeight latest = latestWeightByUser.get(userId);
+		if (latest == null) {
+			BodyMetric bodyMetric = bodyMetricRepo.findTopByUserIdOrderByDateRecordedDescIdDesc(userId)
+					.orElseThrow(() -> new EntityNotFoundException("找不到用戶的身體數據。"));
+			latest = cacheIfNewer(userId, LatestWeight.of(bodyMetric));
+		}
+		return latest.weight();
+	}
+
+	private LatestWeight cacheIfNewer(Integer userId, LatestWeight candidate) {
+		return latestWeightByUser.merge(userId, candidate,
+				(existing, incoming) -> incoming.isNewerThan(existing) ? incoming : existing);
+	}
+
+	private static double compute(double met, double weight, int durationMinutes) {
+		return met * weight * (durationMinutes / 60.0);
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
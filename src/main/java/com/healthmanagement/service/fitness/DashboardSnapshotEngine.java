@@ -0,0 +1,172 @@
+package com.healthmanagement.service.fitness;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.dao.fitness.DashboardStatSnapshotDAO;
+import com.healthmanagement.dao.fitness.ExerciseRecordDAO;
+import com.healthmanagement.dao.member.UserDAO;
+import com.healthmanagement.dto.fitness.DashboardStatsDTO;
+import com.healthmanagement.model.fitness.DashboardStatSnapshot;
+
+/**
+ * 後台儀表板統計快照
+ * 依排程 (app.dashboard.refresh-ms) 重新計算原 dashboard_stat view 的各項指標，保存在記憶體並寫入 dashboard_stat_snapshots；
+ * 儀表板讀取時只複製記憶體中的快照，不查詢資料庫。
+ * 運動紀錄的新增、修改、刪除於 commit 後直接增減快照中的運動總計，兩次排程之間仍保持即時；
+ * 登入人數只在排程時更新，回傳的 computedAt / ageSeconds / stale 可判斷資料新舊。
+ */
+@Component
+public class DashboardSnapshotEngine {
+
+	private static final Logger logger = LoggerFactory.getLogger(DashboardSnapshotEngine.class);
+
+	private static final int SNAPSHOT_ID = 1;
+
+	private final UserDAO userRepo;
+	private final ExerciseRecordDAO exerciseRecordRepo;
+	private final DashboardStatSnapshotDAO snapshotRepo;
+	private final TransactionTemplate transactionTemplate;
+	private final long refreshMillis;
+
+	// 目前的快照；尚未計算過時為 null
+	private volatile Stats current;
+
+	private record Stats(int totalUsers, int totalWorkouts, int totalWorkoutMinutes, double totalCaloriesBurned,
+			int activeUsersThisWeek, int activeUsersThisMonth, int activeUsersThisYear, LocalDateTime computedAt) {
+
+		Stats plusWorkouts(int count, int minutes, double calories) {
+			return new Stats(totalUsers, totalWorkouts + count, totalWorkoutMinutes + minutes,
+					totalCaloriesBurned + calories, activeUsersThisWeek, activeUsersThisMonth, activeUsersThisYear,
+					computedAt);
+		}
+	}
+
+	public DashboardSnapshotEngine(UserDAO userRepo, ExerciseRecordDAO exerciseRecordRepo,
+			DashboardStatSnapshotDAO snapshotRepo, PlatformTransactionManager transactionManager,
+			@Value("${app.dashboard.refresh-ms:300000}") long refreshMillis) {
+		this.userRepo = userRepo;
+		this.exerciseRecordRepo = exerciseRecordRepo;
+		this.snapshotRepo = snapshotRepo;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.refreshMillis = refreshMillis;
+	}
+
+	// 啟動時先提供上次保存的快照，排程第一次計算完成前儀表板不需等待
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadPersistedSnapshot() {
+		snapshotRepo.findById(SNAPSHOT_ID).ifPresent(snapshot -> {
+			synchronized (this) {
+				if (current == null) {
+					current = new Stats(snapshot.getTotalUsers(), snapshot.getTotalWorkouts(),
+							snapshot.getTotalWorkoutMinutes(), snapshot.getTotalCaloriesBurned(),
+							snapshot.getActiveUsersThisWeek(), snapshot.getActiveUsersThisMonth(),
+							snapshot.getActiveUsersThisYear(), snapshot.getComputedAt());
+				}
+			}
+		});
+	}
+
+	@Scheduled(fixedDelayString = "${app.dashboard.refresh-ms:300000}")
+	public void refresh() {
+		long startNanos = System.nanoTime();
+		LocalDateTime now = LocalDateTime.now();
+		LocalDate today = now.toLocalDate();
+		Stats stats = transactionTemplate.execute(status -> {
+			// 與原 view 相同：DATEDIFF(DAY, last_login, GETDATE()) <= 7、同年同月、同年
+			Object[] users = userRepo.countDashboardUserStats(
+					today.minusDays(7).atStartOfDay(),
+					today.withDayOfMonth(1).atStartOfDay(), today.withDayOfMonth(1).plusMonths(1).atStartOfDay(),
+					today.withDayOfYear(1).atStartOfDay(), today.withDayOfYear(1).plusYears(1).atStartOfDay()).get(0);
+			Object[] workouts = exerciseRecordRepo.sumDashboardWorkoutStats().get(0);
+			return new Stats(intValue(users[0]), intValue(workouts[0]), intValue(workouts[1]),
+					((Number) workouts[2]).doubleValue(), intValue(users[1]), intValue(users[2]), intValue(users[3]),
+					now);
+		});
+		long computeMillis = (System.nanoTime() - startNanos) / 1_000_000;
+		synchronized (this) {
+			current = stats;
+		}
+		transactionTemplate.executeWithoutResult(status -> snapshotRepo.save(toEntity(stats, computeMillis)));
+		logger.debug("儀表板統計快照已更新，耗時 {} ms。", computeMillis);
+	}
+
+	/**
+	 * 取得目前的快照 (複本)。尚未計算過時當場計算一次。
+	 */
+	public DashboardStatsDTO getStats() {
+		Stats stats = current;
+		if (stats == null) {
+			refresh();
+			stats = current;
+		}
+		DashboardStatsDTO dto = new DashboardStatsDTO();
+		dto.setTotalUsers(stats.totalUsers());
+		dto.setTotalWorkouts(stats.totalWorkouts());
+		dto.setTotalWorkoutMinutes(stats.totalWorkoutMinutes());
+		dto.setTotalCaloriesBurned(stats.totalCaloriesBurned());
+		dto.setActiveUsersThisWeek(stats.activeUsersThisWeek());
+		dto.setActiveUsersThisMonth(stats.activeUsersThisMonth());
+		dto.setActiveUsersThisYear(stats.activeUsersThisYear());
+		long ageSeconds = Math.max(0, Duration.between(stats.computedAt(), LocalDateTime.now()).toSeconds());
+		dto.setComputedAt(stats.computedAt());
+		dto.setAgeSeconds(ageSeconds);
+		// 超過兩個排程間隔仍未更新 (排程失敗或停擺) 視為過期
+		dto.setStale(ageSeconds * 1000 > refreshMillis * 2);
+		return dto;
+	}
+
+	/**
+	 * 運動紀錄異動時增減快照中的運動總計。在交易中時於 commit 後才套用。
+	 */
+	public void applyWorkoutDelta(int count, int minutes, double calories) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					applyNow(count, minutes, calories);
+				}
+			});
+		} else {
+			applyNow(count, minutes, calories);
+		}
+	}
+
+	private synchronized void applyNow(int count, int minutes, double calories) {
+		if (current != null) {
+			current = current.plusWorkouts(count, minutes, calories);
+		}
+	}
+
+	private static DashboardStatSnapshot toEntity(Stats stats, long computeMillis) {
+		return DashboardStatSnapshot.builder()
+				.snapshotId(SNAPSHOT_ID)
+				.totalUsers(stats.totalUsers())
+				.totalWorkouts(stats.totalWorkouts())
+				.totalWorkoutMinutes(stats.totalWorkoutMinutes())
+				.totalCaloriesBurned(stats.totalCaloriesBurned())
+				.activeUsersThisWeek(stats.activeUsersThisWeek())
+				.activeUsersThisMonth(stats.activeUsersThisMonth())
+				.activeUsersThisYear(stats.activeUsersThisYear())
+				.computedAt(stats.computedAt())
+				.computeMillis(computeMillis)
+				.build();
+	}
+
+	private static int intValue(Object value) {
+		return value == null ? 0 : ((Number) value).intValue();
+	}
+}
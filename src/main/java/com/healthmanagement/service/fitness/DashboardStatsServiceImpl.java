@@ -1,37 +1,18 @@
 package com.healthmanagement.service.fitness;
 
 import com.healthmanagement.dto.fitness.DashboardStatsDTO;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-
 @Service
 @RequiredArgsConstructor
 public class DashboardStatsServiceImpl implements DashboardStatsService {
 
-    private final EntityManager entityManager;
+    private final DashboardSnapshotEngine dashboardSnapshotEngine;
 
+    // 直接讀取記憶體中的統計快照 (由 DashboardSnapshotEngine 依排程重新計算)，不再查詢 dashboard_stat view
     @Override
     public DashboardStatsDTO getDashboardStats() {
-        Query query = entityManager.createNativeQuery("SELECT * FROM dashboard_stat");
-        @SuppressWarnings("unchecked")
-        List<Object[]> results = query.getResultList();
-
-        if (!results.isEmpty()) {
-            Object[] row = results.get(0);
-            DashboardStatsDTO stats = new DashboardStatsDTO();
-            stats.setTotalUsers(((Number) row[0]).intValue());
-            stats.setTotalWorkouts(((Number) row[1]).intValue());
-            stats.setTotalWorkoutMinutes(((Number) row[2]).intValue());
-            stats.setTotalCaloriesBurned(((Number) row[3]).doubleValue()); 
-            stats.setActiveUsersThisWeek(((Number) row[4]).intValue());
-            stats.setActiveUsersThisMonth(((Number) row[5]).intValue());
-            stats.setActiveUsersThisYear(((Number) row[6]).intValue());
-            return stats;
-        }
-        return null; // 或者拋出異常
+        return dashboardSnapshotEngine.getStats();
     }
-}
\ No newline at end of file
+}
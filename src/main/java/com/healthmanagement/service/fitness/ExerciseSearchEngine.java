@@ -0,0 +1,76 @@
+package com.healthmanagement.service.fitness;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+
+import com.healthmanagement.dao.fitness.ExerciseRecordSearchDAO;
+import com.healthmanagement.dto.fitness.ExerciseSearchCriteria;
+import com.healthmanagement.model.fitness.ExerciseRecord;
+
+/**
+ * 後台運動紀錄查詢
+ * 條件組成單一查詢 (只含有值的條件，姓名先比對使用者表再以 user_id 過濾)，依日期由新到舊排序。
+ * 總筆數只在無法由本頁結果推得時才查詢 (第一頁未滿、最後一頁皆可直接算出)，
+ * 並依條件快取一小段時間，翻頁時不必每頁重新計數。
+ */
+@Component
+public class ExerciseSearchEngine {
+
+	private final ExerciseRecordSearchDAO exerciseRecordSearchRepo;
+	private final long countCacheTtlMs;
+
+	// 查詢條件 → 總筆數 (LRU)
+	private final Map<ExerciseSearchCriteria, CachedCount> countCache;
+
+	private record CachedCount(long total, long expiresAtMillis) {
+	}
+
+	public ExerciseSearchEngine(ExerciseRecordSearchDAO exerciseRecordSearchRepo,
+			@Value("${app.fitness.exercise-search.count-cache-ms:30000}") long countCacheTtlMs,
+			@Value("${app.fitness.exercise-search.count-cache-size:500}") int countCacheSize) {
+		this.exerciseRecordSearchRepo = exerciseRecordSearchRepo;
+		this.countCacheTtlMs = countCacheTtlMs;
+		this.countCache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<ExerciseSearchCriteria, CachedCount> eldest) {
+				return size() > countCacheSize;
+			}
+		};
+	}
+
+	public Page<ExerciseRecord> search(ExerciseSearchCriteria criteria, Pageable pageable) {
+		if (pageable.isUnpaged()) {
+			List<ExerciseRecord> all = exerciseRecordSearchRepo.search(criteria, 0, 0);
+			return PageableExecutionUtils.getPage(all, pageable, all::size);
+		}
+		List<ExerciseRecord> content = exerciseRecordSearchRepo.search(criteria, pageable.getOffset(),
+				pageable.getPageSize());
+		return PageableExecutionUtils.getPage(content, pageable, () -> count(criteria));
+	}
+
+	public List<ExerciseRecord> searchAll(ExerciseSearchCriteria criteria) {
+		return exerciseRecordSearchRepo.search(criteria, 0, 0);
+	}
+
+	private long count(ExerciseSearchCriteria criteria) {
+		long now = System.currentTimeMillis();
+		synchronized (countCache) {
+			CachedCount cached = countCache.get(criteria);
+			if (cached != null && cached.expiresAtMillis() >= now) {
+				return cached.total();
+			}
+		}
+		long total = exerciseRecordSearchRepo.count(criteria);
+		synchronized (countCache) {
+			countCache.put(criteria, new CachedCount(total, now + countCacheTtlMs));
+		}
+		return total;
+	}
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import com.healthmanagement.dto.fitness.ExerciseBulkIngestResultDTO;
 import com.healthmanagement.dto.fitness.ExerciseRecordDTO;
 import com.healthmanagement.dto.fitness.OverviewDataDTO;
 
@@ -15,6 +16,9 @@ public interface ExerciseService {
 
 	List<ExerciseRecordDTO> getExerciseRecordsByUserId(Integer userId);
 
+	// 批次匯入 (穿戴裝置同步)：逐筆驗證，通過的紀錄一次寫入，其餘回報原因
+	ExerciseBulkIngestResultDTO saveExerciseRecords(List<ExerciseRecordDTO> exerciseRecordDTOs);
+
 	ExerciseRecordDTO updateExerciseRecord(Integer recordId, ExerciseRecordDTO exerciseRecordDTO);
 
 	// 根據用戶 ID 和姓名模糊查詢運動紀錄
@@ -1,9 +1,13 @@
 package com.healthmanagement.service.fitness;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.Comparator;
 import java.time.DayOfWeek;
 import java.time.temporal.TemporalAdjusters;
 
@@ -13,27 +17,22 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 
-import jakarta.persistence.EntityNotFoundException;
-import jakarta.persistence.criteria.Join;
-import jakarta.persistence.criteria.Predicate;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.healthmanagement.dao.fitness.BodyMetricDAO;
+import com.healthmanagement.dao.fitness.ExerciseRecordBatchDAO;
 import com.healthmanagement.dao.fitness.ExerciseRecordDAO;
-import com.healthmanagement.dao.fitness.ExerciseTypeCoefficientDAO;
+import com.healthmanagement.dto.fitness.ExerciseBulkIngestResultDTO;
 import com.healthmanagement.dto.fitness.ExerciseRecordDTO;
+import com.healthmanagement.dto.fitness.ExerciseSearchCriteria;
 import com.healthmanagement.dto.fitness.OverviewDataDTO;
-import com.healthmanagement.model.fitness.BodyMetric;
 import com.healthmanagement.model.fitness.ExerciseRecord;
-import com.healthmanagement.model.fitness.ExerciseTypeCoefficient;
-import com.healthmanagement.model.member.User;
 import com.healthmanagement.service.member.UserService;
 
 @Service
@@ -41,40 +40,34 @@ import com.healthmanagement.service.member.UserService;
 public class ExerciseServiceImpl implements ExerciseService {
 
     private final ExerciseRecordDAO exerciseRecordRepo;
-    private final BodyMetricDAO bodyMetricRepo;
-    private final ExerciseTypeCoefficientDAO exerciseTypeCoefficientRepo;
+    private final CalorieCalculator calorieCalculator;
     private final AchievementService achievementService;
+    private final WorkoutRollupTracker workoutRollupTracker;
+    private final ExerciseSearchEngine exerciseSearchEngine;
+
+    private final ExerciseRecordBatchDAO exerciseRecordBatchRepo;
 
     @Autowired(required = false)
     private UserService userService;
 
+    // 批次匯入單次請求的筆數上限與 JDBC batch 大小
+    @Value("${app.fitness.bulk-ingest-max-records:10000}")
+    private int bulkIngestMaxRecords;
+
+    @Value("${app.fitness.bulk-ingest-batch-size:500}")
+    private int bulkIngestBatchSize;
+
     @Transactional
     @Override
     public ExerciseRecordDTO saveExerciseRecord(ExerciseRecordDTO exerciseRecordDTO) {
-        // 步驟 1: 從 BodyMetrics 中獲取用戶體重
-        List<BodyMetric> bodyMetrics = bodyMetricRepo.findByUserId(exerciseRecordDTO.getUserId());
-        if (bodyMetrics == null || bodyMetrics.isEmpty()) {
-            throw new EntityNotFoundException("找不到用戶的身體數據。");
-        }
-        BodyMetric bodyMetric = bodyMetrics.get(0); // 或使用排序後的第一筆最新資料
-
-        // 步驟 2: 根據運動類型獲取 MET 值
-        ExerciseTypeCoefficient exerciseType = exerciseTypeCoefficientRepo
-                .findByExerciseName(exerciseRecordDTO.getExerciseType())
-                .orElseThrow(() -> new EntityNotFoundException("找不到該運動類型的 MET 值。"));
-
-        // 步驟 3: 計算消耗的卡路里
-        double weight = bodyMetric.getWeight(); // 用戶的體重
-        double met = exerciseType.getMet().doubleValue(); // 運動的 MET 值
-        double durationInHours = exerciseRecordDTO.getExerciseDuration() / 60.0; // 將運動時長轉換為小時
-
-        // 計算消耗的卡路里
-        double caloriesBurned = met * weight * durationInHours;
+        // 步驟 1: 依最新體重與運動類型的 MET 值計算消耗的卡路里 (皆由記憶體快取取得)
+        double caloriesBurned = calorieCalculator.calculate(exerciseRecordDTO.getUserId(),
+                exerciseRecordDTO.getExerciseType(), exerciseRecordDTO.getExerciseDuration());
 
         // 設置計算後的卡路里消耗
         exerciseRecordDTO.setCaloriesBurned(caloriesBurned);
 
-        // 步驟 4: 保存運動紀錄
+        // 步驟 2: 保存運動紀錄
         ExerciseRecord exerciseRecord = new ExerciseRecord();
         exerciseRecord.setUserId(exerciseRecordDTO.getUserId());
         exerciseRecord.setExerciseType(exerciseRecordDTO.getExerciseType());
@@ -84,8 +77,9 @@ public class ExerciseServiceImpl implements ExerciseService {
 
         // 保存運動紀錄
         ExerciseRecord savedRecord = exerciseRecordRepo.save(exerciseRecord);
+        workoutRollupTracker.recordAdded(savedRecord);
 
-        // 步驟 5: 檢查並頒發運動相關的獎章
+        // 步驟 3: 檢查並頒發運動相關的獎章
         Integer userId = exerciseRecordDTO.getUserId();
         long workoutCount = exerciseRecordRepo.countByUser_Id(userId); // 取得該使用者的運動總次數
         achievementService.checkAndAwardAchievements(userId, "WORKOUT_CREATED", (int) workoutCount);
@@ -94,9 +88,109 @@ public class ExerciseServiceImpl implements ExerciseService {
         return toDTO(savedRecord);
     }
 
+    @Transactional
+    @Override
+    public ExerciseBulkIngestResultDTO saveExerciseRecords(List<ExerciseRecordDTO> exerciseRecordDTOs) {
+        if (exerciseRecordDTOs.size() > bulkIngestMaxRecords) {
+            throw new IllegalArgumentException("單次匯入最多 " + bulkIngestMaxRecords + " 筆運動紀錄。");
+        }
+        ExerciseBulkIngestResultDTO result = new ExerciseBulkIngestResultDTO();
+        result.setReceived(exerciseRecordDTOs.size());
+
+        // 步驟 1: 一次走訪完成驗證；運動類型與使用者體重只各查一次
+        Map<String, Boolean> knownTypes = new HashMap<>();
+        Set<Integer> usersWithoutWeight = calorieCalculator.preloadWeights(exerciseRecordDTOs.stream()
+                .map(ExerciseRecordDTO::getUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        List<ExerciseRecordDTO> accepted = new ArrayList<>();
+        for (int i = 0; i < exerciseRecordDTOs.size(); i++) {
+            ExerciseRecordDTO dto = exerciseRecordDTOs.get(i);
+            String reason = validateForIngest(dto, knownTypes, usersWithoutWeight);
+            if (reason != null) {
+                result.getRejected().add(new ExerciseBulkIngestResultDTO.RejectedRecord(i, reason));
+            } else {
+                accepted.add(dto);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return result;
+        }
+
+        // 步驟 2: 在記憶體中計算卡路里
+        double[] calories = calorieCalculator.calculateAll(accepted.stream()
+                .map(dto -> new CalorieCalculator.CalorieInput(dto.getUserId(), dto.getExerciseType(),
+                        dto.getExerciseDuration()))
+                .toList());
+        List<ExerciseRecord> records = new ArrayList<>(accepted.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            ExerciseRecordDTO dto = accepted.get(i);
+            records.add(ExerciseRecord.builder()
+                    .userId(dto.getUserId())
+                    .exerciseType(dto.getExerciseType())
+                    .exerciseDuration(dto.getExerciseDuration())
+                    .caloriesBurned(calories[i])
+                    .exerciseDate(dto.getExerciseDate())
+                    .build());
+        }
+
+        // 步驟 3: 記下各使用者匯入前的運動次數後，以 JDBC batch 寫入
+        Map<Integer, Long> countsBefore = new HashMap<>();
+        Set<Integer> userIds = records.stream().map(ExerciseRecord::getUserId).collect(Collectors.toSet());
+        for (Object[] row : exerciseRecordRepo.countByUserIdIn(userIds)) {
+            countsBefore.put((Integer) row[0], (Long) row[1]);
+        }
+        result.setInserted(exerciseRecordBatchRepo.batchInsert(records, bulkIngestBatchSize));
+        result.setUsersAffected(userIds.size());
+
+        // 步驟 4: 每日彙總依 (使用者, 日期) 合併更新；獎章每位使用者只送出一次累計事件
+        Map<Integer, Map<LocalDate, List<ExerciseRecord>>> byUserAndDate = records.stream()
+                .collect(Collectors.groupingBy(ExerciseRecord::getUserId,
+                        Collectors.groupingBy(ExerciseRecord::getExerciseDate)));
+        byUserAndDate.forEach((userId, byDate) -> {
+            byDate.forEach((date, dayRecords) -> workoutRollupTracker.dailyTotalsAdded(userId, date,
+                    dayRecords.stream().mapToInt(ExerciseRecord::getExerciseDuration).sum(),
+                    dayRecords.stream().mapToDouble(ExerciseRecord::getCaloriesBurned).sum(),
+                    dayRecords.size()));
+            int before = countsBefore.getOrDefault(userId, 0L).intValue();
+            int added = byDate.values().stream().mapToInt(List::size).sum();
+            achievementService.checkAndAwardAchievements(userId, "WORKOUT_CREATED",
+                    new AchievementEngine.CountRange(before, before + added));
+        });
+        return result;
+    }
+
+    // 回傳拒絕原因；通過驗證時回傳 null
+    private String validateForIngest(ExerciseRecordDTO dto, Map<String, Boolean> knownTypes,
+            Set<Integer> usersWithoutWeight) {
+        if (dto == null || dto.getUserId() == null) {
+            return "缺少使用者 ID。";
+        }
+        if (dto.getExerciseType() == null || dto.getExerciseType().isBlank()) {
+            return "缺少運動類型。";
+        }
+        if (dto.getExerciseDuration() == null || dto.getExerciseDuration() <= 0) {
+            return "運動時長必須大於 0。";
+        }
+        if (dto.getExerciseDate() == null) {
+            return "缺少運動日期。";
+        }
+        if (!knownTypes.computeIfAbsent(dto.getExerciseType(), calorieCalculator::hasMet)) {
+            return "找不到該運動類型的 MET 值。";
+        }
+        if (usersWithoutWeight.contains(dto.getUserId())) {
+            return "找不到用戶的身體數據。";
+        }
+        return null;
+    }
+
+    @Transactional
     @Override
     public void deleteExerciseRecord(Integer recordId) {
-        exerciseRecordRepo.deleteById(recordId);
+        exerciseRecordRepo.findById(recordId).ifPresent(record -> {
+            exerciseRecordRepo.delete(record);
+            workoutRollupTracker.recordRemoved(record);
+        });
     }
 
     @Override
@@ -116,93 +210,46 @@ public class ExerciseServiceImpl implements ExerciseService {
     public ExerciseRecordDTO updateExerciseRecord(Integer recordId, ExerciseRecordDTO exerciseRecordDTO) {
         Optional<ExerciseRecord> existingRecordOptional = exerciseRecordRepo.findById(recordId);
         return existingRecordOptional.map(record -> {
+            // 記下修改前的數值，供每日彙總扣除
+            LocalDate oldDate = record.getExerciseDate();
+            int oldDuration = record.getExerciseDuration();
+            double oldCalories = record.getCaloriesBurned();
+
             record.setExerciseType(exerciseRecordDTO.getExerciseType());
             record.setExerciseDuration(exerciseRecordDTO.getExerciseDuration());
             record.setExerciseDate(exerciseRecordDTO.getExerciseDate());
 
             // 重新計算 caloriesBurned
-            ExerciseTypeCoefficient exerciseType = exerciseTypeCoefficientRepo
-                    .findByExerciseName(exerciseRecordDTO.getExerciseType())
-                    .orElseThrow(() -> new EntityNotFoundException("找不到該運動類型的 MET 值。"));
-
-            List<BodyMetric> bodyMetrics = bodyMetricRepo.findByUserId(record.getUserId());
-            if (bodyMetrics == null || bodyMetrics.isEmpty()) {
-                throw new EntityNotFoundException("找不到用戶的身體數據。");
-            }
-            BodyMetric bodyMetric = bodyMetrics.get(0); // 或使用排序後的第一筆最新資料
-
-            double weight = bodyMetric.getWeight();
-            double met = exerciseType.getMet().doubleValue();
-            double durationInHours = exerciseRecordDTO.getExerciseDuration() / 60.0;
-            double caloriesBurned = met * weight * durationInHours;
+            double caloriesBurned = calorieCalculator.calculate(record.getUserId(),
+                    exerciseRecordDTO.getExerciseType(), exerciseRecordDTO.getExerciseDuration());
             record.setCaloriesBurned(caloriesBurned);
 
-            return toDTO(exerciseRecordRepo.save(record));
+            ExerciseRecord savedRecord = exerciseRecordRepo.save(record);
+            workoutRollupTracker.recordChanged(savedRecord.getUserId(), oldDate, oldDuration, oldCalories, savedRecord);
+            return toDTO(savedRecord);
         }).orElse(null);
     }
 
     @Override
     public List<ExerciseRecordDTO> getExerciseRecordsByUserIdAndUserName(Integer userId, String userName) {
-        Specification<ExerciseRecord> spec = (root, query, criteriaBuilder) -> {
-            Join<ExerciseRecord, User> userJoin = root.join("user"); // 假設 ExerciseRecord 有 user 欄位
-            Predicate userIdPredicate = criteriaBuilder.equal(root.get("userId"), userId);
-            Predicate userNamePredicate = criteriaBuilder.like(userJoin.get("name"), "%" + userName + "%");
-            return criteriaBuilder.and(userIdPredicate, userNamePredicate);
-        };
-        return exerciseRecordRepo.findAll(spec).stream().map(this::toDTO).collect(Collectors.toList());
+        ExerciseSearchCriteria criteria = new ExerciseSearchCriteria(userId, userName, null, null, null);
+        return exerciseSearchEngine.searchAll(criteria).stream().map(this::toDTO).collect(Collectors.toList());
     }
 
     @Override
     public List<ExerciseRecordDTO> getExerciseRecordsByUserName(String userName) {
-        Specification<ExerciseRecord> spec = (root, query, criteriaBuilder) -> {
-            Join<ExerciseRecord, User> userJoin = root.join("user"); // 假設 ExerciseRecord 有 user 欄位
-            return criteriaBuilder.like(userJoin.get("name"), "%" + userName + "%");
-        };
-        return exerciseRecordRepo.findAll(spec).stream().map(this::toDTO).collect(Collectors.toList());
+        ExerciseSearchCriteria criteria = new ExerciseSearchCriteria(null, userName, null, null, null);
+        return exerciseSearchEngine.searchAll(criteria).stream().map(this::toDTO).collect(Collectors.toList());
     }
 
     @Override
     public Page<ExerciseRecordDTO> getAllExerciseRecords(Pageable pageable, Integer userId, String userName,
             String exerciseType, String startDate, String endDate) {
-        LocalDate startLocalDate = parseDate(startDate);
-        LocalDate endLocalDate = parseDate(endDate);
-
-        Specification<ExerciseRecord> spec = (root, query, criteriaBuilder) -> {
-            Predicate predicate = criteriaBuilder.conjunction();
-
-            if (userId != null) {
-                predicate = criteriaBuilder.and(predicate, criteriaBuilder.equal(root.get("userId"), userId));
-            }
-
-            if (userName != null && !userName.isEmpty()) {
-                // 假設 userName 儲存在 User 表中，你需要 join 查詢
-                Join<ExerciseRecord, User> userJoin = root.join("user"); // 假設 ExerciseRecord 有 user 欄位
-                predicate = criteriaBuilder.and(predicate,
-                        criteriaBuilder.like(userJoin.get("name"), "%" + userName + "%"));
-            }
-
-            if (exerciseType != null && !exerciseType.isEmpty()) {
-                predicate = criteriaBuilder.and(predicate,
-                        criteriaBuilder.equal(root.get("exerciseType"), exerciseType));
-            }
-
-            if (startLocalDate != null && endLocalDate != null) {
-                predicate = criteriaBuilder.and(predicate,
-                        criteriaBuilder.between(root.get("exerciseDate"), startLocalDate, endLocalDate));
-            } else if (startLocalDate != null) {
-                predicate = criteriaBuilder.and(predicate,
-                        criteriaBuilder.greaterThanOrEqualTo(root.get("exerciseDate"), startLocalDate));
-            } else if (endLocalDate != null) {
-                predicate = criteriaBuilder.and(predicate,
-                        criteriaBuilder.lessThanOrEqualTo(root.get("exerciseDate"), endLocalDate));
-            }
-
-            return predicate;
-        };
-
-        Page<ExerciseRecord> exerciseRecordPage = exerciseRecordRepo.findAll(spec, pageable);
-        return exerciseRecordPage.map(this::toDTO);
+        ExerciseSearchCriteria criteria = new ExerciseSearchCriteria(userId, userName, exerciseType,
+                parseDate(startDate), parseDate(endDate));
+        return exerciseSearchEngine.search(criteria, pageable).map(this::toDTO);
     }
+
     @Override
     public OverviewDataDTO getOverviewDataForUser(Integer userId) {
         return getOverviewDataForUser(userId, "week");
@@ -233,71 +280,10 @@ public class ExerciseServiceImpl implements ExerciseService {
                   startDate = endDate.minusWeeks(1);
           }
 
-          // 調試日誌
-          System.out.println("Time Range: " + timeRange);
-          System.out.println("Start Date: " + startDate);
-          System.out.println("End Date: " + endDate);
-
-        // 使用日期範圍查詢
-        List<ExerciseRecord> userRecords = exerciseRecordRepo.findByUserIdAndExerciseDateBetween(
-            userId, 
-            startDate, 
-            endDate
-        );
-        System.out.println("Records Count: " + userRecords.size());
-        int totalWorkoutTime = userRecords.stream()
-                .mapToInt(ExerciseRecord::getExerciseDuration)
-                .sum();
-
-        double totalCaloriesBurned = userRecords.stream()
-                .mapToDouble(ExerciseRecord::getCaloriesBurned)
-                .sum();
-
-        int workoutCount = userRecords.size();
-
-        // 計算連續運動天數的改進邏輯
-        int consecutiveDays = calculateConsecutiveWorkoutDays(userRecords);
-
-        return new OverviewDataDTO(
-            totalWorkoutTime, 
-            totalCaloriesBurned, 
-            workoutCount, 
-            consecutiveDays
-        );
+        // 讀取區間內的每日彙總 (最多約 92 筆)，不再載入所有運動紀錄
+        return workoutRollupTracker.getOverview(userId, startDate, endDate);
     }
 
-    // 連續運動天數計算方法（之前提供的方法）
-    private int calculateConsecutiveWorkoutDays(List<ExerciseRecord> records) {
-        if (records == null || records.isEmpty()) {
-            return 0;
-        }
-
-        // 去重複並降序排序
-        List<LocalDate> sortedUniqueDates = records.stream()
-            .map(ExerciseRecord::getExerciseDate)
-            .distinct()
-            .sorted(Comparator.reverseOrder())
-            .collect(Collectors.toList());
-
-        int consecutiveDays = 0;
-        LocalDate currentDate = LocalDate.now();
-
-        for (LocalDate workoutDate : sortedUniqueDates) {
-            if (workoutDate.isEqual(currentDate)) {
-                consecutiveDays++;
-                currentDate = currentDate.minusDays(1);
-            } else if (workoutDate.isEqual(currentDate.minusDays(1))) {
-                consecutiveDays++;
-                currentDate = currentDate.minusDays(1);
-            } else {
-                break; // 如果日期不連續，則停止計算
-            }
-        }
-
-        return consecutiveDays;
-    }
-
-
     private LocalDate parseDate(String dateStr) {
         if (dateStr != null && !dateStr.isEmpty()) {
             try {
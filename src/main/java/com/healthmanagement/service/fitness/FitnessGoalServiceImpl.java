@@ -29,6 +29,8 @@ public class FitnessGoalServiceImpl implements FitnessGoalService {
     private final UserDAO userRepo;
     private final AchievementService achievementService;
     private final BodyMetricService bodyMetricService; // 注入 BodyMetricService
+    private final GoalProgressEngine goalProgressEngine;
+    private final RecommendationService recommendationService;
 
 
     @Override
@@ -41,6 +43,8 @@ public class FitnessGoalServiceImpl implements FitnessGoalService {
         setStartValues(fitnessGoal, fitnessGoalDTO.getUserId());
 
         FitnessGoal savedFitnessGoal = fitnessGoalRepo.save(fitnessGoal);
+        goalProgressEngine.onGoalSaved(savedFitnessGoal);
+        recommendationService.invalidate(fitnessGoalDTO.getUserId());
         // 檢查並頒發 "目標設定者" 獎章
         System.out.println("FitnessGoalServiceImpl - createFitnessGoal - 觸發獎章檢查 - 使用者 ID: " + fitnessGoalDTO.getUserId() + ", 事件: GOAL_CREATED, 數據: null");
         achievementService.checkAndAwardAchievements(fitnessGoalDTO.getUserId(), "GOAL_CREATED", null);
@@ -76,6 +80,8 @@ public class FitnessGoalServiceImpl implements FitnessGoalService {
         }
 
         FitnessGoal updatedFitnessGoal = fitnessGoalRepo.save(existingFitnessGoal);
+        goalProgressEngine.onGoalSaved(updatedFitnessGoal);
+        recommendationService.invalidate(updatedFitnessGoal.getUser().getUserId());
 
         // 檢查目標是否已完成，並頒發相關獎章
         if ("COMPLETED".equalsIgnoreCase(fitnessGoalDTO.getStatus())) {
@@ -88,7 +94,10 @@ public class FitnessGoalServiceImpl implements FitnessGoalService {
 
     @Override
     public void deleteFitnessGoal(Integer goalId) {
+        Optional<FitnessGoal> fitnessGoal = fitnessGoalRepo.findById(goalId);
         fitnessGoalRepo.deleteById(goalId);
+        goalProgressEngine.onGoalDeleted(goalId);
+        fitnessGoal.ifPresent(goal -> recommendationService.invalidate(goal.getUser().getUserId()));
     }
 
     @Override
@@ -183,6 +192,8 @@ public class FitnessGoalServiceImpl implements FitnessGoalService {
             achievementService.checkAndAwardAchievements(userId, "GOAL_COMPLETED", (int) completedGoalsCount);
         }
         FitnessGoal updatedFitnessGoal = fitnessGoalRepo.save(existingFitnessGoal);
+        goalProgressEngine.onGoalSaved(updatedFitnessGoal);
+        recommendationService.invalidate(updatedFitnessGoal.getUser().getUserId());
         return mapToDTO(updatedFitnessGoal);
     }
 
@@ -226,58 +237,15 @@ public class FitnessGoalServiceImpl implements FitnessGoalService {
     }
 
     private Double calculateCurrentProgress(FitnessGoal goal) {
-        Double progress = 0.0;
-        Integer userId = goal.getUser().getUserId();
-        Optional<BodyMetricDTO> latestMetric = bodyMetricService.findLatestByUserId(userId);
-
-        if (latestMetric.isPresent()) {
-            BodyMetricDTO currentBodyData = latestMetric.get();
-            if ("減重".equalsIgnoreCase(goal.getGoalType())) {
-                if (goal.getTargetValue() != null && currentBodyData.getWeight() != null && goal.getStartWeight() != null) {
-                    double startWeight = goal.getStartWeight();
-                    double targetValue = goal.getTargetValue();
-                    double currentWeight = currentBodyData.getWeight();
-                    double weightDiff = startWeight - currentWeight;
-                    double targetDiff = targetValue;
-                    if (targetDiff != 0) {
-                        progress = Math.min(100.0, Math.max(0.0, (weightDiff / targetDiff) * 100));
-                    } else {
-                        progress = weightDiff > 0 ? 100.0 : 0.0;
-                    }
-                }
-            } else if ("增肌".equalsIgnoreCase(goal.getGoalType())) {
-                if (goal.getTargetValue() != null && currentBodyData.getMuscleMass() != null && goal.getStartMuscleMass() != null) {
-                    double muscleGain = currentBodyData.getMuscleMass() - goal.getStartMuscleMass();
-                    double targetGain = goal.getTargetValue();
-                    if (targetGain != 0) {
-                        progress = Math.min(100.0, Math.max(0.0, (muscleGain / targetGain) * 100));
-                    } else {
-                        progress = muscleGain > 0 ? 100.0 : 0.0;
-                    }
-                }
-            } else if ("減脂".equalsIgnoreCase(goal.getGoalType())) {
-                if (goal.getTargetValue() != null && currentBodyData.getBodyFat() != null && goal.getStartBodyFat() != null) {
-                    double fatLoss = goal.getStartBodyFat() - currentBodyData.getBodyFat();
-                    double targetLoss = goal.getTargetValue();
-                    if (targetLoss != 0) {
-                        progress = Math.min(100.0, Math.max(0.0, (fatLoss / targetLoss) * 100));
-                    } else {
-                        progress = fatLoss > 0 ? 100.0 : 0.0;
-                    }
-                }
-            }
-        }
-        return progress;
+        Optional<BodyMetricDTO> latestMetric = bodyMetricService.findLatestByUserId(goal.getUser().getUserId());
+        return latestMetric.map(metric -> goalProgressEngine.calculateProgress(goal, metric.getWeight(),
+                metric.getBodyFat(), metric.getMuscleMass())).orElse(0.0);
     }
+
+    // 每小時對帳：只掃描進行中的目標，寫回進度有變動者 (平時由身體數據異動即時更新)
     @Scheduled(cron = "0 0 * * * ?") // 每小時執行一次
     public void updateGoalsProgress() {
-        // 更新目標的進度邏輯，可以是根據某些條件來更新目標
-        List<FitnessGoal> goals = fitnessGoalRepo.findAll();
-        for (FitnessGoal goal : goals) {
-            Double progress = calculateCurrentProgress(goal);
-            goal.setCurrentProgress(progress);
-            fitnessGoalRepo.save(goal);
-        }
+        goalProgressEngine.reconcile();
     }
 
 
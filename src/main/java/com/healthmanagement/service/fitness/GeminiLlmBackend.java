@@ -0,0 +1,68 @@
+package com.healthmanagement.service.fitness;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Gemini generateContent API。
+ * RestTemplate 與 ObjectMapper 共用同一個實例，連線與讀取都有逾時；
+ * base-url 可改指向本機 stub 伺服器進行測試。
+ */
+@Component
+public class GeminiLlmBackend implements LlmBackend {
+
+	private final RestTemplate restTemplate;
+	private final ObjectMapper objectMapper;
+	private final String url;
+
+	public GeminiLlmBackend(RestTemplateBuilder restTemplateBuilder, ObjectMapper objectMapper,
+			@Value("${gemini.api.key}") String apiKey,
+			@Value("${app.llm.gemini.base-url:https://generativelanguage.googleapis.com}") String baseUrl,
+			@Value("${app.llm.gemini.model:gemini-2.0-flash}") String model,
+			@Value("${app.llm.connect-timeout-ms:5000}") long connectTimeoutMs,
+			@Value("${app.llm.read-timeout-ms:20000}") long readTimeoutMs) {
+		this.restTemplate = restTemplateBuilder
+				.setConnectTimeout(Duration.ofMillis(connectTimeoutMs))
+				.setReadTimeout(Duration.ofMillis(readTimeoutMs))
+				.build();
+		this.objectMapper = objectMapper;
+		this.url = baseUrl + "/v1beta/models/" + model + ":generateContent?key=" + apiKey;
+	}
+
+	@Override
+	public String generate(String prompt) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		Map<String, Object> body = Map.of(
+				"contents", List.of(
+						Map.of(
+								"role", "user",
+								"parts", List.of(Map.of("text", prompt)))));
+
+		String response = restTemplate.postForObject(url, new HttpEntity<>(body, headers), String.class);
+		try {
+			JsonNode root = objectMapper.readTree(response);
+			// 解析 Gemini 回應的 text
+			JsonNode text = root.path("candidates").path(0).path("content").path("parts").path(0).path("text");
+			if (text.isMissingNode()) {
+				throw new IllegalStateException("Gemini 回應中沒有文字內容。");
+			}
+			return text.asText();
+		} catch (JsonProcessingException e) {
+			throw new IllegalStateException("無法解析 Gemini 回應：" + e.getOriginalMessage(), e);
+		}
+	}
+}
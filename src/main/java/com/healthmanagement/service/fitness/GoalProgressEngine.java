@@ -0,0 +1,288 @@
+package com.healthmanagement.service.fitness;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.dao.fitness.BodyMetricDAO;
+import com.healthmanagement.dao.fitness.FitnessGoalBatchDAO;
+import com.healthmanagement.dao.fitness.FitnessGoalDAO;
+import com.healthmanagement.model.fitness.BodyMetric;
+import com.healthmanagement.model.fitness.FitnessGoal;
+
+/**
+ * 健身目標進度引擎
+ * 在記憶體中以「使用者 → 目標類型 → 目標 ID」索引進行中的目標 (未完成且未過期)。
+ * 使用者的身體數據異動時，只重新計算該使用者依身體數據計算進度的目標，並只寫回進度有變動的目標；
+ * 進度達 100% 的目標同時標記為已完成並移出索引。目標進度與完成狀態只由此處寫入。
+ * 每小時的對帳只掃描進行中的目標，同時重建索引，進度有變動的目標以 JDBC batch 寫回。
+ */
+@Component
+public class GoalProgressEngine {
+
+	private static final Logger logger = LoggerFactory.getLogger(GoalProgressEngine.class);
+
+	// 視為已完成的狀態 (比對時轉為大寫)
+	private static final Set<String> COMPLETED_STATUSES = Set.of("COMPLETED", "已完成");
+
+	// 進度由最新身體數據計算的目標類型；其他類型的進度與身體數據無關
+	private static final Set<String> METRIC_GOAL_TYPES = Set.of("減重", "增肌", "減脂");
+
+	// 進度相同的判斷誤差
+	private static final double PROGRESS_EPSILON = 1e-9;
+
+	private final FitnessGoalDAO fitnessGoalRepo;
+	private final FitnessGoalBatchDAO fitnessGoalBatchRepo;
+	private final BodyMetricDAO bodyMetricRepo;
+	private final TransactionTemplate transactionTemplate;
+	private final int batchSize;
+
+	// 使用者 ID → 目標類型 → 進行中的目標 ID
+	private final Map<Integer, Map<String, Set<Integer>>> activeGoalsByUser = new ConcurrentHashMap<>();
+
+	// 目標 ID → 索引位置，移除目標時使用
+	private final Map<Integer, IndexedGoal> indexedGoals = new ConcurrentHashMap<>();
+
+	private record IndexedGoal(Integer userId, String goalType) {
+	}
+
+	public GoalProgressEngine(FitnessGoalDAO fitnessGoalRepo, FitnessGoalBatchDAO fitnessGoalBatchRepo,
+			BodyMetricDAO bodyMetricRepo, PlatformTransactionManager transactionManager,
+			@Value("${app.fitness.goal-progress-batch-size:200}") int batchSize) {
+		this.fitnessGoalRepo = fitnessGoalRepo;
+		this.fitnessGoalBatchRepo = fitnessGoalBatchRepo;
+		this.bodyMetricRepo = bodyMetricRepo;
+		// 可能在其他交易 commit 後執行，一律開新交易
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.batchSize = batchSize;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void loadOnStartup() {
+		reconcile();
+	}
+
+	/**
+	 * 依最新身體數據計算目標進度 (百分比，0 ~ 100)。沒有身體數據時傳入 null。
+	 */
+	public double calculateProgress(FitnessGoal goal, Double weight, Double bodyFat, Double muscleMass) {
+		if (goal.getTargetValue() == null) {
+			return 0.0;
+		}
+		double targetValue = goal.getTargetValue();
+		if ("減重".equalsIgnoreCase(goal.getGoalType())) {
+			if (weight != null && goal.getStartWeight() != null) {
+				return percentage(goal.getStartWeight() - weight, targetValue);
+			}
+		} else if ("增肌".equalsIgnoreCase(goal.getGoalType())) {
+			if (muscleMass != null && goal.getStartMuscleMass() != null) {
+				return percentage(muscleMass - goal.getStartMuscleMass(), targetValue);
+			}
+		} else if ("減脂".equalsIgnoreCase(goal.getGoalType())) {
+			if (bodyFat != null && goal.getStartBodyFat() != null) {
+				return percentage(goal.getStartBodyFat() - bodyFat, targetValue);
+			}
+		}
+		return 0.0;
+	}
+
+	/**
+	 * 使用者的身體數據異動後呼叫；在交易中時於 commit 後才重新計算。
+	 */
+	public void onBodyMetricsChanged(Integer userId) {
+		if (userId == null || !activeGoalsByUser.containsKey(userId)) {
+			return;
+		}
+		afterCommit(() -> {
+			try {
+				recomputeUser(userId);
+			} catch (Exception e) {
+				// 進度計算失敗不影響身體數據本身，交由每小時對帳補正
+				logger.error("重新計算使用者 ID {} 的目標進度失敗。", userId, e);
+			}
+		});
+	}
+
+	// 目標新增或修改後呼叫，依狀態與結束日期加入或移出索引
+	public void onGoalSaved(FitnessGoal goal) {
+		Integer goalId = goal.getGoalId();
+		Integer userId = goal.getUser() != null ? goal.getUser().getUserId() : null;
+		boolean active = isActive(goal, LocalDate.now());
+		String goalType = goal.getGoalType();
+		afterCommit(() -> {
+			if (active && userId != null) {
+				index(goalId, userId, goalType);
+			} else {
+				unindex(goalId);
+			}
+		});
+	}
+
+	public void onGoalDeleted(Integer goalId) {
+		afterCommit(() -> unindex(goalId));
+	}
+
+	/**
+	 * 對帳：掃描所有進行中的目標，寫回進度有變動者並重建索引。
+	 */
+	public void reconcile() {
+		long startNanos = System.nanoTime();
+		LocalDate today = LocalDate.now();
+		int[] counts = transactionTemplate.execute(status -> {
+			List<FitnessGoal> goals = fitnessGoalRepo.findActiveWithUser(COMPLETED_STATUSES, today);
+			Set<Integer> userIds = new HashSet<>();
+			for (FitnessGoal goal : goals) {
+				userIds.add(goal.getUser().getUserId());
+			}
+			Map<Integer, BodyMetric> latestByUser = new HashMap<>();
+			if (!userIds.isEmpty()) {
+				for (BodyMetric bodyMetric : bodyMetricRepo.findLatestByUserIdIn(userIds)) {
+					// 同日多筆時取 ID 最大者
+					latestByUser.merge(bodyMetric.getUserId(), bodyMetric,
+							(existing, incoming) -> incoming.getId() > existing.getId() ? incoming : existing);
+				}
+			}
+
+			Map<Integer, Double> changed = new HashMap<>();
+			Set<Integer> completed = new HashSet<>();
+			for (FitnessGoal goal : goals) {
+				BodyMetric latest = latestByUser.get(goal.getUser().getUserId());
+				collectIfChanged(goal, latest, changed, completed);
+			}
+			fitnessGoalBatchRepo.batchUpdateProgress(changed, batchSize);
+			fitnessGoalBatchRepo.batchMarkCompleted(completed, batchSize);
+			rebuildIndex(goals.stream().filter(goal -> !completed.contains(goal.getGoalId())).toList());
+			return new int[] {goals.size(), changed.size(), completed.size()};
+		});
+		logger.info("目標進度對帳完成：{} 個進行中的目標，{} 個進度有變動，{} 個已完成，耗時 {} ms。", counts[0], counts[1],
+				counts[2], (System.nanoTime() - startNanos) / 1_000_000);
+	}
+
+	private void recomputeUser(Integer userId) {
+		Map<String, Set<Integer>> byType = activeGoalsByUser.get(userId);
+		if (byType == null) {
+			return;
+		}
+		Set<Integer> goalIds = new HashSet<>();
+		byType.forEach((goalType, ids) -> {
+			if (METRIC_GOAL_TYPES.contains(goalType)) {
+				goalIds.addAll(ids);
+			}
+		});
+		if (goalIds.isEmpty()) {
+			return;
+		}
+		LocalDate today = LocalDate.now();
+		Set<Integer> completed = new HashSet<>();
+		transactionTemplate.executeWithoutResult(status -> {
+			BodyMetric latest = bodyMetricRepo.findTopByUserIdOrderByDateRecordedDescIdDesc(userId).orElse(null);
+			Map<Integer, Double> changed = new HashMap<>();
+			for (FitnessGoal goal : fitnessGoalRepo.findAllWithUserByGoalIdIn(goalIds)) {
+				if (!isActive(goal, today)) {
+					// 已在其他地方完成或已過期
+					unindex(goal.getGoalId());
+					continue;
+				}
+				collectIfChanged(goal, latest, changed, completed);
+			}
+			fitnessGoalBatchRepo.batchUpdateProgress(changed, batchSize);
+			fitnessGoalBatchRepo.batchMarkCompleted(completed, batchSize);
+		});
+		completed.forEach(this::unindex);
+	}
+
+	// 進度有變動的目標放入 changed，進度達 100% 的目標放入 completed
+	private void collectIfChanged(FitnessGoal goal, BodyMetric latest, Map<Integer, Double> changed,
+			Set<Integer> completed) {
+		double progress = latest == null ? 0.0
+				: calculateProgress(goal, latest.getWeight(), latest.getBodyFat(), latest.getMuscleMass());
+		if (Math.abs(progress - goal.getCurrentProgress()) > PROGRESS_EPSILON) {
+			changed.put(goal.getGoalId(), progress);
+		}
+		if (progress >= 100.0) {
+			completed.add(goal.getGoalId());
+		}
+	}
+
+	private synchronized void rebuildIndex(List<FitnessGoal> activeGoals) {
+		activeGoalsByUser.clear();
+		indexedGoals.clear();
+		for (FitnessGoal goal : activeGoals) {
+			index(goal.getGoalId(), goal.getUser().getUserId(), goal.getGoalType());
+		}
+	}
+
+	private synchronized void index(Integer goalId, Integer userId, String goalType) {
+		unindex(goalId);
+		String type = goalType == null ? "" : goalType;
+		activeGoalsByUser.computeIfAbsent(userId, key -> new ConcurrentHashMap<>())
+				.computeIfAbsent(type, key -> ConcurrentHashMap.newKeySet())
+				.add(goalId);
+		indexedGoals.put(goalId, new IndexedGoal(userId, type));
+	}
+
+	private synchronized void unindex(Integer goalId) {
+		IndexedGoal indexed = goalId == null ? null : indexedGoals.remove(goalId);
+		if (indexed == null) {
+			return;
+		}
+		Map<String, Set<Integer>> byType = activeGoalsByUser.get(indexed.userId());
+		if (byType == null) {
+			return;
+		}
+		Set<Integer> ids = byType.get(indexed.goalType());
+		if (ids != null) {
+			ids.remove(goalId);
+			if (ids.isEmpty()) {
+				byType.remove(indexed.goalType());
+			}
+		}
+		if (byType.isEmpty()) {
+			activeGoalsByUser.remove(indexed.userId());
+		}
+	}
+
+	private static boolean isActive(FitnessGoal goal, LocalDate today) {
+		boolean completed = goal.getStatus() != null && COMPLETED_STATUSES.contains(goal.getStatus().toUpperCase());
+		boolean expired = goal.getEndDate() != null && goal.getEndDate().isBefore(today);
+		return !completed && !expired;
+	}
+
+	private static double percentage(double achieved, double target) {
+		if (target != 0) {
+			return Math.min(100.0, Math.max(0.0, (achieved / target) * 100));
+		}
+		return achieved > 0 ? 100.0 : 0.0;
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
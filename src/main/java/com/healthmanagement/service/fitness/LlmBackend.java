@@ -0,0 +1,11 @@
+package com.healthmanagement.service.fitness;
+
+/**
+ * AI 對話的上游服務。預設為 GeminiLlmBackend；測試時可提供標記 @Primary 的其他實作 (例如本機 stub 伺服器)。
+ * 實作須自行設定連線與讀取逾時，呼叫會在 LlmGateway 的背景執行緒上進行。
+ */
+public interface LlmBackend {
+
+	// 回傳模型產生的文字；上游錯誤時丟出 RuntimeException
+	String generate(String prompt);
+}
@@ -0,0 +1,202 @@
+package com.healthmanagement.service.fitness;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.healthmanagement.exception.LlmGatewayException;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * AI 對話閘道
+ * 上游呼叫在有界的執行緒池上進行，servlet 執行緒只等待 CompletableFuture，不會被慢速上游占住。
+ * 全域同時呼叫數受執行緒池大小與佇列容量限制，每位使用者另有同時請求上限；
+ * 整體等待時間有逾時。相同提示詞 (SHA-256) 的回應快取一段時間，進行中的相同提示詞共用同一次呼叫。
+ */
+@Component
+public class LlmGateway {
+
+	private static final Logger logger = LoggerFactory.getLogger(LlmGateway.class);
+
+	private final LlmBackend backend;
+	private final ThreadPoolExecutor executor;
+	private final int perUserConcurrency;
+	private final long timeoutMs;
+	private final long cacheTtlMs;
+
+	// 提示詞雜湊 → 回應 (LRU)
+	private final Map<String, CachedResponse> cache;
+
+	// 提示詞雜湊 → 進行中的呼叫
+	private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+	// 使用者 ID → 進行中的請求數
+	private final Map<Integer, AtomicInteger> inFlightByUser = new ConcurrentHashMap<>();
+
+	private record CachedResponse(String text, long expiresAtMillis) {
+	}
+
+	public LlmGateway(LlmBackend backend,
+			@Value("${app.llm.max-concurrency:8}") int maxConcurrency,
+			@Value("${app.llm.queue-capacity:32}") int queueCapacity,
+			@Value("${app.llm.per-user-concurrency:2}") int perUserConcurrency,
+			@Value("${app.llm.timeout-ms:25000}") long timeoutMs,
+			@Value("${app.llm.cache-ttl-ms:600000}") long cacheTtlMs,
+			@Value("${app.llm.cache-size:1000}") int cacheSize) {
+		this.backend = backend;
+		this.perUserConcurrency = perUserConcurrency;
+		this.timeoutMs = timeoutMs;
+		this.cacheTtlMs = cacheTtlMs;
+		AtomicInteger threadCount = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 60L, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+					Thread thread = new Thread(runnable, "llm-gateway-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.AbortPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+				return size() > cacheSize;
+			}
+		};
+	}
+
+	/**
+	 * 送出提示詞，回傳模型產生的文字。失敗時 future 以 LlmGatewayException 結束。
+	 */
+	public CompletableFuture<String> chat(Integer userId, String prompt) {
+		String key = hash(prompt);
+		String cached = cachedResponse(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture(cached);
+		}
+		// 以 putIfAbsent 登記進行中的呼叫，同時到達的相同提示詞只有一個請求會呼叫上游
+		CompletableFuture<String> call = new CompletableFuture<>();
+		CompletableFuture<String> pending = inFlight.putIfAbsent(key, call);
+		if (pending != null) {
+			return withTimeout(pending);
+		}
+		// 登記前可能剛好有相同提示詞的呼叫完成並寫入快取
+		cached = cachedResponse(key);
+		if (cached != null) {
+			inFlight.remove(key, call);
+			call.complete(cached);
+			return call;
+		}
+
+		AtomicInteger userCount = inFlightByUser.computeIfAbsent(userId, id -> new AtomicInteger());
+		if (userCount.incrementAndGet() > perUserConcurrency) {
+			releaseUserSlot(userId, userCount);
+			return fail(key, call, new LlmGatewayException(HttpStatus.TOO_MANY_REQUESTS,
+					"同時進行中的對話過多，請稍後再試。"));
+		}
+
+		try {
+			executor.execute(() -> {
+				try {
+					String text = backend.generate(prompt);
+					synchronized (cache) {
+						cache.put(key, new CachedResponse(text, System.currentTimeMillis() + cacheTtlMs));
+					}
+					call.complete(text);
+				} catch (Throwable error) {
+					call.completeExceptionally(error);
+				} finally {
+					// 使用者的名額在上游呼叫真正結束時才釋放 (逾時只是不再等待)
+					inFlight.remove(key, call);
+					releaseUserSlot(userId, userCount);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			releaseUserSlot(userId, userCount);
+			logger.warn("AI 對話佇列已滿 ({} 個執行中，{} 個等待中)。", executor.getActiveCount(),
+					executor.getQueue().size());
+			return fail(key, call, new LlmGatewayException(HttpStatus.SERVICE_UNAVAILABLE,
+					"AI 服務忙碌中，請稍後再試。"));
+		}
+		return withTimeout(call);
+	}
+
+	// 未送出的呼叫：移除登記並讓已在等待同一提示詞的請求一併失敗
+	private CompletableFuture<String> fail(String key, CompletableFuture<String> call, LlmGatewayException error) {
+		inFlight.remove(key, call);
+		call.completeExceptionally(error);
+		return CompletableFuture.failedFuture(error);
+	}
+
+	private CompletableFuture<String> withTimeout(CompletableFuture<String> call) {
+		// 包一層新的 future，逾時不會影響其他等待同一呼叫的請求
+		return call.thenApply(text -> text)
+				.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+				.exceptionally(error -> {
+					throw translate(error);
+				});
+	}
+
+	private String cachedResponse(String key) {
+		synchronized (cache) {
+			CachedResponse cached = cache.get(key);
+			if (cached == null) {
+				return null;
+			}
+			if (cached.expiresAtMillis() < System.currentTimeMillis()) {
+				cache.remove(key);
+				return null;
+			}
+			return cached.text();
+		}
+	}
+
+	private void releaseUserSlot(Integer userId, AtomicInteger userCount) {
+		if (userCount.decrementAndGet() <= 0) {
+			inFlightByUser.remove(userId, userCount);
+		}
+	}
+
+	private static LlmGatewayException translate(Throwable error) {
+		Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+		if (cause instanceof LlmGatewayException gatewayException) {
+			return gatewayException;
+		}
+		if (cause instanceof TimeoutException) {
+			return new LlmGatewayException(HttpStatus.GATEWAY_TIMEOUT, "AI 服務回應逾時。", cause);
+		}
+		logger.warn("AI 服務呼叫失敗：{}", cause.getMessage());
+		return new LlmGatewayException(HttpStatus.BAD_GATEWAY, "Gemini 回應失敗：" + cause.getMessage(), cause);
+	}
+
+	private static String hash(String prompt) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(prompt.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
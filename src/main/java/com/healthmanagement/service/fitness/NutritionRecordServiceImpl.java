@@ -15,6 +15,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.healthmanagement.dto.fitness.NutritionSummaryDTO;
@@ -142,24 +143,27 @@ public class NutritionRecordServiceImpl implements NutritionRecordService {
 	}
 	@Override
 	public NutritionSummaryDTO getNutritionSummary(Integer userId, LocalDateTime startDate, LocalDateTime endDate) {
-	    List<NutritionRecord> records;
-	    if (startDate != null && endDate != null) {
-	        records = nutritionRecordRepo.findByUserIdAndRecordDateBetween(userId, startDate, endDate);
-	    } else {
-	        records = nutritionRecordRepo.findByUserId(userId);
+	    // 由資料庫依 (日期, 餐別) 分組彙總，只回傳彙總列；未指定的日期端點視為不限
+	    List<Object[]> rows = nutritionRecordRepo.sumByDayAndMealtime(userId, startDate, endDate);
+
+	    // 單次走訪彙總列，同時累計每日卡路里、總營養素與各餐別卡路里
+	    Map<LocalDate, Double> dailyCaloriesMap = new LinkedHashMap<>();
+	    Map<String, Double> caloriesByMealtimeMap = new LinkedHashMap<>();
+	    double totalProtein = 0;
+	    double totalCarbs = 0;
+	    double totalFats = 0;
+	    for (Object[] row : rows) {
+	        LocalDate day = (LocalDate) row[0];
+	        String mealtime = (String) row[1];
+	        double calories = toDouble(row[2]);
+	        dailyCaloriesMap.merge(day, calories, Double::sum);
+	        caloriesByMealtimeMap.merge(mealtime, calories, Double::sum);
+	        totalProtein += toDouble(row[3]);
+	        totalCarbs += toDouble(row[4]);
+	        totalFats += toDouble(row[5]);
 	    }
 
-	    // 將 NutritionRecord 列表轉換為 NutritionRecordDTO 列表
-	    List<NutritionRecordDTO> recordDTOs = records.stream()
-	            .map(this::convertToDTO)
-	            .collect(Collectors.toList());
-
 	    NutritionSummaryDTO summary = new NutritionSummaryDTO();
-
-	    // 計算每日卡路里總攝取量 (使用 DTO)
-	    Map<LocalDate, Double> dailyCaloriesMap = recordDTOs.stream()
-	            .collect(Collectors.groupingBy(record -> record.getRecordDate().toLocalDate(),
-	                    Collectors.summingDouble(NutritionRecordDTO::getCalories)));
 	    summary.setDailyCalories(dailyCaloriesMap.entrySet().stream()
 	            .map(entry -> {
 	                NutritionSummaryDTO.DailyCalories dailyCalories = new NutritionSummaryDTO.DailyCalories();
@@ -169,25 +173,19 @@ public class NutritionRecordServiceImpl implements NutritionRecordService {
 	            })
 	            .collect(Collectors.toList()));
 
-	    // 計算總營養素攝取量 (使用 DTO)
-	    double totalProtein = recordDTOs.stream().mapToDouble(NutritionRecordDTO::getProtein).sum();
-	    double totalCarbs = recordDTOs.stream().mapToDouble(NutritionRecordDTO::getCarbs).sum();
-	    double totalFats = recordDTOs.stream().mapToDouble(NutritionRecordDTO::getFats).sum();
 	    NutritionSummaryDTO.TotalMacros totalMacros = new NutritionSummaryDTO.TotalMacros();
 	    totalMacros.setProtein(totalProtein);
 	    totalMacros.setCarbs(totalCarbs);
 	    totalMacros.setFats(totalFats);
 	    summary.setTotalMacros(totalMacros);
 
-	    // 計算按餐別的卡路里總攝取量 (使用 DTO)
-	    Map<String, Double> caloriesByMealtimeMap = recordDTOs.stream()
-	            .collect(Collectors.groupingBy(NutritionRecordDTO::getMealtime,
-	                    Collectors.summingDouble(NutritionRecordDTO::getCalories)));
 	    summary.setCaloriesByMealtime(caloriesByMealtimeMap);
-
 	    return summary;
 	}
-	
+
+	private static double toDouble(Object value) {
+	    return value == null ? 0.0 : ((Number) value).doubleValue();
+	}
 
 	private NutritionRecordDTO convertToDTO(NutritionRecord record) {
 		Integer userId = null;
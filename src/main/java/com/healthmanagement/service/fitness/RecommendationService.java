@@ -1,105 +1,200 @@
 package com.healthmanagement.service.fitness;
 
-import com.healthmanagement.dto.fitness.BodyMetricDTO;
-import com.healthmanagement.dto.fitness.FitnessGoalDTO;
+import com.healthmanagement.dao.fitness.BodyMetricDAO;
+import com.healthmanagement.dao.fitness.FitnessGoalDAO;
+import com.healthmanagement.dao.fitness.WorkoutDailyRollupDAO;
 import com.healthmanagement.dto.fitness.RecommendationDTO;
-import lombok.RequiredArgsConstructor;
+import com.healthmanagement.model.fitness.BodyMetric;
+import com.healthmanagement.model.fitness.FitnessGoal;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * 個人化健身建議
+ * 建議內容與 BMI 區間規則在類別載入時建立一次；每位使用者只查詢所需的少量特徵
+ * (最新一筆身體數據、本週運動次數、是否有目標、已過期的目標)。
+ * 結果依使用者快取至當天結束，或直到身體數據、運動紀錄、健身目標異動 (commit 後丟棄)。
+ */
 @Service
-@RequiredArgsConstructor
 public class RecommendationService {
 
-    private final BodyMetricService bodyMetricService;
-    private final ExerciseService exerciseService;
-    private final FitnessGoalService fitnessGoalService;
+    private static final RecommendationDTO WEEKLY_WORKOUT_REMINDER =
+            new RecommendationDTO("訓練建議", "為了達到更好的健身效果，建議你本週至少進行三次訓練。");
 
-    public List<RecommendationDTO> getRecommendationsForUser(Integer userId) {
-        List<RecommendationDTO> recommendations = new ArrayList<>();
-        Optional<BodyMetricDTO> latestBodyMetric = bodyMetricService.findLatestByUserId(userId);
-        List<FitnessGoalDTO> goals = fitnessGoalService.getAllFitnessGoalsByUserIdWithoutPagination(userId);
-
-        latestBodyMetric.ifPresent(metric -> {
-            double bmi = metric.getBmi();
-
-            // 判斷增肌或減脂的建議方向 (基於 BMI)
-            if (bmi < 18.5) {
-                recommendations.add(new RecommendationDTO("體型建議", "你的BMI偏低，建議考慮以增肌為主，並注意均衡飲食。"));
-                recommendations.addAll(getMuscleGainTrainingRecommendations());
-                recommendations.addAll(getMuscleGainDietRecommendations());
-            } else if (bmi >= 25) {
-                recommendations.add(new RecommendationDTO("體型建議", "你的BMI偏高，建議考慮以減脂為主，並結合適當的運動。"));
-                recommendations.addAll(getFatLossTrainingRecommendations());
-                recommendations.addAll(getFatLossDietRecommendations());
-            } else {
-                recommendations.add(new RecommendationDTO("體型建議", "你的BMI在健康範圍內，可以根據你的個人目標選擇增肌、維持或適度減脂。"));
-                if (goals.isEmpty()) {
-                    recommendations.add(new RecommendationDTO("目標設定建議", "你還沒有設定任何健身目標，建議設定明確的目標，例如增肌、減脂或提高運動表現。"));
-                }
+    private static final RecommendationDTO NO_GOAL_REMINDER =
+            new RecommendationDTO("目標設定建議", "你還沒有設定任何健身目標，建議設定明確的目標，例如增肌、減脂或提高運動表現。");
+
+    // 本週運動次數低於此值時提醒
+    private static final long MIN_WORKOUTS_PER_WEEK = 3;
+
+    // 增肌訓練建議
+    private static final List<RecommendationDTO> MUSCLE_GAIN_TRAINING = List.of(
+            new RecommendationDTO("訓練建議", "進行複合動作（如深蹲、臥推、硬舉、划船）以刺激多個肌群。"),
+            new RecommendationDTO("訓練建議", "每組重複次數約 6-12 次，並選擇能讓你感到挑戰的重量。"),
+            new RecommendationDTO("訓練建議", "注意訓練量和組間休息，確保肌肉有足夠的刺激和恢復時間。"),
+            new RecommendationDTO("訓練建議", "逐步增加訓練強度（例如增加重量、次數或組數）。"));
+
+    // 減脂訓練建議
+    private static final List<RecommendationDTO> FAT_LOSS_TRAINING = List.of(
+            new RecommendationDTO("訓練建議", "結合有氧運動（如跑步、游泳、單車）和力量訓練。"),
+            new RecommendationDTO("訓練建議", "有氧運動可以幫助燃燒卡路里，力量訓練可以幫助維持肌肉量。"),
+            new RecommendationDTO("訓練建議", "可以嘗試高強度間歇訓練（HIIT）以提高燃脂效率。"),
+            new RecommendationDTO("訓練建議", "力量訓練可以採用較高的重複次數（12-15 次）和較短的組間休息。"));
+
+    // 增肌飲食建議
+    private static final List<RecommendationDTO> MUSCLE_GAIN_DIET = List.of(
+            new RecommendationDTO("飲食建議", "確保攝入足夠的蛋白質，約每公斤體重 1.6-2.2 克，以支持肌肉生長。"),
+            new RecommendationDTO("飲食建議", "攝入足夠的總卡路里，略高於你的消耗，以提供能量進行肌肉合成。"),
+            new RecommendationDTO("飲食建議", "選擇複合碳水化合物（如全穀物、蔬菜）作為能量來源。"),
+            new RecommendationDTO("飲食建議", "不要忽略健康脂肪的攝入，它們對激素水平和整體健康很重要。"),
+            new RecommendationDTO("飲食建議", "注意餐飲時間，特別是在訓練前後攝入蛋白質和碳水化合物。"));
+
+    // 減脂飲食建議
+    private static final List<RecommendationDTO> FAT_LOSS_DIET = List.of(
+            new RecommendationDTO("飲食建議", "創造熱量缺口，攝入的卡路里要少於消耗的卡路里，以促使脂肪燃燒。"),
+            new RecommendationDTO("飲食建議", "保持足夠的蛋白質攝入，以幫助維持肌肉量。"),
+            new RecommendationDTO("飲食建議", "限制加工食品、高糖食物和不健康的脂肪。"),
+            new RecommendationDTO("飲食建議", "增加蔬菜和水果的攝入，它們富含纖維和營養。"),
+            new RecommendationDTO("飲食建議", "注意水分攝入，多喝水。"));
+
+    // BMI 區間規則：依序比對，第一個 bmi < upperBound 的區間生效
+    private record BmiRule(double upperBound, List<RecommendationDTO> recommendations, boolean suggestGoalIfNone) {
+    }
+
+    private static final List<BmiRule> BMI_RULES = List.of(
+            new BmiRule(18.5, concat(
+                    new RecommendationDTO("體型建議", "你的BMI偏低，建議考慮以增肌為主，並注意均衡飲食。"),
+                    MUSCLE_GAIN_TRAINING, MUSCLE_GAIN_DIET), false),
+            new BmiRule(25, List.of(
+                    new RecommendationDTO("體型建議", "你的BMI在健康範圍內，可以根據你的個人目標選擇增肌、維持或適度減脂。")), true),
+            new BmiRule(Double.POSITIVE_INFINITY, concat(
+                    new RecommendationDTO("體型建議", "你的BMI偏高，建議考慮以減脂為主，並結合適當的運動。"),
+                    FAT_LOSS_TRAINING, FAT_LOSS_DIET), false));
+
+    private record CachedRecommendations(LocalDate computedOn, List<RecommendationDTO> recommendations) {
+    }
+
+    private final BodyMetricDAO bodyMetricRepo;
+    private final FitnessGoalDAO fitnessGoalRepo;
+    private final WorkoutDailyRollupDAO workoutDailyRollupRepo;
+    private final GoalProgressEngine goalProgressEngine;
+    private final Map<Integer, CachedRecommendations> cache;
+
+    // 每次丟棄快取時遞增；計算期間若有異動則不放入快取，避免存入舊結果
+    private final AtomicLong generation = new AtomicLong();
+
+    public RecommendationService(BodyMetricDAO bodyMetricRepo, FitnessGoalDAO fitnessGoalRepo,
+                                 WorkoutDailyRollupDAO workoutDailyRollupRepo, GoalProgressEngine goalProgressEngine,
+                                 @Value("${app.fitness.recommendation-cache-size:5000}") int cacheSize) {
+        this.bodyMetricRepo = bodyMetricRepo;
+        this.fitnessGoalRepo = fitnessGoalRepo;
+        this.workoutDailyRollupRepo = workoutDailyRollupRepo;
+        this.goalProgressEngine = goalProgressEngine;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, CachedRecommendations> eldest) {
+                return size() > cacheSize;
             }
+        };
+    }
 
-            LocalDate now = LocalDate.now();
-            long workoutsThisWeek = exerciseService.getExerciseRecordsByUserId(userId).stream()
-                    .filter(record -> record.getExerciseDate().isAfter(now.minusDays(now.getDayOfWeek().getValue() - 1))) // 使用 getExerciseDate()
-                    .count();
-            if (workoutsThisWeek < 3) {
-                recommendations.add(new RecommendationDTO("訓練建議", "為了達到更好的健身效果，建議你本週至少進行三次訓練。"));
+    public List<RecommendationDTO> getRecommendationsForUser(Integer userId) {
+        LocalDate today = LocalDate.now();
+        synchronized (cache) {
+            CachedRecommendations cached = cache.get(userId);
+            // 本週起始日與目標是否過期都依日期而定，跨日即重新計算
+            if (cached != null && cached.computedOn().equals(today)) {
+                return new ArrayList<>(cached.recommendations());
+            }
+        }
+        long loadGeneration = generation.get();
+        List<RecommendationDTO> recommendations = List.copyOf(evaluate(userId, today));
+        if (generation.get() == loadGeneration) {
+            synchronized (cache) {
+                cache.put(userId, new CachedRecommendations(today, recommendations));
             }
+        }
+        return new ArrayList<>(recommendations);
+    }
 
-            goals.forEach(goal -> {
-                String goalDisplayName = goal.getGoalType(); // 或者 goal.getName() 如果你添加了 name 屬性
-                if (goal.getEndDate() != null && goal.getEndDate().isBefore(now) && goal.getCurrentProgress() < goal.getTargetValue()) { // 使用 getTargetValue() 和 getCurrentProgress()
-                    recommendations.add(new RecommendationDTO("目標設定建議", "你的目標 '" + goalDisplayName + "' 已過期，且尚未達成。建議重新評估或設定新的目標。"));
+    // 使用者的身體數據、運動紀錄或健身目標異動後呼叫；在交易中時 commit 後再丟棄一次
+    public void invalidate(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(userId);
                 }
             });
-        });
-
-        return recommendations;
+        }
     }
 
-    // 增肌訓練建議
-    private List<RecommendationDTO> getMuscleGainTrainingRecommendations() {
-        List<RecommendationDTO> recommendations = new ArrayList<>();
-        recommendations.add(new RecommendationDTO("訓練建議", "進行複合動作（如深蹲、臥推、硬舉、划船）以刺激多個肌群。"));
-        recommendations.add(new RecommendationDTO("訓練建議", "每組重複次數約 6-12 次，並選擇能讓你感到挑戰的重量。"));
-        recommendations.add(new RecommendationDTO("訓練建議", "注意訓練量和組間休息，確保肌肉有足夠的刺激和恢復時間。"));
-        recommendations.add(new RecommendationDTO("訓練建議", "逐步增加訓練強度（例如增加重量、次數或組數）。"));
-        return recommendations;
+    private void evict(Integer userId) {
+        generation.incrementAndGet();
+        synchronized (cache) {
+            cache.remove(userId);
+        }
     }
 
-    // 減脂訓練建議
-    private List<RecommendationDTO> getFatLossTrainingRecommendations() {
+    private List<RecommendationDTO> evaluate(Integer userId, LocalDate today) {
+        BodyMetric latest = bodyMetricRepo.findTopByUserIdOrderByDateRecordedDescIdDesc(userId).orElse(null);
+        if (latest == null || latest.getBmi() == null) {
+            return List.of();
+        }
+
         List<RecommendationDTO> recommendations = new ArrayList<>();
-        recommendations.add(new RecommendationDTO("訓練建議", "結合有氧運動（如跑步、游泳、單車）和力量訓練。"));
-        recommendations.add(new RecommendationDTO("訓練建議", "有氧運動可以幫助燃燒卡路里，力量訓練可以幫助維持肌肉量。"));
-        recommendations.add(new RecommendationDTO("訓練建議", "可以嘗試高強度間歇訓練（HIIT）以提高燃脂效率。"));
-        recommendations.add(new RecommendationDTO("訓練建議", "力量訓練可以採用較高的重複次數（12-15 次）和較短的組間休息。"));
+        BmiRule rule = ruleFor(latest.getBmi());
+        recommendations.addAll(rule.recommendations());
+        if (rule.suggestGoalIfNone() && !fitnessGoalRepo.existsByUserId(userId)) {
+            recommendations.add(NO_GOAL_REMINDER);
+        }
+
+        LocalDate weekStart = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        if (workoutDailyRollupRepo.sumWorkoutCountFrom(userId, weekStart) < MIN_WORKOUTS_PER_WEEK) {
+            recommendations.add(WEEKLY_WORKOUT_REMINDER);
+        }
+
+        for (FitnessGoal goal : fitnessGoalRepo.findOverdueByUserId(userId, today)) {
+            double progress = goalProgressEngine.calculateProgress(goal, latest.getWeight(), latest.getBodyFat(),
+                    latest.getMuscleMass());
+            if (goal.getTargetValue() != null && progress < goal.getTargetValue()) {
+                recommendations.add(new RecommendationDTO("目標設定建議",
+                        "你的目標 '" + goal.getGoalType() + "' 已過期，且尚未達成。建議重新評估或設定新的目標。"));
+            }
+        }
         return recommendations;
     }
 
-    // 增肌飲食建議
-    private List<RecommendationDTO> getMuscleGainDietRecommendations() {
-        List<RecommendationDTO> recommendations = new ArrayList<>();
-        recommendations.add(new RecommendationDTO("飲食建議", "確保攝入足夠的蛋白質，約每公斤體重 1.6-2.2 克，以支持肌肉生長。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "攝入足夠的總卡路里，略高於你的消耗，以提供能量進行肌肉合成。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "選擇複合碳水化合物（如全穀物、蔬菜）作為能量來源。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "不要忽略健康脂肪的攝入，它們對激素水平和整體健康很重要。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "注意餐飲時間，特別是在訓練前後攝入蛋白質和碳水化合物。"));
-        return recommendations;
+    private static BmiRule ruleFor(double bmi) {
+        for (BmiRule rule : BMI_RULES) {
+            if (bmi < rule.upperBound()) {
+                return rule;
+            }
+        }
+        return BMI_RULES.get(BMI_RULES.size() - 1);
     }
 
-    // 減脂飲食建議
-    private List<RecommendationDTO> getFatLossDietRecommendations() {
-        List<RecommendationDTO> recommendations = new ArrayList<>();
-        recommendations.add(new RecommendationDTO("飲食建議", "創造熱量缺口，攝入的卡路里要少於消耗的卡路里，以促使脂肪燃燒。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "保持足夠的蛋白質攝入，以幫助維持肌肉量。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "限制加工食品、高糖食物和不健康的脂肪。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "增加蔬菜和水果的攝入，它們富含纖維和營養。"));
-        recommendations.add(new RecommendationDTO("飲食建議", "注意水分攝入，多喝水。"));
-        return recommendations;
-    }}
\ No newline at end of file
+    private static List<RecommendationDTO> concat(RecommendationDTO first, List<RecommendationDTO> training,
+                                                  List<RecommendationDTO> diet) {
+        List<RecommendationDTO> all = new ArrayList<>(1 + training.size() + diet.size());
+        all.add(first);
+        all.addAll(training);
+        all.addAll(diet);
+        return List.copyOf(all);
+    }
+}
@@ -0,0 +1,171 @@
+package com.healthmanagement.service.fitness;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.healthmanagement.dao.fitness.ExerciseRecordDAO;
+import com.healthmanagement.dao.fitness.WorkoutDailyRollupDAO;
+import com.healthmanagement.dao.fitness.WorkoutDailyRollupInsertDAO;
+import com.healthmanagement.dto.fitness.OverviewDataDTO;
+import com.healthmanagement.model.fitness.ExerciseRecord;
+import com.healthmanagement.model.fitness.WorkoutDailyRollup;
+
+/**
+ * 運動每日彙總
+ * 每位使用者每天一筆 (分鐘、卡路里、次數、連續區間起始日)，於運動紀錄新增、修改、刪除時在同一交易中增量更新。
+ * 週、月、季總覽只讀取區間內最多約 92 筆每日彙總，連續運動天數由當日的連續區間起始日直接算出，
+ * 不隨使用者的歷史紀錄數量成長。
+ * 新增或移除某一天時，只需一句 bulk update 即可接上或切開前後的連續區間。
+ * 同樣的增減量也同步給儀表板統計快照 (DashboardSnapshotEngine)，並丟棄該使用者的健身建議快取。
+ */
+@Component
+public class WorkoutRollupTracker {
+
+	private static final Logger logger = LoggerFactory.getLogger(WorkoutRollupTracker.class);
+
+	private final WorkoutDailyRollupDAO rollupRepo;
+	private final WorkoutDailyRollupInsertDAO rollupInsertRepo;
+	private final ExerciseRecordDAO exerciseRecordRepo;
+	private final DashboardSnapshotEngine dashboardSnapshotEngine;
+	private final RecommendationService recommendationService;
+	private final TransactionTemplate transactionTemplate;
+
+	public WorkoutRollupTracker(WorkoutDailyRollupDAO rollupRepo, WorkoutDailyRollupInsertDAO rollupInsertRepo,
+			ExerciseRecordDAO exerciseRecordRepo, DashboardSnapshotEngine dashboardSnapshotEngine,
+			RecommendationService recommendationService, PlatformTransactionManager transactionManager) {
+		this.rollupRepo = rollupRepo;
+		this.rollupInsertRepo = rollupInsertRepo;
+		this.exerciseRecordRepo = exerciseRecordRepo;
+		this.dashboardSnapshotEngine = dashboardSnapshotEngine;
+		this.recommendationService = recommendationService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+	}
+
+	// 既有的運動紀錄尚無每日彙總時，啟動後一次補齊 (已有彙總的使用者不會重複計算)
+	@EventListener(ApplicationReadyEvent.class)
+	public void backfillOnStartup() {
+		Integer created = transactionTemplate.execute(status -> {
+			List<WorkoutDailyRollup> rollups = new ArrayList<>();
+			Integer currentUserId = null;
+			LocalDate previousDate = null;
+			LocalDate streakStart = null;
+			for (Object[] row : exerciseRecordRepo.aggregateDailyTotalsForUsersWithoutRollups()) {
+				Integer userId = (Integer) row[0];
+				LocalDate date = (LocalDate) row[1];
+				if (!userId.equals(currentUserId) || !date.equals(previousDate.plusDays(1))) {
+					streakStart = date;
+				}
+				rollups.add(WorkoutDailyRollup.builder()
+						.userId(userId)
+						.rollupDate(date)
+						.totalMinutes(((Number) row[2]).intValue())
+						.totalCalories(((Number) row[3]).doubleValue())
+						.workoutCount(((Number) row[4]).intValue())
+						.streakStartDate(streakStart)
+						.build());
+				currentUserId = userId;
+				previousDate = date;
+			}
+			rollupRepo.saveAll(rollups);
+			return rollups.size();
+		});
+		if (created != null && created > 0) {
+			logger.info("已為既有運動紀錄補建 {} 筆每日彙總。", created);
+		}
+	}
+
+	// 以下方法須在寫入運動紀錄的同一交易中呼叫
+
+	public void recordAdded(ExerciseRecord record) {
+		applyDelta(record.getUserId(), record.getExerciseDate(), record.getExerciseDuration(),
+				record.getCaloriesBurned(), 1);
+	}
+
+	public void recordRemoved(ExerciseRecord record) {
+		applyDelta(record.getUserId(), record.getExerciseDate(), -record.getExerciseDuration(),
+				-record.getCaloriesBurned(), -1);
+	}
+
+	// 批次匯入：同一使用者同一天的多筆紀錄合併為一次更新
+	public void dailyTotalsAdded(Integer userId, LocalDate date, int minutes, double calories, int count) {
+		applyDelta(userId, date, minutes, calories, count);
+	}
+
+	public void recordChanged(Integer userId, LocalDate oldDate, int oldMinutes, double oldCalories,
+			ExerciseRecord updated) {
+		if (oldDate.equals(updated.getExerciseDate())) {
+			applyDelta(userId, oldDate, updated.getExerciseDuration() - oldMinutes,
+					updated.getCaloriesBurned() - oldCalories, 0);
+		} else {
+			applyDelta(userId, oldDate, -oldMinutes, -oldCalories, -1);
+			recordAdded(updated);
+		}
+	}
+
+	/**
+	 * 依每日彙總計算 [startDate, endDate] 區間的總覽。
+	 * 連續運動天數：從 endDate (或前一天) 往回每天都有運動的天數，且不早於 startDate。
+	 * 中間缺一天即中斷 (原本逐筆比對的寫法在當天有運動時可容許再往前缺一天，已不再容許)。
+	 */
+	public OverviewDataDTO getOverview(Integer userId, LocalDate startDate, LocalDate endDate) {
+		List<WorkoutDailyRollup> rollups = rollupRepo.findByUserIdAndRollupDateBetween(userId, startDate, endDate);
+		int totalMinutes = 0;
+		double totalCalories = 0;
+		int workoutCount = 0;
+		WorkoutDailyRollup lastDay = null;
+		WorkoutDailyRollup dayBefore = null;
+		for (WorkoutDailyRollup rollup : rollups) {
+			totalMinutes += rollup.getTotalMinutes();
+			totalCalories += rollup.getTotalCalories();
+			workoutCount += rollup.getWorkoutCount();
+			if (rollup.getRollupDate().equals(endDate)) {
+				lastDay = rollup;
+			} else if (rollup.getRollupDate().equals(endDate.minusDays(1))) {
+				dayBefore = rollup;
+			}
+		}
+
+		int consecutiveDays = 0;
+		WorkoutDailyRollup anchor = lastDay != null ? lastDay : dayBefore;
+		if (anchor != null) {
+			LocalDate streakStart = anchor.getStreakStartDate().isBefore(startDate) ? startDate
+					: anchor.getStreakStartDate();
+			consecutiveDays = (int) ChronoUnit.DAYS.between(streakStart, anchor.getRollupDate()) + 1;
+		}
+		return new OverviewDataDTO(totalMinutes, totalCalories, workoutCount, consecutiveDays);
+	}
+
+	private void applyDelta(Integer userId, LocalDate date, int minutes, double calories, int count) {
+		dashboardSnapshotEngine.applyWorkoutDelta(count, minutes, calories);
+		recommendationService.invalidate(userId);
+		if (rollupRepo.addToDay(userId, date, minutes, calories, count) == 0) {
+			if (count <= 0) {
+				logger.warn("使用者 ID {} 在 {} 沒有每日彙總，略過扣除。", userId, date);
+				return;
+			}
+			// 新的一天：接在前一天的連續區間之後，並把從隔天開始的區間接上來
+			LocalDate streakStart = rollupRepo.findStreakStartDate(userId, date.minusDays(1)).orElse(date);
+			// 以 JDBC 新增：兩個交易同時新增同一天時，後者遇到唯一鍵衝突改為加到已建立的列上
+			if (!rollupInsertRepo.insertDay(userId, date, minutes, calories, count, streakStart)) {
+				rollupRepo.addToDay(userId, date, minutes, calories, count);
+				return;
+			}
+			rollupRepo.joinStreak(userId, date.plusDays(1), streakStart);
+			return;
+		}
+		if (count < 0 && rollupRepo.deleteIfEmpty(userId, date) > 0) {
+			// 當天已無紀錄：其後的日子另起一段連續區間
+			rollupRepo.splitStreak(userId, date, date.plusDays(1));
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package com.healthmanagement.service.shop;
+
+import com.healthmanagement.dao.shop.InventoryDAO;
+import com.healthmanagement.model.shop.Product;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * 結帳庫存預留
+ * 所有商品的扣庫存以單一 JDBC batch 送出，每一筆都是「庫存足夠才扣」的條件式 UPDATE，
+ * 由資料庫原子地檢查並扣除，不會超賣，也不需整列寫回商品資料。
+ * 任一商品庫存不足時丟出例外，整個交易 (含已扣除的其他商品) 一併回滾。
+ * 同一商品的多個項目先合併數量，並依商品 ID 排序送出，讓並行的訂單以相同順序鎖定商品列。
+ * 傳入的商品實體不會被修改 (修改受管理的實體會在 commit 時整列寫回，蓋掉其他訂單的扣除)。
+ */
+@Component
+public class InventoryReservationEngine {
+
+    private final InventoryDAO inventoryDAO;
+    private final ProductCatalogCache productCatalogCache;
+
+    public InventoryReservationEngine(InventoryDAO inventoryDAO, ProductCatalogCache productCatalogCache) {
+        this.inventoryDAO = inventoryDAO;
+        this.productCatalogCache = productCatalogCache;
+    }
+
+    // 單一訂單項目：商品與數量
+    public record StockLine(Product product, int quantity) {
+    }
+
+    /**
+     * 扣除所有項目的庫存；任一商品庫存不足時丟出 RuntimeException 並回滾整個交易。
+     */
+    @Transactional
+    public void reserve(List<StockLine> lines) {
+        Map<Integer, Integer> quantityByProductId = mergeByProductId(lines);
+        if (quantityByProductId.isEmpty()) {
+            return;
+        }
+        List<Integer> insufficient = inventoryDAO.reserveStock(quantityByProductId);
+        if (!insufficient.isEmpty()) {
+            Map<Integer, String> names = lines.stream().collect(Collectors.toMap(
+                    line -> line.product().getId(), line -> line.product().getName(), (first, second) -> first));
+            throw new RuntimeException(insufficient.stream()
+                    .map(productId -> "商品 " + names.get(productId) + " 庫存不足")
+                    .collect(Collectors.joining("；")));
+        }
+        productCatalogCache.stockChanged(quantityByProductId.keySet());
+    }
+
+    // 歸還所有項目的庫存 (取消訂單)
+    @Transactional
+    public void release(List<StockLine> lines) {
+        Map<Integer, Integer> quantityByProductId = mergeByProductId(lines);
+        if (!quantityByProductId.isEmpty()) {
+            inventoryDAO.releaseStock(quantityByProductId);
+            productCatalogCache.stockChanged(quantityByProductId.keySet());
+        }
+    }
+
+    private static Map<Integer, Integer> mergeByProductId(List<StockLine> lines) {
+        Map<Integer, Integer> quantityByProductId = new TreeMap<>();
+        for (StockLine line : lines) {
+            if (line.quantity() <= 0) {
+                throw new IllegalArgumentException("商品 " + line.product().getName() + " 的數量必須大於 0");
+            }
+            quantityByProductId.merge(line.product().getId(), line.quantity(), Integer::sum);
+        }
+        return quantityByProductId;
+    }
+}
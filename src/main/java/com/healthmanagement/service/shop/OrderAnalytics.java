@@ -0,0 +1,115 @@
+package com.healthmanagement.service.shop;
+
+import com.healthmanagement.dao.shop.OrderAnalyticsDAO;
+import com.healthmanagement.dto.shop.OrderStatisticsDTO;
+import com.healthmanagement.dto.shop.RevenuePointDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 訂單統計
+ * 統計與營收時間序列都讀取每日彙總表 order_daily_summary (每天每個狀態一列)，
+ * 查詢成本只與天數有關，不隨訂單數量成長。彙總表由 OrderDAOImpl.save 在寫入訂單的同一交易中增量維護，
+ * 啟動時依訂單資料重建一次。
+ */
+@Component
+public class OrderAnalytics {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderAnalytics.class);
+
+    private static final String COMPLETED = "completed";
+    private static final String PENDING = "pending";
+    private static final String CANCELLED = "cancelled";
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final OrderAnalyticsDAO orderAnalyticsDAO;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderAnalytics(OrderAnalyticsDAO orderAnalyticsDAO, PlatformTransactionManager transactionManager) {
+        this.orderAnalyticsDAO = orderAnalyticsDAO;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        Integer rows = transactionTemplate.execute(status -> orderAnalyticsDAO.rebuildDailySummary());
+        logger.info("已重建訂單每日彙總：{} 筆。", rows);
+    }
+
+    public OrderStatisticsDTO getStatistics() {
+        long totalOrders = 0;
+        long completedOrders = 0;
+        long pendingOrders = 0;
+        long cancelledOrders = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        long totalProductsSold = 0;
+        for (OrderAnalyticsDAO.StatusTotals totals : orderAnalyticsDAO.sumByStatus()) {
+            totalOrders += totals.orderCount();
+            switch (totals.status()) {
+                case COMPLETED -> {
+                    completedOrders = totals.orderCount();
+                    totalRevenue = totals.totalAmount() == null ? BigDecimal.ZERO : totals.totalAmount();
+                    totalProductsSold = totals.unitsSold();
+                }
+                case PENDING -> pendingOrders = totals.orderCount();
+                case CANCELLED -> cancelledOrders = totals.orderCount();
+                default -> {
+                }
+            }
+        }
+        return OrderStatisticsDTO.builder()
+                .totalOrders(totalOrders)
+                .completedOrders(completedOrders)
+                .pendingOrders(pendingOrders)
+                .cancelledOrders(cancelledOrders)
+                .totalRevenue(totalRevenue)
+                .totalProductsSold(Math.toIntExact(totalProductsSold))
+                .build();
+    }
+
+    /**
+     * 已完成訂單的營收時間序列。granularity 為 day 或 month；startDate、endDate 可為 null 表示不限。
+     */
+    public List<RevenuePointDTO> getRevenueSeries(String granularity, LocalDate startDate, LocalDate endDate) {
+        boolean monthly = parseMonthly(granularity);
+        Map<String, RevenuePointDTO> points = new LinkedHashMap<>();
+        for (OrderAnalyticsDAO.DailyTotals day : orderAnalyticsDAO.findDailyTotals(COMPLETED, startDate, endDate)) {
+            if (day.orderCount() == 0) {
+                continue;
+            }
+            String period = monthly ? day.date().format(MONTH_FORMAT) : day.date().toString();
+            RevenuePointDTO point = points.computeIfAbsent(period, key -> new RevenuePointDTO(key, 0L,
+                    BigDecimal.ZERO, 0L));
+            point.setOrderCount(point.getOrderCount() + day.orderCount());
+            point.setRevenue(point.getRevenue().add(day.totalAmount()));
+            point.setUnitsSold(point.getUnitsSold() + day.unitsSold());
+        }
+        return new ArrayList<>(points.values());
+    }
+
+    private static boolean parseMonthly(String granularity) {
+        if (granularity == null || granularity.isBlank()) {
+            return false;
+        }
+        return switch (granularity.trim().toLowerCase(Locale.ROOT)) {
+            case "day" -> false;
+            case "month" -> true;
+            default -> throw new IllegalArgumentException("不支援的時間單位: " + granularity + " (可用 day、month)");
+        };
+    }
+}
@@ -3,8 +3,10 @@ package com.healthmanagement.service.shop;
 import com.healthmanagement.dto.shop.OrderDTO;
 import com.healthmanagement.dto.shop.OrderRequest;
 import com.healthmanagement.dto.shop.OrderStatisticsDTO;
+import com.healthmanagement.dto.shop.RevenuePointDTO;
 
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.util.List;
 
 public interface OrderService {
@@ -27,5 +29,7 @@ public interface OrderService {
     
     OrderStatisticsDTO getOrderStatistics();
     
+    List<RevenuePointDTO> getRevenueSeries(String granularity, LocalDate startDate, LocalDate endDate);
+    
     void cancelOrder(Integer orderId);
 }
\ No newline at end of file
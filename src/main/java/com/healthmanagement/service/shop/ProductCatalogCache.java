@@ -0,0 +1,509 @@
+package com.healthmanagement.service.shop;
+
+import com.healthmanagement.dao.shop.InventoryDAO;
+import com.healthmanagement.dao.shop.ProductDAO;
+import com.healthmanagement.dto.shop.ProductDTO;
+import com.healthmanagement.model.shop.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * 商品目錄快取 (商城瀏覽與搜尋用)
+ * 保存所有商品的快照，並建立名稱/描述/分類的倒排索引、依價格排序的陣列與由新到舊的順序，
+ * 關鍵字搜尋、分類、價格區間、有庫存、最新商品都在記憶體中查詢並分頁。
+ * 倒排索引的詞：英數字以整個單字為詞 (查詢時以前綴比對)，中日韓文字以單字與相鄰二字為詞 (查詢時比對二字詞後再確認整段連續出現)。
+ * 商品新增、修改、刪除時遞增版本號，下次讀取時重建；結帳扣庫存、取消訂單歸還庫存則在 commit 後
+ * 只重新讀取受影響商品的庫存，不重建索引。每次查詢回傳新的 ProductDTO 複本。
+ */
+@Component
+public class ProductCatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalogCache.class);
+
+    @Autowired
+    private ProductDAO productDAO;
+
+    @Autowired
+    private InventoryDAO inventoryDAO;
+
+    private final TransactionTemplate readOnlyTransaction;
+
+    // 目前的目錄版本；商品異動時遞增
+    private final AtomicLong version = new AtomicLong(1);
+
+    // 已建立的快照，version 與上面的版本號不同時表示已過期
+    private volatile Catalog catalog = Catalog.EMPTY;
+
+    // 商品 ID → 目前庫存；與快照分開保存，庫存異動時只更新這張表
+    private volatile Map<Integer, InventoryDAO.StockLevel> stockLevels = new ConcurrentHashMap<>();
+
+    // 不可變的目錄快照與索引；索引中存放商品在 products (依 ID 排序) 中的位置
+    private record Catalog(long version,
+                           ProductDTO[] products,
+                           Map<Integer, Integer> positionById,
+                           String[] names,
+                           String[] searchTexts,
+                           NavigableMap<String, int[]> postings,
+                           Map<String, int[]> byCategory,
+                           int[] byPrice,
+                           BigDecimal[] sortedPrices,
+                           int[] newestFirst,
+                           int[] newestRank) {
+
+        static final Catalog EMPTY = new Catalog(0, new ProductDTO[0], Map.of(), new String[0], new String[0],
+                Collections.emptyNavigableMap(), Map.of(), new int[0], new BigDecimal[0], new int[0], new int[0]);
+    }
+
+    // 查詢詞；cjk 為 true 時是一段連續的中日韓文字
+    private record Term(String text, boolean cjk) {
+    }
+
+    @Autowired
+    public ProductCatalogCache(PlatformTransactionManager transactionManager) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        current();
+    }
+
+    /**
+     * 使目錄快照失效 (商品建立、修改、刪除時呼叫)。
+     * 立即遞增版本一次；若在交易中，commit 後再遞增一次，避免在 commit 前重建而快取到舊資料。
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * 商品庫存已異動 (結帳扣除、取消歸還)。在交易中時於 commit 後才重新讀取這些商品的庫存，否則立即讀取。
+     */
+    public void stockChanged(Collection<Integer> productIds) {
+        List<Integer> changed = List.copyOf(productIds);
+        if (changed.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    refreshStock(changed);
+                }
+            });
+        } else {
+            refreshStock(changed);
+        }
+    }
+
+    public ProductDTO getProduct(Integer productId) {
+        Catalog snapshot = current();
+        Integer position = snapshot.positionById().get(productId);
+        return position == null ? null : copyOf(snapshot.products()[position], stockLevels);
+    }
+
+    // 所有商品，依 ID 排序
+    public Page<ProductDTO> findAll(Pageable pageable) {
+        Catalog snapshot = current();
+        return toPage(snapshot, IntStream.range(0, snapshot.products().length).toArray(), pageable);
+    }
+
+    /**
+     * 名稱、描述、分類同時符合所有關鍵字的商品；名稱符合較多關鍵字的排前面，其次由新到舊。
+     * 沒有可用的關鍵字時回傳所有商品。
+     */
+    public Page<ProductDTO> search(String keyword, Pageable pageable) {
+        Catalog snapshot = current();
+        List<Term> terms = termsOf(normalize(keyword));
+        if (terms.isEmpty()) {
+            return findAll(pageable);
+        }
+        BitSet matched = null;
+        for (Term term : terms) {
+            BitSet hits = lookup(snapshot, term);
+            if (matched == null) {
+                matched = hits;
+            } else {
+                matched.and(hits);
+            }
+            if (matched.isEmpty()) {
+                return toPage(snapshot, new int[0], pageable);
+            }
+        }
+        int[] positions = matched.stream()
+                .filter(position -> containsAllPhrases(snapshot.searchTexts()[position], terms))
+                .boxed()
+                .sorted(Comparator.<Integer>comparingInt(position -> -nameHits(snapshot.names()[position], terms))
+                        .thenComparingInt(position -> snapshot.newestRank()[position]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return toPage(snapshot, positions, pageable);
+    }
+
+    // 分類包含 category (不分大小寫)，依 ID 排序；分類種類遠少於商品數，直接掃描分類索引
+    public Page<ProductDTO> findByCategory(String category, Pageable pageable) {
+        Catalog snapshot = current();
+        String keyword = normalize(category);
+        BitSet matched = new BitSet(snapshot.products().length);
+        snapshot.byCategory().forEach((name, positions) -> {
+            if (name.contains(keyword)) {
+                for (int position : positions) {
+                    matched.set(position);
+                }
+            }
+        });
+        return toPage(snapshot, matched.stream().toArray(), pageable);
+    }
+
+    // 價格介於 minPrice 與 maxPrice 之間 (含兩端，null 表示不限)，依價格由低到高排序
+    public Page<ProductDTO> findByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        Catalog snapshot = current();
+        BigDecimal[] prices = snapshot.sortedPrices();
+        int from = minPrice == null ? 0 : firstIndexAbove(prices, minPrice, false);
+        int to = maxPrice == null ? prices.length : firstIndexAbove(prices, maxPrice, true);
+        return toPage(snapshot, snapshot.byPrice(), Math.min(from, to), to, pageable);
+    }
+
+    // 目前有庫存的商品，依 ID 排序
+    public Page<ProductDTO> findInStock(Pageable pageable) {
+        Catalog snapshot = current();
+        Map<Integer, InventoryDAO.StockLevel> stock = stockLevels;
+        int[] positions = IntStream.range(0, snapshot.products().length)
+                .filter(position -> quantityOf(snapshot.products()[position], stock) > 0)
+                .toArray();
+        return toPage(snapshot, positions, pageable);
+    }
+
+    // 所有商品，依建立時間由新到舊排序
+    public Page<ProductDTO> findLatest(Pageable pageable) {
+        Catalog snapshot = current();
+        return toPage(snapshot, snapshot.newestFirst(), pageable);
+    }
+
+    // 取得目前有效的快照，版本過期時重建
+    private Catalog current() {
+        Catalog snapshot = catalog;
+        if (snapshot.version() == version.get()) {
+            return snapshot;
+        }
+        return rebuild();
+    }
+
+    private synchronized Catalog rebuild() {
+        long targetVersion = version.get();
+        Catalog snapshot = catalog;
+        if (snapshot.version() == targetVersion) {
+            return snapshot;
+        }
+        long startNanos = System.nanoTime();
+        List<Product> products = readOnlyTransaction.execute(status -> productDAO.findAll(Sort.by("id")));
+
+        int size = products.size();
+        ProductDTO[] dtos = new ProductDTO[size];
+        Map<Integer, Integer> positionById = new HashMap<>();
+        String[] names = new String[size];
+        String[] searchTexts = new String[size];
+        Map<String, List<Integer>> postingLists = new HashMap<>();
+        Map<String, List<Integer>> categoryLists = new HashMap<>();
+        Map<Integer, InventoryDAO.StockLevel> stock = new ConcurrentHashMap<>();
+        for (int position = 0; position < size; position++) {
+            Product product = products.get(position);
+            dtos[position] = toSnapshot(product);
+            positionById.put(product.getId(), position);
+            names[position] = normalize(product.getName());
+            searchTexts[position] = names[position] + "\n" + normalize(product.getDescription()) + "\n"
+                    + normalize(product.getCategory());
+            for (String key : indexKeysOf(searchTexts[position])) {
+                postingLists.computeIfAbsent(key, k -> new ArrayList<>()).add(position);
+            }
+            if (product.getCategory() != null) {
+                categoryLists.computeIfAbsent(normalize(product.getCategory()), k -> new ArrayList<>()).add(position);
+            }
+            stock.put(product.getId(), new InventoryDAO.StockLevel(
+                    product.getStockQuantity() == null ? 0 : product.getStockQuantity(), product.getUpdatedAt()));
+        }
+
+        NavigableMap<String, int[]> postings = new TreeMap<>();
+        postingLists.forEach((key, positions) -> postings.put(key, toArray(positions)));
+        Map<String, int[]> byCategory = new HashMap<>();
+        categoryLists.forEach((key, positions) -> byCategory.put(key, toArray(positions)));
+
+        int[] byPrice = IntStream.range(0, size)
+                .filter(position -> dtos[position].getPrice() != null)
+                .boxed()
+                .sorted(Comparator.comparing((Integer position) -> dtos[position].getPrice()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        BigDecimal[] sortedPrices = new BigDecimal[byPrice.length];
+        for (int i = 0; i < byPrice.length; i++) {
+            sortedPrices[i] = dtos[byPrice[i]].getPrice();
+        }
+
+        // 與原本的 ORDER BY created_at DESC 一致，建立時間相同時 ID 大的在前，沒有建立時間的排最後
+        int[] newestFirst = IntStream.range(0, size)
+                .boxed()
+                .sorted(Comparator.comparing((Integer position) -> dtos[position].getCreatedAt(),
+                                Comparator.nullsLast(Comparator.reverseOrder()))
+                        .thenComparing(Comparator.reverseOrder()))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] newestRank = new int[size];
+        for (int rank = 0; rank < size; rank++) {
+            newestRank[newestFirst[rank]] = rank;
+        }
+
+        Catalog rebuilt = new Catalog(targetVersion, dtos, Collections.unmodifiableMap(positionById), names,
+                searchTexts, Collections.unmodifiableNavigableMap(postings), Collections.unmodifiableMap(byCategory),
+                byPrice, sortedPrices, newestFirst, newestRank);
+        stockLevels = stock;
+        catalog = rebuilt;
+        logger.info("商品目錄快取已重建 (版本 {})：{} 項商品，{} 個索引詞，耗時 {} ms。",
+                targetVersion, size, postings.size(), (System.nanoTime() - startNanos) / 1_000_000);
+        return rebuilt;
+    }
+
+    // 與 rebuild 互斥，讀取資料庫與寫入庫存表依序進行，較晚讀到的庫存一定較晚寫入
+    private synchronized void refreshStock(List<Integer> productIds) {
+        try {
+            stockLevels.putAll(inventoryDAO.findStockLevels(productIds));
+        } catch (RuntimeException e) {
+            // 交易已經 commit，不能讓例外影響呼叫端；改為整個目錄下次讀取時重建
+            logger.warn("重新讀取商品庫存失敗，將重建商品目錄快取：{}", e.getMessage());
+            version.incrementAndGet();
+        }
+    }
+
+    private static BitSet lookup(Catalog snapshot, Term term) {
+        BitSet hits = new BitSet(snapshot.products().length);
+        if (!term.cjk()) {
+            // 英數字單字以前綴比對
+            for (int[] positions : snapshot.postings().subMap(term.text(), true,
+                    term.text() + Character.MAX_VALUE, true).values()) {
+                for (int position : positions) {
+                    hits.set(position);
+                }
+            }
+            return hits;
+        }
+        List<String> keys = cjkKeysOf(term.text(), term.text().codePointCount(0, term.text().length()) == 1);
+        boolean first = true;
+        for (String key : keys) {
+            BitSet keyHits = new BitSet(snapshot.products().length);
+            for (int position : snapshot.postings().getOrDefault(key, new int[0])) {
+                keyHits.set(position);
+            }
+            if (first) {
+                hits = keyHits;
+                first = false;
+            } else {
+                hits.and(keyHits);
+            }
+        }
+        return hits;
+    }
+
+    // 二字詞都出現不代表整段連續出現，逐筆確認
+    private static boolean containsAllPhrases(String searchText, List<Term> terms) {
+        for (Term term : terms) {
+            if (term.cjk() && !searchText.contains(term.text())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int nameHits(String name, List<Term> terms) {
+        int hits = 0;
+        for (Term term : terms) {
+            if (name.contains(term.text())) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    // 第一個大於 (strict) 或大於等於 value 的位置
+    private static int firstIndexAbove(BigDecimal[] prices, BigDecimal value, boolean strict) {
+        int low = 0;
+        int high = prices.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int compared = prices[middle].compareTo(value);
+            if (compared < 0 || (strict && compared == 0)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Page<ProductDTO> toPage(Catalog snapshot, int[] positions, Pageable pageable) {
+        return toPage(snapshot, positions, 0, positions.length, pageable);
+    }
+
+    // positions[start, end) 中屬於這一頁的部分
+    private Page<ProductDTO> toPage(Catalog snapshot, int[] positions, int start, int end, Pageable pageable) {
+        int total = end - start;
+        int from = start;
+        int to = end;
+        if (pageable.isPaged()) {
+            from = (int) Math.min(start + pageable.getOffset(), end);
+            to = (int) Math.min((long) from + pageable.getPageSize(), end);
+        }
+        Map<Integer, InventoryDAO.StockLevel> stock = stockLevels;
+        List<ProductDTO> content = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            content.add(copyOf(snapshot.products()[positions[i]], stock));
+        }
+        return new PageImpl<>(content, pageable, total);
+    }
+
+    private static int quantityOf(ProductDTO snapshot, Map<Integer, InventoryDAO.StockLevel> stock) {
+        InventoryDAO.StockLevel level = stock.get(snapshot.getId());
+        return level != null ? level.quantity() : snapshot.getStockQuantity();
+    }
+
+    // 複製快照並填入目前庫存，呼叫端修改回傳值不會影響快取
+    private static ProductDTO copyOf(ProductDTO snapshot, Map<Integer, InventoryDAO.StockLevel> stock) {
+        InventoryDAO.StockLevel level = stock.get(snapshot.getId());
+        Timestamp updatedAt = level != null ? level.updatedAt() : null;
+        return ProductDTO.builder()
+                .id(snapshot.getId())
+                .name(snapshot.getName())
+                .description(snapshot.getDescription())
+                .price(snapshot.getPrice())
+                .stockQuantity(level != null ? level.quantity() : snapshot.getStockQuantity())
+                .category(snapshot.getCategory())
+                .imageUrl(snapshot.getImageUrl())
+                .createdAt(snapshot.getCreatedAt())
+                .updatedAt(updatedAt != null ? updatedAt.toLocalDateTime() : snapshot.getUpdatedAt())
+                .build();
+    }
+
+    private static ProductDTO toSnapshot(Product product) {
+        return ProductDTO.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stockQuantity(product.getStockQuantity() == null ? 0 : product.getStockQuantity())
+                .category(product.getCategory())
+                .imageUrl(product.getImageUrl())
+                .createdAt(product.getCreatedAt() == null ? null : product.getCreatedAt().toLocalDateTime())
+                .updatedAt(product.getUpdatedAt() == null ? null : product.getUpdatedAt().toLocalDateTime())
+                .build();
+    }
+
+    // 全形轉半形並轉小寫
+    private static String normalize(String text) {
+        return text == null ? "" : Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    // 將文字切成英數字單字與連續的中日韓文字段，其餘字元視為分隔
+    private static List<Term> termsOf(String text) {
+        List<Term> terms = new ArrayList<>();
+        StringBuilder run = new StringBuilder();
+        boolean runIsCjk = false;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+            boolean cjk = isCjk(codePoint);
+            if (!cjk && !Character.isLetterOrDigit(codePoint)) {
+                addTerm(terms, run, runIsCjk);
+                continue;
+            }
+            if (run.length() > 0 && cjk != runIsCjk) {
+                addTerm(terms, run, runIsCjk);
+            }
+            runIsCjk = cjk;
+            run.appendCodePoint(codePoint);
+        }
+        addTerm(terms, run, runIsCjk);
+        return terms;
+    }
+
+    private static void addTerm(List<Term> terms, StringBuilder run, boolean cjk) {
+        if (run.length() > 0) {
+            terms.add(new Term(run.toString(), cjk));
+            run.setLength(0);
+        }
+    }
+
+    private static Set<String> indexKeysOf(String text) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (Term term : termsOf(text)) {
+            if (term.cjk()) {
+                keys.addAll(cjkKeysOf(term.text(), true));
+                keys.addAll(cjkKeysOf(term.text(), false));
+            } else {
+                keys.add(term.text());
+            }
+        }
+        return keys;
+    }
+
+    // 中日韓文字段的單字 (unigrams 為 true) 或相鄰二字
+    private static List<String> cjkKeysOf(String run, boolean unigrams) {
+        int[] codePoints = run.codePoints().toArray();
+        int length = unigrams ? 1 : 2;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i + length <= codePoints.length; i++) {
+            keys.add(new String(codePoints, i, length));
+        }
+        return keys;
+    }
+
+    private static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    private static int[] toArray(List<Integer> positions) {
+        return positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -2,6 +2,9 @@ package com.healthmanagement.service.shop;
 
 import com.healthmanagement.dto.shop.ProductDTO;
 import com.healthmanagement.dto.shop.ProductRequest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -26,6 +29,20 @@ public interface ProductService {
     List<ProductDTO> getInStockProducts();
     
     List<ProductDTO> getLatestProducts();
+
+    // 以下分頁版本由記憶體中的商品目錄提供，Pageable.unpaged() 表示不分頁
+
+    Page<ProductDTO> getAllProducts(Pageable pageable);
+
+    Page<ProductDTO> searchProducts(String keyword, Pageable pageable);
+
+    Page<ProductDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable);
+
+    Page<ProductDTO> getProductsByCategory(String category, Pageable pageable);
+
+    Page<ProductDTO> getInStockProducts(Pageable pageable);
+
+    Page<ProductDTO> getLatestProducts(Pageable pageable);
     
     boolean updateProductStock(Integer productId, Integer quantity);
 }
\ No newline at end of file
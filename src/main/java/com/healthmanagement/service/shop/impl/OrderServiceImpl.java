@@ -8,12 +8,15 @@ import com.healthmanagement.dto.shop.OrderDTO;
 import com.healthmanagement.dto.shop.OrderItemDTO;
 import com.healthmanagement.dto.shop.OrderRequest;
 import com.healthmanagement.dto.shop.OrderStatisticsDTO;
+import com.healthmanagement.dto.shop.RevenuePointDTO;
 import com.healthmanagement.exception.ResourceNotFoundException;
 import com.healthmanagement.model.member.User;
 import com.healthmanagement.model.shop.Order;
 import com.healthmanagement.model.shop.OrderItem;
 import com.healthmanagement.model.shop.CartItem;
 import com.healthmanagement.model.shop.Product;
+import com.healthmanagement.service.shop.InventoryReservationEngine;
+import com.healthmanagement.service.shop.OrderAnalytics;
 import com.healthmanagement.service.shop.OrderService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,8 +25,11 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 
@@ -39,6 +45,12 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private ProductDAO productDAO;
 
+    @Autowired
+    private InventoryReservationEngine inventoryReservationEngine;
+
+    @Autowired
+    private OrderAnalytics orderAnalytics;
+
     @Override
     @Transactional
     public OrderDTO createOrder(OrderRequest request) {
@@ -57,13 +69,17 @@ public class OrderServiceImpl implements OrderService {
         // 2. 創建訂單項目並計算總金額
         BigDecimal totalAmount = BigDecimal.ZERO;
         
+        Map<Integer, Product> productsById = productDAO.findAllById(request.getItems().stream()
+                        .map(OrderRequest.OrderItemRequest::getProductId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<InventoryReservationEngine.StockLine> stockLines = new ArrayList<>();
+
         for (OrderRequest.OrderItemRequest itemRequest : request.getItems()) {
-            Product product = productDAO.findById(itemRequest.getProductId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + itemRequest.getProductId()));
-            
-            // 檢查庫存
-            if (product.getStockQuantity() < itemRequest.getQuantity()) {
-                throw new RuntimeException("商品 " + product.getName() + " 庫存不足");
+            Product product = productsById.get(itemRequest.getProductId());
+            if (product == null) {
+                throw new ResourceNotFoundException("Product not found with id: " + itemRequest.getProductId());
             }
 
             // 創建訂單項目
@@ -79,11 +95,12 @@ public class OrderServiceImpl implements OrderService {
             // 更新總金額
             totalAmount = totalAmount.add(orderItem.getSubtotal());
 
-            // 更新庫存
-            product.setStockQuantity(product.getStockQuantity() - itemRequest.getQuantity());
-            productDAO.save(product);
+            stockLines.add(new InventoryReservationEngine.StockLine(product, itemRequest.getQuantity()));
         }
 
+        // 一次扣除所有商品的庫存 (庫存不足時整筆訂單回滾)
+        inventoryReservationEngine.reserve(stockLines);
+
         order.setTotalAmount(totalAmount);
         order = orderDAO.save(order);
 
@@ -110,13 +127,9 @@ public class OrderServiceImpl implements OrderService {
 
         // 3. 創建訂單項目並計算總金額
         BigDecimal totalAmount = BigDecimal.ZERO;
+        List<InventoryReservationEngine.StockLine> stockLines = new ArrayList<>();
         for (CartItem cartItem : cartItems) {
             Product product = cartItem.getProduct();
-            
-            // 檢查庫存
-            if (product.getStockQuantity() < cartItem.getQuantity()) {
-                throw new RuntimeException("商品 " + product.getName() + " 庫存不足");
-            }
 
             // 創建訂單項目
             OrderItem orderItem = new OrderItem();
@@ -131,11 +144,12 @@ public class OrderServiceImpl implements OrderService {
             // 更新總金額
             totalAmount = totalAmount.add(orderItem.getSubtotal());
 
-            // 更新庫存
-            product.setStockQuantity(product.getStockQuantity() - cartItem.getQuantity());
-            productDAO.save(product);
+            stockLines.add(new InventoryReservationEngine.StockLine(product, cartItem.getQuantity()));
         }
 
+        // 一次扣除所有商品的庫存 (庫存不足時整筆訂單回滾)
+        inventoryReservationEngine.reserve(stockLines);
+
         order.setTotalAmount(totalAmount);
         order = orderDAO.save(order);
 
@@ -186,33 +200,12 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public OrderStatisticsDTO getOrderStatistics() {
-        Long totalOrders = orderDAO.count();
-        Long completedOrders = Long.valueOf(orderDAO.findByStatus("completed").size());
-        Long pendingOrders = Long.valueOf(orderDAO.findByStatus("pending").size());
-        Long cancelledOrders = Long.valueOf(orderDAO.findByStatus("cancelled").size());
-        BigDecimal totalRevenue = orderDAO.getTotalRevenue();
-        
-        if (totalRevenue == null) {
-            totalRevenue = BigDecimal.ZERO;
-        }
-        
-        // 计算售出的总产品数量
-        Integer totalProductsSold = 0;
-        List<Order> completedOrdersList = orderDAO.findByStatus("completed");
-        for (Order order : completedOrdersList) {
-            for (OrderItem item : order.getOrderItems()) {
-                totalProductsSold += item.getQuantity();
-            }
-        }
-        
-        return OrderStatisticsDTO.builder()
-                .totalOrders(totalOrders)
-                .completedOrders(completedOrders)
-                .pendingOrders(pendingOrders)
-                .cancelledOrders(cancelledOrders)
-                .totalRevenue(totalRevenue)
-                .totalProductsSold(totalProductsSold)
-                .build();
+        return orderAnalytics.getStatistics();
+    }
+
+    @Override
+    public List<RevenuePointDTO> getRevenueSeries(String granularity, LocalDate startDate, LocalDate endDate) {
+        return orderAnalytics.getRevenueSeries(granularity, startDate, endDate);
     }
 
     @Override
@@ -238,11 +231,9 @@ public class OrderServiceImpl implements OrderService {
         }
         
         // 恢复产品库存
-        for (OrderItem item : order.getOrderItems()) {
-            Product product = item.getProduct();
-            product.setStockQuantity(product.getStockQuantity() + item.getQuantity());
-            productDAO.save(product);
-        }
+        inventoryReservationEngine.release(order.getOrderItems().stream()
+                .map(item -> new InventoryReservationEngine.StockLine(item.getProduct(), item.getQuantity()))
+                .collect(Collectors.toList()));
         
         order.setStatus("cancelled");
         orderDAO.save(order);
@@ -6,8 +6,11 @@ import com.healthmanagement.dto.shop.ProductDTO;
 import com.healthmanagement.dto.shop.ProductRequest;
 import com.healthmanagement.exception.ResourceNotFoundException;
 import com.healthmanagement.model.shop.Product;
+import com.healthmanagement.service.shop.ProductCatalogCache;
 import com.healthmanagement.service.shop.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +29,9 @@ public class ProductServiceImpl implements ProductService {
     @Autowired
     private CustomProductDAO customProductDAO;
 
+    @Autowired
+    private ProductCatalogCache productCatalogCache;
+
     @Override
     @Transactional
     public ProductDTO createProduct(ProductRequest request) {
@@ -40,6 +46,7 @@ public class ProductServiceImpl implements ProductService {
         product.setUpdatedAt(Timestamp.valueOf(LocalDateTime.now()));
         
         product = productDAO.save(product);
+        productCatalogCache.invalidate();
         return convertToDTO(product);
     }
 
@@ -58,6 +65,7 @@ public class ProductServiceImpl implements ProductService {
         product.setUpdatedAt(Timestamp.valueOf(LocalDateTime.now()));
         
         product = productDAO.save(product);
+        productCatalogCache.invalidate();
         return convertToDTO(product);
     }
 
@@ -68,59 +76,76 @@ public class ProductServiceImpl implements ProductService {
             throw new ResourceNotFoundException("Product not found with id: " + id);
         }
         productDAO.deleteById(id);
+        productCatalogCache.invalidate();
     }
 
     @Override
     public ProductDTO getProductById(Integer id) {
-        Product product = productDAO.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Product not found with id: " + id));
-        return convertToDTO(product);
+        ProductDTO productDTO = productCatalogCache.getProduct(id);
+        if (productDTO == null) {
+            throw new ResourceNotFoundException("Product not found with id: " + id);
+        }
+        return productDTO;
     }
 
     @Override
     public List<ProductDTO> getAllProducts() {
-        return productDAO.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return getAllProducts(Pageable.unpaged()).getContent();
     }
 
     @Override
     public List<ProductDTO> searchProducts(String keyword) {
-        return productDAO.findByNameContainingIgnoreCase(keyword).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return searchProducts(keyword, Pageable.unpaged()).getContent();
     }
 
     @Override
     public List<ProductDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        List<Product> products = productDAO.findByPriceBetween(minPrice, maxPrice);
-        return products.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return getProductsByPriceRange(minPrice, maxPrice, Pageable.unpaged()).getContent();
     }
 
     @Override
     public List<ProductDTO> getProductsByCategory(String category) {
-        List<Product> products = productDAO.findByCategoryContainingIgnoreCase(category);
-        return products.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return getProductsByCategory(category, Pageable.unpaged()).getContent();
     }
 
     @Override
     public List<ProductDTO> getInStockProducts() {
-        List<Product> products = productDAO.findInStockProducts();
-        return products.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return getInStockProducts(Pageable.unpaged()).getContent();
     }
 
     @Override
     public List<ProductDTO> getLatestProducts() {
-        List<Product> products = productDAO.findLatestProducts();
-        return products.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return getLatestProducts(Pageable.unpaged()).getContent();
+    }
+
+    @Override
+    public Page<ProductDTO> getAllProducts(Pageable pageable) {
+        return productCatalogCache.findAll(pageable);
+    }
+
+    @Override
+    public Page<ProductDTO> searchProducts(String keyword, Pageable pageable) {
+        return productCatalogCache.search(keyword, pageable);
+    }
+
+    @Override
+    public Page<ProductDTO> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
+        return productCatalogCache.findByPriceRange(minPrice, maxPrice, pageable);
+    }
+
+    @Override
+    public Page<ProductDTO> getProductsByCategory(String category, Pageable pageable) {
+        return productCatalogCache.findByCategory(category, pageable);
+    }
+
+    @Override
+    public Page<ProductDTO> getInStockProducts(Pageable pageable) {
+        return productCatalogCache.findInStock(pageable);
+    }
+
+    @Override
+    public Page<ProductDTO> getLatestProducts(Pageable pageable) {
+        return productCatalogCache.findLatest(pageable);
     }
 
     @Override
@@ -135,6 +160,7 @@ public class ProductServiceImpl implements ProductService {
         
         product.setStockQuantity(product.getStockQuantity() - quantity);
         productDAO.save(product);
+        productCatalogCache.stockChanged(List.of(productId));
         return true;
     }
 